@@ -0,0 +1,92 @@
+package tn.esprit.spring.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.services.SkierPassIndex;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup latency of the lift-gate pass index. The setup prints the memory the index takes for
+ * the given number of skiers, both from its array sizes and from the heap growth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class PassIndexBenchmark {
+
+    @Param({"1000000"})
+    public int skiers;
+
+    private SkierPassIndex index;
+
+    private long[] lookups;
+
+    private final LocalDate today = LocalDate.of(2025, 1, 15);
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long before = usedHeap();
+        // Refusals are checked against the database: here one that has no other pass
+        ISkierRepository noOtherPass = (ISkierRepository) Proxy.newProxyInstance(ISkierRepository.class.getClassLoader(),
+                new Class<?>[]{ISkierRepository.class}, (proxy, method, args) -> Optional.empty());
+        index = new SkierPassIndex(noOtherPass, 5_000);
+        Skier skier = new Skier();
+        Subscription subscription = new Subscription(null, null, null, 50f, TypeSubscription.MONTHLY);
+        skier.setSubscription(subscription);
+        Random random = new Random(11);
+        LocalDate seasonStart = LocalDate.of(2024, 11, 1);
+        for (long numSkier = 1; numSkier <= skiers; numSkier++) {
+            LocalDate startDate = seasonStart.plusDays(random.nextInt(150));
+            skier.setNumSkier(numSkier);
+            subscription.setStartDate(startDate);
+            subscription.setEndDate(startDate.plusMonths(1));
+            index.skierSaved(skier);
+        }
+        long after = usedHeap();
+        System.out.printf("%nPass index: %d skiers, %.1f MB of arrays, %.1f MB of heap growth%n", index.size(),
+                index.memoryBytes() / 1e6, (after - before) / 1e6);
+
+        // Ids past the last skier miss, as a gate would see for unknown passes
+        lookups = new long[1 << 16];
+        for (int i = 0; i < lookups.length; i++) {
+            lookups[i] = 1 + random.nextInt(skiers + skiers / 10);
+        }
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return index.isValid(lookups[next++ & (lookups.length - 1)], today);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
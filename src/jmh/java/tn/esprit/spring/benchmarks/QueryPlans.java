@@ -0,0 +1,93 @@
+package tn.esprit.spring.benchmarks;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Captures the plans and timings of the hot-path queries on the seeded station, either on the
+ * baseline schema ({@code before}, migrations up to V1) or on the latest one ({@code after}).
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=tn.esprit.spring.benchmarks.QueryPlans -Dexec.args="before"}; the report is
+ * written to {@code target/query-plans-<label>.txt}. Extra arguments are passed to Spring,
+ * e.g. {@code --spring.datasource.url=...} to run against MySQL.
+ */
+public class QueryPlans {
+
+    private static final int RUNS = 200;
+
+    public static void main(String[] args) throws IOException {
+        String label = args.length > 0 ? args[0] : "after";
+        SeededStation station = new SeededStation() {
+            @Override
+            protected List<String> arguments() {
+                List<String> arguments = super.arguments();
+                if ("before".equals(label)) {
+                    arguments.add("--spring.flyway.target=1");
+                }
+                arguments.addAll(List.of(args).subList(Math.min(1, args.length), args.length));
+                return arguments;
+            }
+        };
+        station.skiers = 20000;
+        station.courses = 300;
+        station.start();
+        try {
+            report(station, label);
+        } finally {
+            station.stop();
+        }
+    }
+
+    private static void report(SeededStation station, String label) throws IOException {
+        JdbcTemplate jdbcTemplate = station.bean(JdbcTemplate.class);
+        Random random = new Random(7);
+        Long numCourse = station.courseIds.get(random.nextInt(station.courseIds.size()));
+        Long numSkier = station.skierIds.get(random.nextInt(station.skierIds.size()));
+        Date today = Date.valueOf(LocalDate.now());
+
+        Map<String, Object[]> queries = new LinkedHashMap<>();
+        queries.put("select count(*) from registration where course_num_course = ? and num_week = ?",
+                new Object[]{numCourse, 3});
+        queries.put("select count(*) from registration where num_week = ? and skier_num_skier = ? and course_num_course = ?",
+                new Object[]{3, numSkier, numCourse});
+        queries.put("select num_sub, start_date from subscription where type_sub = ? order by start_date, num_sub limit 50",
+                new Object[]{1});
+        queries.put("select num_sub, end_date from subscription where end_date <= ? order by end_date, num_sub limit 500",
+                new Object[]{today});
+
+        Path output = Paths.get("target", "query-plans-" + label + ".txt");
+        Files.createDirectories(output.getParent());
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8))) {
+            out.printf("# %s schema, %d skiers, %d courses, %d runs per query%n", label, station.skiers,
+                    station.courses, RUNS);
+            queries.forEach((sql, params) -> {
+                out.println();
+                out.println(sql);
+                jdbcTemplate.queryForList("explain " + sql, params)
+                        .forEach(row -> out.println("  plan: " + row.values()));
+                for (int i = 0; i < RUNS / 10; i++) {
+                    jdbcTemplate.queryForList(sql, params);
+                }
+                long start = System.nanoTime();
+                for (int i = 0; i < RUNS; i++) {
+                    jdbcTemplate.queryForList(sql, params);
+                }
+                out.printf("  mean: %.1f us%n", (System.nanoTime() - start) / 1000.0 / RUNS);
+            });
+        }
+        System.out.println("Query plans written to " + output.toAbsolutePath());
+    }
+}
@@ -0,0 +1,84 @@
+package tn.esprit.spring.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tn.esprit.spring.services.ICourseServices;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kiosk polls of {@code /course/all}: a full JSON response, a gzip one and a conditional one
+ * answered 304, next to the query and serialization every poll used to cost. The setup prints
+ * the bytes each kind of poll puts on the wire. Run with {@code -p threads=platform}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReferenceDataBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class KioskStation extends ServingStation {
+
+        HttpRequest full;
+
+        HttpRequest gzip;
+
+        HttpRequest notModified;
+
+        @Override
+        public void start() {
+            super.start();
+            URI uri = URI.create(baseUrl + "/course/all");
+            full = HttpRequest.newBuilder(uri).GET().build();
+            gzip = HttpRequest.newBuilder(uri).header("Accept-Encoding", "gzip").GET().build();
+            HttpResponse<byte[]> plain = send(full);
+            HttpResponse<byte[]> compressed = send(gzip);
+            notModified = HttpRequest.newBuilder(uri).header("Accept-Encoding", "gzip")
+                    .header("If-None-Match", compressed.headers().firstValue("ETag").orElseThrow()).GET().build();
+            System.out.printf("%n/course/all with %d courses: %d bytes of JSON, %d gzipped, 304 status %d%n",
+                    courseIds.size() + 1, plain.body().length, compressed.body().length, send(notModified).statusCode());
+        }
+
+        HttpResponse<byte[]> send(HttpRequest request) {
+            try {
+                return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @Benchmark
+    public int queryAndSerialize(KioskStation station) throws Exception {
+        return station.bean(ObjectMapper.class)
+                .writeValueAsBytes(station.bean(ICourseServices.class).retrieveAllCourses()).length;
+    }
+
+    @Benchmark
+    public int full(KioskStation station) {
+        return station.send(station.full).body().length;
+    }
+
+    @Benchmark
+    public int gzip(KioskStation station) {
+        return station.send(station.gzip).body().length;
+    }
+
+    @Benchmark
+    public int notModified(KioskStation station) {
+        return station.send(station.notModified).statusCode();
+    }
+}
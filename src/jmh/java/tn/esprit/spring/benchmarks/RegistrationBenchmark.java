@@ -0,0 +1,97 @@
+package tn.esprit.spring.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tn.esprit.spring.DTO.RegistrationResultDTO;
+import tn.esprit.spring.entities.Registration;
+import tn.esprit.spring.services.CourseCapacityLedger;
+import tn.esprit.spring.services.IRegistrationServices;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registration decision path: the in-memory capacity check alone, then a full registration
+ * through the service, one skier at a time and as a group of 30. The group is registered to
+ * an individual course, where everyone gets in, and to a collective one, where the age check
+ * and the 6 seats turn most of the group away.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistrationBenchmark {
+
+    private static final int GROUP_SIZE = 30;
+
+    private IRegistrationServices registrationServices;
+
+    private CourseCapacityLedger capacityLedger;
+
+    private List<Long> skierIds;
+
+    private Long collectiveCourseId;
+
+    private Long individualCourseId;
+
+    // Every invocation books a week nobody used yet, so no call stops on the duplicate check
+    private final AtomicInteger week = new AtomicInteger(SeededStation.WEEKS);
+
+    @Setup
+    public void setup(SeededStation station) {
+        registrationServices = station.bean(IRegistrationServices.class);
+        capacityLedger = station.bean(CourseCapacityLedger.class);
+        skierIds = station.skierIds;
+        collectiveCourseId = station.collectiveCourseId;
+        individualCourseId = station.individualCourseId;
+    }
+
+    @Benchmark
+    public boolean capacityDecision() {
+        boolean reserved = capacityLedger.tryReserve(collectiveCourseId, 1, 6);
+        if (reserved) {
+            capacityLedger.release(collectiveCourseId, 1);
+        }
+        return reserved;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GROUP_SIZE)
+    public Registration[] singleRegistrations() {
+        int numWeek = week.incrementAndGet();
+        Registration[] registrations = new Registration[GROUP_SIZE];
+        for (int i = 0; i < GROUP_SIZE; i++) {
+            Registration registration = new Registration();
+            registration.setNumWeek(numWeek);
+            registrations[i] = registrationServices.addRegistrationAndAssignToSkierAndCourse(
+                    registration, skierIds.get(i), individualCourseId);
+        }
+        return registrations;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GROUP_SIZE)
+    public List<RegistrationResultDTO> groupRegistration() {
+        return registrationServices.addGroupRegistration(skierIds.subList(0, GROUP_SIZE),
+                individualCourseId, week.incrementAndGet());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GROUP_SIZE)
+    public List<RegistrationResultDTO> collectiveGroupRegistration() {
+        return registrationServices.addGroupRegistration(skierIds.subList(0, GROUP_SIZE),
+                collectiveCourseId, week.incrementAndGet());
+    }
+}
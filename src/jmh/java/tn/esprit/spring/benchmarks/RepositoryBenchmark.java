@@ -0,0 +1,77 @@
+package tn.esprit.spring.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import tn.esprit.spring.DTO.ExpiringSubscription;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.repositories.ISubscriptionRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips of the repository queries on the hot paths, against the seeded H2 database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    private ISkierRepository skierRepository;
+
+    private IRegistrationRepository registrationRepository;
+
+    private ISubscriptionRepository subscriptionRepository;
+
+    private List<Long> skierIds;
+
+    private List<Long> courseIds;
+
+    @Setup
+    public void setup(SeededStation station) {
+        skierRepository = station.bean(ISkierRepository.class);
+        registrationRepository = station.bean(IRegistrationRepository.class);
+        subscriptionRepository = station.bean(ISubscriptionRepository.class);
+        skierIds = station.skierIds;
+        courseIds = station.courseIds;
+    }
+
+    @Benchmark
+    public Skier findSkierById() {
+        return skierRepository.findById(skierIds.get(ThreadLocalRandom.current().nextInt(skierIds.size()))).orElse(null);
+    }
+
+    @Benchmark
+    public long countCourseWeek() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return registrationRepository.countByCourse_NumCourseAndNumWeek(
+                courseIds.get(random.nextInt(courseIds.size())), 1 + random.nextInt(SeededStation.WEEKS));
+    }
+
+    @Benchmark
+    public List<Skier> skierPage() {
+        return skierRepository.findPageAfter(skierIds.get(ThreadLocalRandom.current().nextInt(skierIds.size())),
+                PageRequest.of(0, 50));
+    }
+
+    @Benchmark
+    public List<ExpiringSubscription> expiringSubscriptions() {
+        return subscriptionRepository.findExpiring(LocalDate.now(), PageRequest.of(0, 500));
+    }
+}
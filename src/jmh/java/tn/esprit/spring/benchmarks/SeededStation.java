@@ -0,0 +1,135 @@
+package tn.esprit.spring.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import tn.esprit.spring.GestionStationSkiApplication;
+import tn.esprit.spring.entities.*;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.services.CourseCapacityLedger;
+import tn.esprit.spring.services.SubscriptionServicesImpl;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Application context on an in-memory H2 database seeded with a season of skiers, courses
+ * and registrations.
+ */
+@State(Scope.Benchmark)
+public class SeededStation {
+
+    @Param({"20000"})
+    public int skiers;
+
+    @Param({"300"})
+    public int courses;
+
+    public static final int WEEKS = 20;
+
+    public ConfigurableApplicationContext context;
+
+    public List<Long> skierIds;
+
+    public List<Long> courseIds;
+
+    public Long individualCourseId;
+
+    public Long collectiveCourseId;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(GestionStationSkiApplication.class)
+                .web(webApplicationType())
+                .run(arguments().toArray(new String[0]));
+        seed();
+        context.getBean(CourseCapacityLedger.class).load();
+    }
+
+    protected WebApplicationType webApplicationType() {
+        return WebApplicationType.NONE;
+    }
+
+    protected List<String> arguments() {
+        return new ArrayList<>(List.of("--spring.datasource.url=jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=validate",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=warn"));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    private void seed() {
+        Random random = new Random(42);
+        ISkierRepository skierRepository = bean(ISkierRepository.class);
+        ICourseRepository courseRepository = bean(ICourseRepository.class);
+        IRegistrationRepository registrationRepository = bean(IRegistrationRepository.class);
+        TypeSubscription[] types = TypeSubscription.values();
+
+        List<Skier> newSkiers = new ArrayList<>(skiers);
+        for (int i = 0; i < skiers; i++) {
+            Skier skier = new Skier();
+            skier.setFirstName("First" + i);
+            skier.setLastName("Last" + i);
+            skier.setCity("City" + random.nextInt(50));
+            skier.setDateOfBirth(LocalDate.now().minusYears(6 + random.nextInt(60)).minusDays(random.nextInt(365)));
+            TypeSubscription type = types[random.nextInt(types.length)];
+            LocalDate start = LocalDate.now().minusDays(random.nextInt(400));
+            skier.setSubscription(new Subscription(null, start, SubscriptionServicesImpl.computeEndDate(type, start),
+                    100f + random.nextInt(900), type));
+            newSkiers.add(skier);
+        }
+        skierIds = new ArrayList<>(skiers);
+        for (Skier skier : skierRepository.saveAll(newSkiers)) {
+            skierIds.add(skier.getNumSkier());
+        }
+
+        TypeCourse[] typeCourses = TypeCourse.values();
+        Support[] supports = Support.values();
+        List<Course> newCourses = new ArrayList<>(courses);
+        for (int i = 0; i < courses; i++) {
+            newCourses.add(new Course(null, 1 + random.nextInt(5), typeCourses[random.nextInt(typeCourses.length)],
+                    supports[random.nextInt(supports.length)], 50f + random.nextInt(200), 1 + random.nextInt(4), null));
+        }
+        courseIds = new ArrayList<>(courses);
+        for (Course course : courseRepository.saveAll(newCourses)) {
+            courseIds.add(course.getNumCourse());
+        }
+        individualCourseId = courseRepository.save(new Course(null, 1, TypeCourse.INDIVIDUAL, Support.SKI, 80f, 1, null))
+                .getNumCourse();
+        collectiveCourseId = courseRepository.save(new Course(null, 1, TypeCourse.COLLECTIVE_ADULT, Support.SKI, 60f, 2, null))
+                .getNumCourse();
+
+        // Up to 6 distinct skiers per course and week, 3 on average
+        for (Long numCourse : courseIds) {
+            for (int week = 1; week <= WEEKS; week++) {
+                List<Long> group = new ArrayList<>(6);
+                int seats = random.nextInt(7);
+                int first = random.nextInt(skierIds.size() - seats + 1);
+                for (int s = 0; s < seats; s++) {
+                    group.add(skierIds.get(first + s));
+                }
+                registrationRepository.batchInsert(group, numCourse, week);
+            }
+        }
+    }
+}
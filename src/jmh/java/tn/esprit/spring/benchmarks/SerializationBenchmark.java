@@ -0,0 +1,66 @@
+package tn.esprit.spring.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tn.esprit.spring.entities.Registration;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeSubscription;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to JSON serialization as done by the controllers, with the same date settings as
+ * the Spring Boot ObjectMapper.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private Skier skier;
+
+    private Subscription subscription;
+
+    @Setup
+    public void setup() {
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        subscription = new Subscription(1L, LocalDate.of(2024, 12, 1), LocalDate.of(2025, 12, 1), 780f, TypeSubscription.ANNUAL);
+        Set<Registration> registrations = new HashSet<>();
+        for (long i = 1; i <= 4; i++) {
+            registrations.add(new Registration(i, (int) i, null, null));
+        }
+        skier = new Skier(1L, "Marwen", "Ben Ali", LocalDate.of(1998, 3, 14), "Tunis", subscription, null, registrations);
+    }
+
+    @Benchmark
+    public byte[] skier() throws Exception {
+        return objectMapper.writeValueAsBytes(skier);
+    }
+
+    @Benchmark
+    public byte[] subscription() throws Exception {
+        return objectMapper.writeValueAsBytes(subscription);
+    }
+}
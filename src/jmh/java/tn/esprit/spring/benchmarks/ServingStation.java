@@ -0,0 +1,51 @@
+package tn.esprit.spring.benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The seeded station served over HTTP on a random port, with the request threads of the
+ * {@code threads} parameter: Tomcat's platform thread pool or virtual threads.
+ */
+@State(Scope.Benchmark)
+public class ServingStation extends SeededStation {
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    public HttpClient client;
+
+    public String baseUrl;
+
+    @Override
+    public void start() {
+        super.start();
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/api";
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @Override
+    protected WebApplicationType webApplicationType() {
+        return WebApplicationType.SERVLET;
+    }
+
+    @Override
+    protected List<String> arguments() {
+        List<String> arguments = super.arguments();
+        arguments.add("--server.port=0");
+        arguments.add("--server.tomcat.max-connections=4096");
+        arguments.add("--server.tomcat.accept-count=2048");
+        arguments.add("--ski.threads.virtual=" + "virtual".equals(threads));
+        return arguments;
+    }
+}
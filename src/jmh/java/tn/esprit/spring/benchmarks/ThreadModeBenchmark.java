@@ -0,0 +1,37 @@
+package tn.esprit.spring.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 2,000 concurrent clients reading skiers over HTTP, with the requests served by the platform
+ * thread pool or by virtual threads. Sample time reports throughput together with the
+ * p50/p90/p99/p99.9 latencies. The virtual mode needs a Java 21 runtime.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(2000)
+@Fork(value = 1, jvmArgsAppend = "-Xss256k")
+public class ThreadModeBenchmark {
+
+    @Benchmark
+    public int getSkier(ServingStation station) throws Exception {
+        Long numSkier = station.skierIds.get(ThreadLocalRandom.current().nextInt(station.skierIds.size()));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(station.baseUrl + "/skier/get/" + numSkier)).GET().build();
+        return station.client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
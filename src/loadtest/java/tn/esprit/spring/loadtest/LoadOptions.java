@@ -0,0 +1,110 @@
+package tn.esprit.spring.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Options of a load test run, given as {@code name=value} or {@code --name=value} arguments.
+ * Arguments the harness does not know, e.g. {@code --spring.datasource.url=...}, are passed to
+ * the application.
+ */
+final class LoadOptions {
+
+    int clients = 200;
+
+    Duration warmup = Duration.ofSeconds(10);
+
+    Duration duration = Duration.ofSeconds(60);
+
+    int skiers = 20_000;
+
+    int courses = 300;
+
+    int weeks = 20;
+
+    // Requests per endpoint out of the total of the weights
+    Map<TrafficMix.Endpoint, Integer> mix = TrafficMix.SATURDAY_RUSH;
+
+    // Already running server to drive, e.g. http://localhost:8088/api; the harness starts one otherwise
+    String url;
+
+    boolean seed = true;
+
+    String label = "saturday-rush";
+
+    Path output;
+
+    final List<String> applicationArguments = new ArrayList<>();
+
+    static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            String name = equals > 0 ? arg.substring(0, equals).replaceFirst("^--", "") : "";
+            String value = equals > 0 ? arg.substring(equals + 1) : "";
+            switch (name) {
+                case "clients":
+                    options.clients = Integer.parseInt(value);
+                    break;
+                case "warmup":
+                    options.warmup = Duration.ofSeconds(Long.parseLong(value));
+                    break;
+                case "duration":
+                    options.duration = Duration.ofSeconds(Long.parseLong(value));
+                    break;
+                case "skiers":
+                    options.skiers = Integer.parseInt(value);
+                    break;
+                case "courses":
+                    options.courses = Integer.parseInt(value);
+                    break;
+                case "mix":
+                    options.mix = mix(value);
+                    break;
+                case "url":
+                    options.url = value;
+                    break;
+                case "seed":
+                    options.seed = Boolean.parseBoolean(value);
+                    break;
+                case "label":
+                    options.label = value;
+                    break;
+                case "output":
+                    options.output = Paths.get(value);
+                    break;
+                default:
+                    options.applicationArguments.add(arg);
+            }
+        }
+        if (options.output == null) {
+            String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            options.output = Paths.get("target", "load-reports", options.label + "-" + stamp + ".txt");
+        }
+        return options;
+    }
+
+    // e.g. registration=20,skier=40,subscription=20,course=20
+    private static Map<TrafficMix.Endpoint, Integer> mix(String value) {
+        Map<TrafficMix.Endpoint, Integer> mix = new EnumMap<>(TrafficMix.Endpoint.class);
+        for (String entry : value.split(",")) {
+            String[] parts = entry.split(":|=");
+            mix.put(TrafficMix.Endpoint.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+        }
+        return mix;
+    }
+
+    @Override
+    public String toString() {
+        return "clients=" + clients + ", warmup=" + warmup.getSeconds() + "s, duration=" + duration.getSeconds()
+                + "s, skiers=" + skiers + ", courses=" + courses + ", mix=" + mix
+                + (url != null ? ", url=" + url : "") + (seed ? "" : ", no seeding");
+    }
+}
@@ -0,0 +1,123 @@
+package tn.esprit.spring.loadtest;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latencies and errors of the measured requests, per endpoint.
+ * <p>
+ * Each client records into its own {@link Recorder}, so recording takes no lock; the
+ * recorders are merged once the run is over and the percentiles are exact.
+ */
+final class LoadReport {
+
+    static final class Recorder {
+        private final Map<TrafficMix.Endpoint, long[]> latencies = new EnumMap<>(TrafficMix.Endpoint.class);
+        private final Map<TrafficMix.Endpoint, int[]> counts = new EnumMap<>(TrafficMix.Endpoint.class);
+        private final Map<TrafficMix.Endpoint, long[]> errors = new EnumMap<>(TrafficMix.Endpoint.class);
+
+        void record(TrafficMix.Endpoint endpoint, long nanos, boolean error) {
+            int[] count = counts.computeIfAbsent(endpoint, k -> new int[1]);
+            long[] values = latencies.computeIfAbsent(endpoint, k -> new long[1024]);
+            if (count[0] == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+                latencies.put(endpoint, values);
+            }
+            values[count[0]++] = nanos;
+            if (error) {
+                errors.computeIfAbsent(endpoint, k -> new long[1])[0]++;
+            }
+        }
+    }
+
+    private final LoadOptions options;
+
+    private final List<Recorder> recorders;
+
+    private final long elapsedNanos;
+
+    LoadReport(LoadOptions options, List<Recorder> recorders, long elapsedNanos) {
+        this.options = options;
+        this.recorders = recorders;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    String format() {
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        double seconds = elapsedNanos / 1e9;
+        out.printf("# %s: %s%n", options.label, options);
+        out.printf("# measured for %.1f s%n%n", seconds);
+        out.printf("%-14s %10s %10s %8s %10s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "errors", "error %", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        long[] all = new long[0];
+        long allErrors = 0;
+        for (TrafficMix.Endpoint endpoint : TrafficMix.Endpoint.values()) {
+            long[] latencies = merged(endpoint);
+            long errors = errors(endpoint);
+            if (latencies.length > 0) {
+                line(out, endpoint.name().toLowerCase(), latencies, errors, seconds);
+            }
+            all = concat(all, latencies);
+            allErrors += errors;
+        }
+        line(out, "all", all, allErrors, seconds);
+        out.flush();
+        return text.toString();
+    }
+
+    void write(Path output) throws IOException {
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        Files.writeString(output, format(), StandardCharsets.UTF_8);
+    }
+
+    private static void line(PrintWriter out, String name, long[] latencies, long errors, double seconds) {
+        Arrays.sort(latencies);
+        out.printf("%-14s %10d %10.1f %8d %10.2f %9.2f %9.2f %9.2f %9.2f%n", name, latencies.length,
+                latencies.length / seconds, errors, latencies.length > 0 ? 100.0 * errors / latencies.length : 0.0,
+                percentile(latencies, 0.50), percentile(latencies, 0.95), percentile(latencies, 0.99),
+                latencies.length > 0 ? latencies[latencies.length - 1] / 1e6 : 0.0);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, rank)] / 1e6;
+    }
+
+    private long[] merged(TrafficMix.Endpoint endpoint) {
+        long[] merged = new long[0];
+        for (Recorder recorder : recorders) {
+            int[] count = recorder.counts.get(endpoint);
+            if (count != null) {
+                merged = concat(merged, Arrays.copyOf(recorder.latencies.get(endpoint), count[0]));
+            }
+        }
+        return merged;
+    }
+
+    private long errors(TrafficMix.Endpoint endpoint) {
+        long errors = 0;
+        for (Recorder recorder : recorders) {
+            long[] count = recorder.errors.get(endpoint);
+            errors += count != null ? count[0] : 0;
+        }
+        return errors;
+    }
+
+    private static long[] concat(long[] first, long[] second) {
+        long[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
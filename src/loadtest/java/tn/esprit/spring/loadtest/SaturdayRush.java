@@ -0,0 +1,132 @@
+package tn.esprit.spring.loadtest;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import tn.esprit.spring.GestionStationSkiApplication;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test replaying the Saturday rush: many concurrent clients registering skiers, reading
+ * skiers and subscriptions and polling the course listing.
+ * <p>
+ * Unless {@code url} points to a running server, the application is started on a random
+ * port against an in-memory H2 database, then seeded through its API. Each client sends its
+ * next request as soon as the previous one is answered. Requests sent during the warmup are
+ * not measured. The per-endpoint throughput, latency percentiles and error rates are printed
+ * and written to {@code target/load-reports/<label>-<timestamp>.txt}.
+ * <p>
+ * Run with {@code mvn -Ploadtest -DskipTests verify -Dload.args="clients=200 duration=60"};
+ * see {@link LoadOptions} for the other arguments.
+ */
+public final class SaturdayRush {
+
+    private SaturdayRush() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+        ConfigurableApplicationContext context = options.url == null ? start(options) : null;
+        try {
+            String baseUrl = options.url != null ? options.url
+                    : "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/api";
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            Station station = new Station(client, baseUrl);
+            if (options.seed) {
+                station.seed(options.skiers, options.courses);
+            }
+            station.collectIds();
+            TrafficMix mix = new TrafficMix(baseUrl, station, options.weeks, options.mix);
+
+            LoadReport report = run(options, client, mix);
+            System.out.println();
+            System.out.print(report.format());
+            report.write(options.output);
+            System.out.println("Load report written to " + options.output.toAbsolutePath());
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(LoadOptions options) {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.datasource.hikari.maximum-pool-size=20",
+                "--server.port=0",
+                "--server.tomcat.threads.max=400",
+                "--server.tomcat.max-connections=8192",
+                "--logging.level.root=warn"));
+        // Later arguments win, so the application arguments of the run override the defaults
+        arguments.addAll(options.applicationArguments);
+        return new SpringApplicationBuilder(GestionStationSkiApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .run(arguments.toArray(new String[0]));
+    }
+
+    private static LoadReport run(LoadOptions options, HttpClient client, TrafficMix mix) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup.toNanos();
+        long end = measureFrom + options.duration.toNanos();
+        List<LoadReport.Recorder> recorders = new ArrayList<>(options.clients);
+        CountDownLatch done = new CountDownLatch(options.clients);
+        ExecutorService clients = Executors.newFixedThreadPool(options.clients);
+        System.out.printf("Driving %d clients for %d s after a %d s warmup%n", options.clients,
+                options.duration.getSeconds(), options.warmup.getSeconds());
+        for (int i = 0; i < options.clients; i++) {
+            LoadReport.Recorder recorder = new LoadReport.Recorder();
+            recorders.add(recorder);
+            clients.execute(() -> {
+                try {
+                    drive(client, mix, recorder, measureFrom, end);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        clients.shutdown();
+        clients.awaitTermination(1, TimeUnit.MINUTES);
+        return new LoadReport(options, recorders, end - measureFrom);
+    }
+
+    private static void drive(HttpClient client, TrafficMix mix, LoadReport.Recorder recorder,
+                              long measureFrom, long end) {
+        long now = System.nanoTime();
+        while (now < end) {
+            TrafficMix.Endpoint endpoint = mix.next();
+            HttpRequest request = mix.request(endpoint);
+            boolean error;
+            try {
+                error = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() >= 400;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                error = true;
+            }
+            long sent = now;
+            now = System.nanoTime();
+            if (sent >= measureFrom && now <= end) {
+                recorder.record(endpoint, now - sent, error);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package tn.esprit.spring.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeds a station through its own API (a CSV import of the skiers and their subscriptions,
+ * then the courses) and collects the ids the traffic mix picks from.
+ */
+final class Station {
+
+    private static final String[] TYPES = {"MONTHLY", "SEMESTRIEL", "ANNUAL"};
+
+    private static final String[] TYPE_COURSES = {"COLLECTIVE_CHILDREN", "COLLECTIVE_ADULT", "INDIVIDUAL"};
+
+    private static final String[] SUPPORTS = {"SKI", "SNOWBOARD"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HttpClient client;
+
+    private final String baseUrl;
+
+    final List<Long> skierIds = new ArrayList<>();
+
+    final List<Long> subscriptionIds = new ArrayList<>();
+
+    final List<Long> courseIds = new ArrayList<>();
+
+    Station(HttpClient client, String baseUrl) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+    }
+
+    void seed(int skiers, int courses) throws IOException, InterruptedException {
+        Random random = new Random(42);
+        StringBuilder csv = new StringBuilder("firstName,lastName,dateOfBirth,city,typeSub,startDate,price\n");
+        for (int i = 0; i < skiers; i++) {
+            csv.append("First").append(i).append(",Last").append(i).append(',')
+                    .append(LocalDate.now().minusYears(6 + random.nextInt(60)).minusDays(random.nextInt(365))).append(',')
+                    .append("City").append(random.nextInt(50)).append(',')
+                    .append(TYPES[random.nextInt(TYPES.length)]).append(',')
+                    .append(LocalDate.now().minusDays(random.nextInt(400))).append(',')
+                    .append(100 + random.nextInt(900)).append('\n');
+        }
+        JsonNode summary = send(HttpRequest.newBuilder(URI.create(baseUrl + "/skier/import"))
+                .header("Content-Type", "text/csv")
+                .POST(HttpRequest.BodyPublishers.ofString(csv.toString()))
+                .build());
+        System.out.println("Seeded skiers: " + summary);
+        for (int i = 0; i < courses; i++) {
+            String course = String.format("{\"level\":%d,\"typeCourse\":\"%s\",\"support\":\"%s\",\"price\":%d,\"timeSlot\":%d}",
+                    1 + random.nextInt(5), TYPE_COURSES[random.nextInt(TYPE_COURSES.length)],
+                    SUPPORTS[random.nextInt(SUPPORTS.length)], 50 + random.nextInt(200), 1 + random.nextInt(4));
+            send(HttpRequest.newBuilder(URI.create(baseUrl + "/course/add"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(course))
+                    .build());
+        }
+    }
+
+    /**
+     * Reads the skiers page by page and the courses.
+     */
+    void collectIds() throws IOException, InterruptedException {
+        String cursor = null;
+        do {
+            JsonNode page = send(HttpRequest.newBuilder(URI.create(baseUrl + "/skier/all?size=500"
+                    + (cursor != null ? "&cursor=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8) : ""))).GET().build());
+            for (JsonNode skier : page.get("items")) {
+                skierIds.add(skier.get("numSkier").asLong());
+                JsonNode subscription = skier.get("subscription");
+                if (subscription != null && !subscription.isNull()) {
+                    subscriptionIds.add(subscription.get("numSub").asLong());
+                }
+            }
+            cursor = page.get("next").isNull() ? null : page.get("next").asText();
+        } while (cursor != null);
+        for (JsonNode course : send(HttpRequest.newBuilder(URI.create(baseUrl + "/course/all")).GET().build())) {
+            courseIds.add(course.get("numCourse").asLong());
+        }
+        if (skierIds.isEmpty() || subscriptionIds.isEmpty() || courseIds.isEmpty()) {
+            throw new IllegalStateException("The station has no skiers, subscriptions or courses to drive");
+        }
+    }
+
+    private JsonNode send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException(request.uri() + " answered " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body());
+    }
+}
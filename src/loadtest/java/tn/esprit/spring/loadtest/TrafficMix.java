@@ -0,0 +1,106 @@
+package tn.esprit.spring.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The requests a client picks from, with the weights of the mix.
+ */
+final class TrafficMix {
+
+    enum Endpoint {
+        // Registration of a skier to a course for a week
+        REGISTRATION,
+        // Skier detail
+        SKIER,
+        // Subscription detail
+        SUBSCRIPTION,
+        // Course listing, as polled by the kiosks
+        COURSE
+    }
+
+    static final Map<Endpoint, Integer> SATURDAY_RUSH = new EnumMap<>(Map.of(
+            Endpoint.REGISTRATION, 20,
+            Endpoint.SKIER, 35,
+            Endpoint.SUBSCRIPTION, 15,
+            Endpoint.COURSE, 30));
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final String baseUrl;
+
+    private final List<Long> skierIds;
+
+    private final List<Long> subscriptionIds;
+
+    private final List<Long> courseIds;
+
+    private final int weeks;
+
+    private final Endpoint[] endpoints;
+
+    private final int[] cumulativeWeights;
+
+    TrafficMix(String baseUrl, Station station, int weeks, Map<Endpoint, Integer> weights) {
+        this.baseUrl = baseUrl;
+        this.skierIds = station.skierIds;
+        this.subscriptionIds = station.subscriptionIds;
+        this.courseIds = station.courseIds;
+        this.weeks = weeks;
+        this.endpoints = weights.keySet().toArray(new Endpoint[0]);
+        this.cumulativeWeights = new int[endpoints.length];
+        int total = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            total += weights.get(endpoints[i]);
+            cumulativeWeights[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("The traffic mix has no weight");
+        }
+    }
+
+    Endpoint next() {
+        int pick = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (pick >= cumulativeWeights[i]) {
+            i++;
+        }
+        return endpoints[i];
+    }
+
+    HttpRequest request(Endpoint endpoint) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (endpoint) {
+            case REGISTRATION:
+                return HttpRequest.newBuilder(URI.create(baseUrl + "/registration/registration/addAndAssignToSkierAndCourse/"
+                                + pick(skierIds, random) + "/" + pick(courseIds, random)))
+                        .timeout(TIMEOUT)
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString("{\"numWeek\":" + (1 + random.nextInt(weeks)) + "}"))
+                        .build();
+            case SKIER:
+                return get("/skier/get/" + pick(skierIds, random));
+            case SUBSCRIPTION:
+                return get("/subscription/get/" + pick(subscriptionIds, random));
+            default:
+                return HttpRequest.newBuilder(URI.create(baseUrl + "/course/all"))
+                        .timeout(TIMEOUT)
+                        .header("Accept-Encoding", "gzip")
+                        .GET()
+                        .build();
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(TIMEOUT).GET().build();
+    }
+
+    private static Long pick(List<Long> ids, ThreadLocalRandom random) {
+        return ids.get(random.nextInt(ids.size()));
+    }
+}
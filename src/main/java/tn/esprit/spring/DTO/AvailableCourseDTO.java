@@ -0,0 +1,35 @@
+package tn.esprit.spring.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import tn.esprit.spring.entities.Support;
+import tn.esprit.spring.entities.TypeCourse;
+
+/**
+ * A course a skier can still join for a week. {@code seatsLeft} is null for individual
+ * courses, which have no capacity.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailableCourseDTO {
+
+    private Long numCourse;
+
+    private int level;
+
+    private TypeCourse typeCourse;
+
+    private Support support;
+
+    private Float price;
+
+    private int timeSlot;
+
+    private int numWeek;
+
+    private Integer seatsLeft;
+}
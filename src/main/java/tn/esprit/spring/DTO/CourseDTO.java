@@ -0,0 +1,34 @@
+package tn.esprit.spring.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Support;
+import tn.esprit.spring.entities.TypeCourse;
+
+/**
+ * Immutable copy of a course, as cached by the course service. Unlike the entity, it is never
+ * attached to a persistence context and can be shared between threads; a registration is
+ * linked to the course through a reference taken from its id.
+ */
+@Getter
+@AllArgsConstructor
+public final class CourseDTO {
+
+    private final Long numCourse;
+
+    private final int level;
+
+    private final TypeCourse typeCourse;
+
+    private final Support support;
+
+    private final Float price;
+
+    private final int timeSlot;
+
+    public static CourseDTO of(Course course) {
+        return new CourseDTO(course.getNumCourse(), course.getLevel(), course.getTypeCourse(), course.getSupport(),
+                course.getPrice(), course.getTimeSlot());
+    }
+}
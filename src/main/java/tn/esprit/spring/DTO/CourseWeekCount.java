@@ -0,0 +1,13 @@
+package tn.esprit.spring.DTO;
+
+/**
+ * Projection of the number of registrations of a course for a given week.
+ */
+public interface CourseWeekCount {
+
+    Long getNumCourse();
+
+    Integer getNumWeek();
+
+    Long getTotal();
+}
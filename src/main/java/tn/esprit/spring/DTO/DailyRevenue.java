@@ -0,0 +1,19 @@
+package tn.esprit.spring.DTO;
+
+import tn.esprit.spring.entities.TypeSubscription;
+
+import java.time.LocalDate;
+
+/**
+ * Projection of the number of subscriptions of one type started on a day and their total price.
+ */
+public interface DailyRevenue {
+
+    LocalDate getStartDate();
+
+    TypeSubscription getTypeSub();
+
+    Long getTotal();
+
+    Double getRevenue();
+}
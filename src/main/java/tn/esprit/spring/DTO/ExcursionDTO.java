@@ -0,0 +1,20 @@
+package tn.esprit.spring.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A row of the excursion join table: the skier went down the piste.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExcursionDTO {
+
+    private Long numSkier;
+
+    private Long numPiste;
+}
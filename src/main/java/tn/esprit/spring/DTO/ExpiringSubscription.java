@@ -0,0 +1,18 @@
+package tn.esprit.spring.DTO;
+
+import java.time.LocalDate;
+
+/**
+ * Projection of a subscription ending before a given date, with the name of its skier
+ * (null when no skier holds it).
+ */
+public interface ExpiringSubscription {
+
+    Long getNumSub();
+
+    LocalDate getEndDate();
+
+    String getFirstName();
+
+    String getLastName();
+}
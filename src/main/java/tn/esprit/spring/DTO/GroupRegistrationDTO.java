@@ -0,0 +1,25 @@
+package tn.esprit.spring.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupRegistrationDTO {
+
+    @NotEmpty(message = "Skier list cannot be empty")
+    private List<Long> numSkiers;
+
+    @NotNull(message = "Course cannot be null")
+    private Long numCourse;
+
+    private int numWeek;
+}
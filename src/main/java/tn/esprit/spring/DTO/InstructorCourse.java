@@ -0,0 +1,13 @@
+package tn.esprit.spring.DTO;
+
+import tn.esprit.spring.entities.Course;
+
+/**
+ * Projection of a course taught by an instructor.
+ */
+public interface InstructorCourse {
+
+    Long getNumInstructor();
+
+    Course getCourse();
+}
@@ -0,0 +1,36 @@
+package tn.esprit.spring.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import tn.esprit.spring.entities.Instructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Read model of an instructor with the courses they teach, built from a fixed number of
+ * queries instead of the lazy collection of the entity.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class InstructorDTO {
+
+    private Long numInstructor;
+
+    private String firstName;
+
+    private String lastName;
+
+    private LocalDate dateOfHire;
+
+    private List<CourseDTO> courses;
+
+    public static InstructorDTO of(Instructor instructor, List<CourseDTO> courses) {
+        return new InstructorDTO(instructor.getNumInstructor(), instructor.getFirstName(), instructor.getLastName(),
+                instructor.getDateOfHire(), courses);
+    }
+}
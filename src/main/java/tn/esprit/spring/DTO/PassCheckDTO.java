@@ -0,0 +1,29 @@
+package tn.esprit.spring.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Answer to a lift gate: whether the skier's subscription covers the day, and its dates when
+ * the skier has one.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PassCheckDTO {
+
+    private Long numSkier;
+
+    private LocalDate day;
+
+    private boolean valid;
+
+    private LocalDate startDate;
+
+    private LocalDate endDate;
+}
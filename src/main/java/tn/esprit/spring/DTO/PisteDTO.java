@@ -0,0 +1,30 @@
+package tn.esprit.spring.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import tn.esprit.spring.entities.Color;
+import tn.esprit.spring.entities.Piste;
+
+/**
+ * Immutable copy of a piste, as cached by the piste service and served by /piste/get. Like the
+ * JSON of the entity, it leaves out the skiers of the piste.
+ */
+@Getter
+@AllArgsConstructor
+public final class PisteDTO {
+
+    private final Long numPiste;
+
+    private final String namePiste;
+
+    private final Color color;
+
+    private final int length;
+
+    private final int slope;
+
+    public static PisteDTO of(Piste piste) {
+        return new PisteDTO(piste.getNumPiste(), piste.getNamePiste(), piste.getColor(), piste.getLength(),
+                piste.getSlope());
+    }
+}
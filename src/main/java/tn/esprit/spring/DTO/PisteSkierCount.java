@@ -0,0 +1,11 @@
+package tn.esprit.spring.DTO;
+
+/**
+ * Projection of the number of skiers who went down a piste.
+ */
+public interface PisteSkierCount {
+
+    Long getNumPiste();
+
+    Long getTotal();
+}
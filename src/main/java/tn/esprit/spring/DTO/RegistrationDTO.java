@@ -0,0 +1,24 @@
+package tn.esprit.spring.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegistrationDTO {
+
+    private Long numRegistration;
+
+    private int numWeek;
+
+    private Long numCourse;
+
+    public static RegistrationDTO of(SkierRegistration registration) {
+        return new RegistrationDTO(registration.getNumRegistration(), registration.getNumWeek(),
+                registration.getNumCourse());
+    }
+}
@@ -0,0 +1,5 @@
+package tn.esprit.spring.DTO;
+
+public enum RegistrationStatus {
+    ACCEPTED, FULL, WRONG_AGE, DUPLICATE, UNKNOWN_SKIER
+}
@@ -0,0 +1,29 @@
+package tn.esprit.spring.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * State of a queued registration request. {@code status} is set once the request has been
+ * processed.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegistrationTicketDTO {
+
+    private String ticket;
+
+    private Long numSkier;
+
+    private Long numCourse;
+
+    private int numWeek;
+
+    private TicketState state;
+
+    private RegistrationStatus status;
+}
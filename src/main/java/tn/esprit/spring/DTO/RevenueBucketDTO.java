@@ -0,0 +1,29 @@
+package tn.esprit.spring.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import tn.esprit.spring.entities.TypeSubscription;
+
+import java.time.LocalDate;
+
+/**
+ * Subscriptions of one type started in a period (day, week, month or season), bounds included.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevenueBucketDTO {
+
+    private TypeSubscription typeSub;
+
+    private LocalDate periodStart;
+
+    private LocalDate periodEnd;
+
+    private long subscriptions;
+
+    private double revenue;
+}
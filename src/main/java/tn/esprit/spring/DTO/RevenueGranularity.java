@@ -0,0 +1,5 @@
+package tn.esprit.spring.DTO;
+
+public enum RevenueGranularity {
+    DAY, WEEK, MONTH, SEASON
+}
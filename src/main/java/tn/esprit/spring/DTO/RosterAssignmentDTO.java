@@ -0,0 +1,17 @@
+package tn.esprit.spring.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RosterAssignmentDTO {
+
+    private Long numInstructor;
+
+    private Long numCourse;
+}
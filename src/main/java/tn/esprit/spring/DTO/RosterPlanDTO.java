@@ -0,0 +1,36 @@
+package tn.esprit.spring.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * A conflict-free assignment of the planned courses: no instructor teaches two courses of the
+ * same time slot in a week both have registrations, nor a support it does not teach.
+ * {@code unassigned} lists the planned courses no instructor could take. {@code maxLoad} is
+ * the most courses an instructor ends up with, kept courses included.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RosterPlanDTO {
+
+    private List<RosterAssignmentDTO> assignments;
+
+    private List<Long> unassigned;
+
+    private int plannedCourses;
+
+    private int maxLoad;
+
+    // Randomized searches run within the time budget
+    private long attempts;
+
+    private long elapsedMs;
+
+    private boolean applied;
+}
@@ -0,0 +1,32 @@
+package tn.esprit.spring.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import tn.esprit.spring.entities.Support;
+
+import javax.validation.constraints.Positive;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Options of a roster planning. With {@code replace}, every course is planned again;
+ * otherwise only the courses without an instructor are. Instructors missing from
+ * {@code supports} teach the supports of the courses they have, or any support when they
+ * have none.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RosterRequestDTO {
+
+    private boolean replace;
+
+    // Defaults to ski.roster.time-budget-ms
+    @Positive(message = "The time budget must be positive")
+    private Long timeBudgetMs;
+
+    private Map<Long, Set<Support>> supports;
+}
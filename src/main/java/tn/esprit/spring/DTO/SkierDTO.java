@@ -0,0 +1,41 @@
+package tn.esprit.spring.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.Subscription;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Read model of a skier with its subscription and registrations, built from a fixed number
+ * of queries instead of the lazy collections of the entity.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SkierDTO {
+
+    private Long numSkier;
+
+    private String firstName;
+
+    private String lastName;
+
+    private LocalDate dateOfBirth;
+
+    private String city;
+
+    private Subscription subscription;
+
+    private List<RegistrationDTO> registrations;
+
+    public static SkierDTO of(Skier skier, List<RegistrationDTO> registrations) {
+        return new SkierDTO(skier.getNumSkier(), skier.getFirstName(), skier.getLastName(), skier.getDateOfBirth(),
+                skier.getCity(), skier.getSubscription(), registrations);
+    }
+}
@@ -0,0 +1,25 @@
+package tn.esprit.spring.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Outcome of a CSV import. {@code rejectedLines} lists the first rejected line numbers
+ * (1 being the header), {@code rejected} counts all of them.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SkierImportSummaryDTO {
+
+    private long imported;
+
+    private long rejected;
+
+    private List<Long> rejectedLines;
+}
@@ -0,0 +1,15 @@
+package tn.esprit.spring.DTO;
+
+import java.time.LocalDate;
+
+/**
+ * Projection of the validity dates of a skier's subscription.
+ */
+public interface SkierPass {
+
+    Long getNumSkier();
+
+    LocalDate getStartDate();
+
+    LocalDate getEndDate();
+}
@@ -0,0 +1,15 @@
+package tn.esprit.spring.DTO;
+
+/**
+ * Projection of a registration with the ids of its skier and course.
+ */
+public interface SkierRegistration {
+
+    Long getNumSkier();
+
+    Long getNumRegistration();
+
+    Integer getNumWeek();
+
+    Long getNumCourse();
+}
@@ -0,0 +1,15 @@
+package tn.esprit.spring.DTO;
+
+import tn.esprit.spring.entities.TypeSubscription;
+
+/**
+ * Projection of the number of subscriptions and their total price for one type.
+ */
+public interface SubscriptionRevenue {
+
+    TypeSubscription getTypeSub();
+
+    Long getTotal();
+
+    Double getRevenue();
+}
@@ -0,0 +1,5 @@
+package tn.esprit.spring.DTO;
+
+public enum WaitlistState {
+    WAITING, REGISTERED, WRONG_AGE, NOT_WAITING
+}
@@ -0,0 +1,29 @@
+package tn.esprit.spring.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Where a skier stands for a course week. {@code position} (1 for the next skier promoted)
+ * and {@code waiting} are only set while the skier is {@link WaitlistState#WAITING}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaitlistStatusDTO {
+
+    private Long numSkier;
+
+    private Long numCourse;
+
+    private int numWeek;
+
+    private WaitlistState state;
+
+    private Integer position;
+
+    private Integer waiting;
+}
@@ -0,0 +1,19 @@
+package tn.esprit.spring.configs;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caches of the reference data (courses, pistes, instructors), backed by Caffeine.
+ * Size, TTL and statistics are set by {@code spring.cache.caffeine.spec}.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String COURSES = "courses";
+
+    public static final String PISTES = "pistes";
+
+    public static final String INSTRUCTORS = "instructors";
+}
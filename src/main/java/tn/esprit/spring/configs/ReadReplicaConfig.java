@@ -0,0 +1,86 @@
+package tn.esprit.spring.configs;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Opt-in read replicas ({@code ski.datasource.replicas.urls}): read-only service transactions
+ * are spread over the replicas that are less than {@code ski.datasource.replicas.max-lag-ms}
+ * behind, everything else goes to the primary of {@code spring.datasource.*}.
+ * <p>
+ * Every route has its own Hikari pool, named {@code primary} and {@code replica-1},
+ * {@code replica-2}..., so the {@code hikaricp.*} metrics are tagged per route. The replicas
+ * take the primary's {@code spring.datasource.hikari.*} settings and are opened read-only.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "ski.datasource.replicas.urls")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+        return primary;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                               MeterRegistry meterRegistry,
+                                               @Value("${ski.datasource.replicas.urls}") String[] urls,
+                                               @Value("${ski.datasource.replicas.username:#{null}}") String username,
+                                               @Value("${ski.datasource.replicas.password:#{null}}") String password,
+                                               @Value("${ski.datasource.replicas.max-lag-ms:5000}") long maxLagMillis) {
+        Map<String, HikariDataSource> replicas = new LinkedHashMap<>();
+        for (String url : urls) {
+            HikariDataSource replica = new HikariDataSource();
+            primaryDataSource.copyStateTo(replica);
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(username != null ? username : properties.determineUsername());
+            replica.setPassword(password != null ? password : properties.determinePassword());
+            replica.setReadOnly(true);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.put(replica.getPoolName(), replica);
+        }
+        log.info("Read-only transactions routed to {} while less than {} ms behind", replicas.keySet(), maxLagMillis);
+        return new ReplicaLagMonitor(primaryDataSource, replicas, maxLagMillis, Clock.systemUTC(), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaLagMonitor replicaLagMonitor,
+                                 MeterRegistry meterRegistry) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primaryDataSource, replicaLagMonitor, meterRegistry);
+        routing.afterPropertiesSet();
+        // The real connection is only taken on the first statement, once the transaction is flagged read-only
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        // With open-in-view, a session otherwise keeps the connection of its first transaction, replica
+        // or primary, for the rest of the request
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
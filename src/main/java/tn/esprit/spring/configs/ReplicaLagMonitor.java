@@ -0,0 +1,116 @@
+package tn.esprit.spring.configs;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures how far each read replica is behind the primary, and hands out the replicas that
+ * are close enough to read from, in turn.
+ * <p>
+ * The primary stamps the {@code replica_heartbeat} row with the current time; the lag of a
+ * replica is the age of the stamp replicated to it. A replica that can't be queried, or lags by
+ * more than the limit, gets no reads until a later check finds it caught up.
+ */
+@Slf4j
+public class ReplicaLagMonitor implements DisposableBean {
+
+    private static final String STAMP = "update replica_heartbeat set beat = ? where id = 1";
+
+    private static final String READ = "select beat from replica_heartbeat where id = 1";
+
+    private final JdbcTemplate primary;
+
+    private final Map<String, HikariDataSource> replicas;
+
+    private final long maxLagMillis;
+
+    private final Clock clock;
+
+    // Last lag measured of each replica, NaN when it could not be measured
+    private final Map<String, Double> lagMillis = new ConcurrentHashMap<>();
+
+    private volatile String[] readable = new String[0];
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param replicas pools of the replicas by pool name, closed with the monitor
+     */
+    public ReplicaLagMonitor(DataSource primary, Map<String, HikariDataSource> replicas, long maxLagMillis,
+                             Clock clock, MeterRegistry meterRegistry) {
+        this.primary = new JdbcTemplate(primary);
+        this.replicas = Collections.unmodifiableMap(new LinkedHashMap<>(replicas));
+        this.maxLagMillis = maxLagMillis;
+        this.clock = clock;
+        for (String name : replicas.keySet()) {
+            lagMillis.put(name, Double.NaN);
+            Gauge.builder("datasource.replica.lag", lagMillis, lags -> lags.get(name))
+                    .tag("pool", name)
+                    .baseUnit("milliseconds")
+                    .description("How far the replica is behind the primary, NaN when it can't be reached")
+                    .register(meterRegistry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ski.datasource.replicas.heartbeat-ms:1000}")
+    public synchronized void check() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        try {
+            primary.update(STAMP, now);
+        } catch (RuntimeException ex) {
+            // The stamps on the replicas age, so they stop getting reads as well
+            log.warn("Replica heartbeat not written on the primary: {}", ex.getMessage());
+        }
+        List<String> caughtUp = new ArrayList<>();
+        replicas.forEach((name, replica) -> {
+            double lag;
+            try {
+                LocalDateTime beat = new JdbcTemplate(replica).queryForObject(READ, LocalDateTime.class);
+                lag = Math.max(0, Duration.between(beat, now).toMillis());
+            } catch (RuntimeException ex) {
+                log.warn("Lag of replica {} not measured: {}", name, ex.getMessage());
+                lag = Double.NaN;
+            }
+            lagMillis.put(name, lag);
+            if (lag <= maxLagMillis) {
+                caughtUp.add(name);
+            }
+        });
+        if (caughtUp.size() != readable.length) {
+            log.info("Reading from replicas {} of {}", caughtUp, replicas.keySet());
+        }
+        readable = caughtUp.toArray(new String[0]);
+    }
+
+    /** Pool name of the replica to read from next, or null when they all lag too much. */
+    public String nextReplica() {
+        String[] names = readable;
+        return names.length == 0 ? null : names[Math.floorMod(next.getAndIncrement(), names.length)];
+    }
+
+    public Map<String, HikariDataSource> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public void destroy() {
+        replicas.values().forEach(HikariDataSource::close);
+    }
+}
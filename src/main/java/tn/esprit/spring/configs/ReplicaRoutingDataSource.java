@@ -0,0 +1,69 @@
+package tn.esprit.spring.configs;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sends the connections of read-only service transactions to a replica, and all others to
+ * the primary.
+ * <p>
+ * Only transactions started by a {@code @Transactional(readOnly = true)} method of the service
+ * layer go to a replica: Spring Data repositories are read-only by default, and a lookup
+ * followed by a save in a non-transactional service method must read the primary. When every
+ * replica lags too much, those transactions fall back to the primary too.
+ * <p>
+ * The route is decided when the connection is asked for, so this must be wrapped in a lazy
+ * connection proxy: the read-only flag of the transaction is only set after it has begun.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    static final String SERVICES = "tn.esprit.spring.services.";
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Counter> routed = new ConcurrentHashMap<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaLagMonitor lagMonitor, MeterRegistry meterRegistry) {
+        this.lagMonitor = lagMonitor;
+        this.meterRegistry = meterRegistry;
+        Map<Object, Object> targets = new HashMap<>(lagMonitor.getReplicas());
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!isReadOnlyServiceTransaction()) {
+            return route(PRIMARY, "write");
+        }
+        String replica = lagMonitor.nextReplica();
+        return replica != null ? route(replica, "read") : route(PRIMARY, "lag");
+    }
+
+    static boolean isReadOnlyServiceTransaction() {
+        String name = TransactionSynchronizationManager.getCurrentTransactionName();
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && name != null && name.startsWith(SERVICES);
+    }
+
+    private String route(String pool, String reason) {
+        routed.computeIfAbsent(pool + '/' + reason, key -> Counter.builder("datasource.routed.connections")
+                .tag("route", pool)
+                .tag("reason", reason)
+                .description("Connections per pool and reason: write (outside read-only service transactions), read, or lag")
+                .register(meterRegistry)).increment();
+        return pool;
+    }
+}
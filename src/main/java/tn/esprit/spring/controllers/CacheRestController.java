@@ -0,0 +1,41 @@
+package tn.esprit.spring.controllers;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.web.bind.annotation.*;
+import tn.esprit.spring.DTO.CacheStatsDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Tag(name = "\uD83D\uDCE6 Cache Management")
+@RestController
+@RequestMapping("/cache")
+@RequiredArgsConstructor
+public class CacheRestController {
+
+    private final CacheManager cacheManager;
+
+    @Operation(description = "Hit/miss statistics of the reference data caches")
+    @GetMapping("/stats")
+    public List<CacheStatsDTO> getStats() {
+        List<CacheStatsDTO> stats = new ArrayList<>();
+        for (String name : cacheManager.getCacheNames()) {
+            CaffeineCache cache = (CaffeineCache) cacheManager.getCache(name);
+            CacheStats cacheStats = cache.getNativeCache().stats();
+            stats.add(new CacheStatsDTO(name, cache.getNativeCache().estimatedSize(), cacheStats.hitCount(),
+                    cacheStats.missCount(), cacheStats.hitRate(), cacheStats.evictionCount()));
+        }
+        return stats;
+    }
+
+    @Operation(description = "Empty all reference data caches")
+    @DeleteMapping("/clear")
+    public void clear() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+}
@@ -4,9 +4,18 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
+import tn.esprit.spring.DTO.AvailableCourseDTO;
+import tn.esprit.spring.DTO.CourseDTO;
 import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Support;
 import tn.esprit.spring.entities.TypeCourse;
 import tn.esprit.spring.services.ICourseServices;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tn.esprit.spring.DTO.KeysetPage;
+import org.springframework.http.HttpStatus;
 
 import java.util.List;
 
@@ -25,9 +34,29 @@ public class CourseRestController {
     }
 
     @Operation(description = "Retrieve all Courses")
-    @GetMapping("/all")
-    public List<Course> getAllCourses(){
-        return courseServices.retrieveAllCourses();
+    @GetMapping(value = "/all", params = {"!size", "!cursor"})
+    public ResponseEntity<byte[]> getAllCourses(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // Serialized once per change; polls sending the ETag back get a 304
+        return courseServices.retrieveAllCoursesSnapshot().response(acceptEncoding);
+    }
+
+    @Operation(description = "Retrieve a page of Courses")
+    @GetMapping(value = "/all", params = "size")
+    public ResponseEntity<KeysetPage<Course>> getCoursesPage(@RequestParam(value = "cursor", required = false) String cursor,
+                                                             @RequestParam("size") Integer size) {
+        try {
+            return ResponseEntity.ok(courseServices.retrieveCoursesPage(cursor, size));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+    }
+
+    @Operation(description = "Stream all Courses as NDJSON")
+    @GetMapping(value = "/all", params = {"!size", "!cursor"}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllCourses() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(courseServices::exportAllCourses);
     }
 
     @Operation(description = "Update Course ")
@@ -36,9 +65,28 @@ public class CourseRestController {
         return  courseServices.updateCourse(course);
     }
 
+    @Operation(description = "Courses a Skier can still join, per week, for a support and optionally a level")
+    @GetMapping("/available/{id-skier}")
+    public ResponseEntity<List<AvailableCourseDTO>> getAvailableCourses(@PathVariable("id-skier") Long numSkier,
+                                                                        @RequestParam("support") Support support,
+                                                                        @RequestParam(value = "level", required = false) Integer level,
+                                                                        @RequestParam("fromWeek") int fromWeek,
+                                                                        @RequestParam("toWeek") int toWeek) {
+        List<AvailableCourseDTO> courses;
+        try {
+            courses = courseServices.findAvailableCourses(numSkier, support, level, fromWeek, toWeek);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        if (courses == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+        return ResponseEntity.ok(courses);
+    }
+
     @Operation(description = "Retrieve Course by Id")
     @GetMapping("/get/{id-course}")
-    public Course getById(@PathVariable("id-course") Long numCourse){
+    public CourseDTO getById(@PathVariable("id-course") Long numCourse){
         return courseServices.retrieveCourse(numCourse);
     }
 
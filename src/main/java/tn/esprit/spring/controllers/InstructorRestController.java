@@ -6,7 +6,17 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 import tn.esprit.spring.entities.Instructor;
 import tn.esprit.spring.services.IInstructorServices;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tn.esprit.spring.DTO.InstructorDTO;
+import tn.esprit.spring.DTO.KeysetPage;
+import tn.esprit.spring.DTO.RosterPlanDTO;
+import tn.esprit.spring.DTO.RosterRequestDTO;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 
+import javax.validation.Valid;
 import java.util.List;
 
 @Tag(name = "\uD83D\uDC69\u200D\uD83C\uDFEB Instructor Management")
@@ -27,12 +37,43 @@ public class InstructorRestController {
     public Instructor addAndAssignToInstructor(@RequestBody Instructor instructor, @PathVariable("numCourse")Long numCourse){
         return  instructorServices.addInstructorAndAssignToCourse(instructor,numCourse);
     }
+    @Operation(description = "Plan a conflict-free assignment of Instructors to Courses; apply=true writes it")
+    @PostMapping("/roster")
+    public ResponseEntity<RosterPlanDTO> planRoster(@Valid @RequestBody(required = false) RosterRequestDTO request,
+                                                    @RequestParam(value = "apply", defaultValue = "false") boolean apply) {
+        try {
+            return ResponseEntity.ok(instructorServices.planRoster(request != null ? request : new RosterRequestDTO(), apply));
+        } catch (DataIntegrityViolationException ex) {
+            // A course got an instructor while the roster was planned
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(null);
+        }
+    }
+
     @Operation(description = "Retrieve all Instructors")
-    @GetMapping("/all")
-    public List<Instructor> getAllInstructors(){
+    @GetMapping(value = "/all", params = {"!size", "!cursor"})
+    public List<InstructorDTO> getAllInstructors(){
         return instructorServices.retrieveAllInstructors();
     }
 
+    @Operation(description = "Retrieve a page of Instructors")
+    @GetMapping(value = "/all", params = "size")
+    public ResponseEntity<KeysetPage<InstructorDTO>> getInstructorsPage(@RequestParam(value = "cursor", required = false) String cursor,
+                                                                        @RequestParam("size") Integer size) {
+        try {
+            return ResponseEntity.ok(instructorServices.retrieveInstructorsPage(cursor, size));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+    }
+
+    @Operation(description = "Stream all Instructors as NDJSON")
+    @GetMapping(value = "/all", params = {"!size", "!cursor"}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllInstructors() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(instructorServices::exportAllInstructors);
+    }
+
     @Operation(description = "Update Instructor ")
     @PutMapping("/update")
     public Instructor updateInstructor(@RequestBody Instructor Instructor){
@@ -41,7 +82,7 @@ public class InstructorRestController {
 
     @Operation(description = "Retrieve Instructor by Id")
     @GetMapping("/get/{id-instructor}")
-    public Instructor getById(@PathVariable("id-instructor") Long numInstructor){
+    public InstructorDTO getById(@PathVariable("id-instructor") Long numInstructor){
         return instructorServices.retrieveInstructor(numInstructor);
     }
 
@@ -6,6 +6,14 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 import tn.esprit.spring.entities.Piste;
 import tn.esprit.spring.services.IPisteServices;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tn.esprit.spring.DTO.KeysetPage;
+import tn.esprit.spring.DTO.PisteDTO;
+import tn.esprit.spring.DTO.PisteSkierCount;
+import org.springframework.http.HttpStatus;
 
 import java.util.List;
 
@@ -22,18 +30,50 @@ public class PisteRestController {
     public Piste addPiste(@RequestBody Piste piste){
         return  pisteServices.addPiste(piste);
     }
-    @Operation(description = "Retrieve all Pistes")
-    @GetMapping("/all")
-    public List<Piste> getAllPistes(){
-        return pisteServices.retrieveAllPistes();
+    @Operation(description = "Retrieve all Pistes, without their Skiers (see /piste/skiers/count)")
+    @GetMapping(value = "/all", params = {"!size", "!cursor"})
+    public ResponseEntity<byte[]> getAllPistes(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // Serialized once per change; polls sending the ETag back get a 304
+        return pisteServices.retrieveAllPistesSnapshot().response(acceptEncoding);
     }
 
-    @Operation(description = "Retrieve Piste by Id")
+    @Operation(description = "Retrieve a page of Pistes, without their Skiers")
+    @GetMapping(value = "/all", params = "size")
+    public ResponseEntity<KeysetPage<Piste>> getPistesPage(@RequestParam(value = "cursor", required = false) String cursor,
+                                                           @RequestParam("size") Integer size) {
+        try {
+            return ResponseEntity.ok(pisteServices.retrievePistesPage(cursor, size));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+    }
+
+    @Operation(description = "Stream all Pistes as NDJSON, without their Skiers")
+    @GetMapping(value = "/all", params = {"!size", "!cursor"}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllPistes() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(pisteServices::exportAllPistes);
+    }
+
+    @Operation(description = "Retrieve Piste by Id, without its Skiers (see /piste/skiers/count/{id-piste})")
     @GetMapping("/get/{id-piste}")
-    public Piste getById(@PathVariable("id-piste") Long numPiste){
+    public PisteDTO getById(@PathVariable("id-piste") Long numPiste){
         return pisteServices.retrievePiste(numPiste);
     }
 
+    @Operation(description = "Number of Skiers per Piste")
+    @GetMapping("/skiers/count")
+    public List<PisteSkierCount> getSkierCounts() {
+        return pisteServices.retrieveSkierCounts();
+    }
+
+    @Operation(description = "Number of Skiers of a Piste")
+    @GetMapping("/skiers/count/{id-piste}")
+    public long countSkiers(@PathVariable("id-piste") Long numPiste) {
+        return pisteServices.countSkiers(numPiste);
+    }
+
     @Operation(description = "Delete Piste by Id")
     @DeleteMapping("/delete/{id-piste}")
     public void deleteById(@PathVariable("id-piste") Long numPiste){
@@ -3,13 +3,27 @@ package tn.esprit.spring.controllers;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import tn.esprit.spring.DTO.GroupRegistrationDTO;
+import tn.esprit.spring.DTO.RegistrationResultDTO;
+import tn.esprit.spring.DTO.RegistrationTicketDTO;
+import tn.esprit.spring.DTO.TimetableSlotDTO;
+import tn.esprit.spring.DTO.WaitlistStatusDTO;
 import tn.esprit.spring.entities.Registration;
 import tn.esprit.spring.entities.Support;
+import tn.esprit.spring.services.CourseWaitlist;
 import tn.esprit.spring.services.IRegistrationServices;
+import tn.esprit.spring.services.RegistrationQueue;
 
+import javax.validation.Valid;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Tag(name = "\uD83D\uDDD3️Registration Management")
 @RestController
@@ -17,6 +31,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class RegistrationRestController {
     private final IRegistrationServices registrationServices;
+    private final RegistrationQueue registrationQueue;
+    private final CourseWaitlist courseWaitlist;
 
     @Operation(description = "Add Registration and Assign to Skier")
     @PutMapping(value = "/addAndAssignToSkier/{numSkieur}", consumes = "application/json") // Added consumes attribute
@@ -40,10 +56,108 @@ public class RegistrationRestController {
         return registrationServices.addRegistrationAndAssignToSkierAndCourse(registration, skierId, courseId);
     }
 
+    @Operation(description = "Queue a Registration of a Skier to a Course, answered with a ticket")
+    @PutMapping(value = "/queue/{skierId}/{courseId}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<RegistrationTicketDTO> queueRegistration(@RequestBody Registration registration,
+                                                                   @PathVariable Long skierId,
+                                                                   @PathVariable Long courseId) {
+        if (!registrationQueue.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(null);
+        }
+        RegistrationTicketDTO ticket;
+        try {
+            ticket = registrationQueue.submit(skierId, courseId, registration.getNumWeek());
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        if (ticket == null) {
+            // Queue full: the client should back off before retrying
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").body(null);
+        }
+        return ResponseEntity.accepted().body(ticket);
+    }
+
+    @Operation(description = "Poll a queued Registration by ticket")
+    @GetMapping("/ticket/{ticket}")
+    public ResponseEntity<RegistrationTicketDTO> getTicket(@PathVariable("ticket") String ticket) {
+        RegistrationTicketDTO state = registrationQueue.retrieveTicket(ticket);
+        if (state == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+        return ResponseEntity.ok(state);
+    }
+
+    @Operation(description = "Register a group of Skiers to a Course for a week")
+    @PostMapping(value = "/group", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<RegistrationResultDTO>> addGroupRegistration(@Valid @RequestBody GroupRegistrationDTO group) {
+        List<RegistrationResultDTO> results = registrationServices.addGroupRegistration(
+                group.getNumSkiers(), group.getNumCourse(), group.getNumWeek());
+        if (results == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+        return ResponseEntity.ok(results);
+    }
+
+    @Operation(description = "Register a Skier to a Course for a week, or put the Skier on its waitlist when it is full")
+    @PutMapping(value = "/waitlist/{skierId}/{courseId}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<WaitlistStatusDTO> addRegistrationOrWait(@RequestBody Registration registration,
+                                                                   @PathVariable Long skierId,
+                                                                   @PathVariable Long courseId) {
+        WaitlistStatusDTO status = registrationServices.addRegistrationOrWait(skierId, courseId, registration.getNumWeek());
+        if (status == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+        return ResponseEntity.ok(status);
+    }
+
+    @Operation(description = "Waitlist position of a Skier. With wait=N, the answer is held until the position changes, for up to N seconds")
+    @GetMapping("/waitlist/{skierId}/{courseId}/{numWeek}")
+    public DeferredResult<WaitlistStatusDTO> getWaitlistStatus(@PathVariable Long skierId,
+                                                               @PathVariable Long courseId,
+                                                               @PathVariable int numWeek,
+                                                               @RequestParam(defaultValue = "0") int wait) {
+        long timeout = Math.min(TimeUnit.SECONDS.toMillis(Math.max(wait, 0)), courseWaitlist.getMaxWaitMillis());
+        DeferredResult<WaitlistStatusDTO> result = new DeferredResult<>(timeout > 0 ? timeout : null);
+        if (timeout == 0) {
+            result.setResult(courseWaitlist.status(skierId, courseId, numWeek));
+            return result;
+        }
+        CompletableFuture<WaitlistStatusDTO> change = courseWaitlist.nextChange(skierId, courseId, numWeek);
+        change.thenAccept(result::setResult);
+        // Nothing changed in time: the position is unchanged
+        result.onTimeout(() -> result.setResult(courseWaitlist.status(skierId, courseId, numWeek)));
+        result.onCompletion(() -> change.cancel(false));
+        return result;
+    }
+
+    @Operation(description = "Take a Skier off the waitlist of a Course for a week")
+    @DeleteMapping("/waitlist/{skierId}/{courseId}/{numWeek}")
+    public ResponseEntity<Void> leaveWaitlist(@PathVariable Long skierId,
+                                              @PathVariable Long courseId,
+                                              @PathVariable int numWeek) {
+        return courseWaitlist.leave(skierId, courseId, numWeek)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @Operation(description = "Delete a Registration; its seat goes to the head of the waitlist")
+    @DeleteMapping("/delete/{numRegistration}")
+    public ResponseEntity<Void> removeRegistration(@PathVariable("numRegistration") Long numRegistration) {
+        return registrationServices.removeRegistration(numRegistration)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
     @Operation(description = "Numbers of the weeks when an instructor has given lessons in a given support")
     @GetMapping("/numWeeks/{numInstructor}/{support}")
     public List<Integer> numWeeksCourseOfInstructorBySupport(@PathVariable("numInstructor") Long numInstructor,
                                                              @PathVariable("support") Support support) {
         return registrationServices.numWeeksCourseOfInstructorBySupport(numInstructor, support);
     }
+
+    @Operation(description = "Registrations of an instructor per support and week")
+    @GetMapping("/timetable/{numInstructor}")
+    public List<TimetableSlotDTO> getInstructorTimetable(@PathVariable("numInstructor") Long numInstructor) {
+        return registrationServices.retrieveInstructorTimetable(numInstructor);
+    }
 }
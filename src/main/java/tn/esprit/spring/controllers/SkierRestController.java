@@ -7,7 +7,19 @@ import org.springframework.web.bind.annotation.*;
 import tn.esprit.spring.entities.Skier;
 import tn.esprit.spring.entities.TypeSubscription;
 import tn.esprit.spring.services.ISkierServices;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tn.esprit.spring.DTO.ExcursionDTO;
+import tn.esprit.spring.DTO.KeysetPage;
+import tn.esprit.spring.DTO.PassCheckDTO;
+import tn.esprit.spring.DTO.SkierDTO;
+import tn.esprit.spring.DTO.SkierImportSummaryDTO;
+import org.springframework.http.HttpStatus;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.List;
 
 @Tag(name = "\uD83C\uDFC2 Skier Management")
@@ -24,6 +36,12 @@ public class SkierRestController {
         return  skierServices.addSkier(skier);
     }
 
+    @Operation(description = "Import Skiers and their Subscriptions from a CSV file")
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public SkierImportSummaryDTO importSkiers(InputStream csv) throws IOException {
+        return skierServices.importSkiers(csv);
+    }
+
     @Operation(description = "Add Skier And Assign To Course")
     @PostMapping("/addAndAssign/{numCourse}")
     public Skier addSkierAndAssignToCourse(@RequestBody Skier skier,
@@ -43,6 +61,34 @@ public class SkierRestController {
                                @PathVariable("numPiste") Long numPiste){
         return skierServices.assignSkierToPiste(numSkier,numPiste);
     }
+
+    @Operation(description = "Remove Skier From Piste")
+    @DeleteMapping("/unassignFromPiste/{numSkier}/{numPiste}")
+    public ResponseEntity<Void> unassignFromPiste(@PathVariable("numSkier") Long numSkier,
+                                                  @PathVariable("numPiste") Long numPiste) {
+        int removed = skierServices.removeExcursions(List.of(new ExcursionDTO(numSkier, numPiste)));
+        return ResponseEntity.status(removed > 0 ? HttpStatus.NO_CONTENT : HttpStatus.NOT_FOUND).build();
+    }
+
+    @Operation(description = "Add many (Skier, Piste) excursions at once")
+    @PostMapping(value = "/excursions", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Integer> addExcursions(@RequestBody List<ExcursionDTO> excursions) {
+        try {
+            return ResponseEntity.ok(skierServices.addExcursions(excursions));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+    }
+
+    @Operation(description = "Remove many (Skier, Piste) excursions at once")
+    @DeleteMapping(value = "/excursions", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Integer> removeExcursions(@RequestBody List<ExcursionDTO> excursions) {
+        try {
+            return ResponseEntity.ok(skierServices.removeExcursions(excursions));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+    }
     @Operation(description = "retrieve Skiers By Subscription Type")
     @GetMapping("/getSkiersBySubscription")
     public List<Skier> retrieveSkiersBySubscriptionType(TypeSubscription typeSubscription) {
@@ -50,10 +96,17 @@ public class SkierRestController {
     }
     @Operation(description = "Retrieve Skier by Id")
     @GetMapping("/get/{id-skier}")
-    public Skier getById(@PathVariable("id-skier") Long numSkier){
+    public SkierDTO getById(@PathVariable("id-skier") Long numSkier){
         return skierServices.retrieveSkier(numSkier);
     }
 
+    @Operation(description = "Check that a Skier has a Subscription valid on a day (today by default), for the lift gates")
+    @GetMapping("/pass/{id-skier}")
+    public PassCheckDTO checkPass(@PathVariable("id-skier") Long numSkier,
+                                  @RequestParam(value = "day", required = false) LocalDate day) {
+        return skierServices.checkPass(numSkier, day == null ? LocalDate.now() : day);
+    }
+
     @Operation(description = "Delete Skier by Id")
     @DeleteMapping("/delete/{id-skier}")
     public void deleteById(@PathVariable("id-skier") Long numSkier){
@@ -61,9 +114,28 @@ public class SkierRestController {
     }
 
     @Operation(description = "Retrieve all Skiers")
-    @GetMapping("/all")
-    public List<Skier> getAllSkiers(){
+    @GetMapping(value = "/all", params = {"!size", "!cursor"})
+    public List<SkierDTO> getAllSkiers(){
         return skierServices.retrieveAllSkiers();
     }
 
+    @Operation(description = "Retrieve a page of Skiers")
+    @GetMapping(value = "/all", params = "size")
+    public ResponseEntity<KeysetPage<SkierDTO>> getSkiersPage(@RequestParam(value = "cursor", required = false) String cursor,
+                                                              @RequestParam("size") Integer size) {
+        try {
+            return ResponseEntity.ok(skierServices.retrieveSkiersPage(cursor, size));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+    }
+
+    @Operation(description = "Stream all Skiers as NDJSON")
+    @GetMapping(value = "/all", params = {"!size", "!cursor"}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllSkiers() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(skierServices::exportAllSkiers);
+    }
+
 }
\ No newline at end of file
@@ -16,9 +16,14 @@ import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tn.esprit.spring.DTO.ExpiringSubscription;
+import tn.esprit.spring.DTO.KeysetPage;
+import tn.esprit.spring.DTO.RevenueBucketDTO;
+import tn.esprit.spring.DTO.RevenueGranularity;
 
 import javax.validation.Valid;
 
@@ -73,12 +78,32 @@ public class SubscriptionRestController {
 
 
     @Operation(description = "Retrieve Subscriptions by Type")
-    @GetMapping("/all/{typeSub}")
-    public ResponseEntity<Set<Subscription>> getSubscriptionsByType(@PathVariable("typeSub") TypeSubscription typeSubscription) {
-        Set<Subscription> subscriptions = subscriptionServices.getSubscriptionByType(typeSubscription);
+    @GetMapping(value = "/all/{typeSub}", params = {"!size", "!cursor"})
+    public ResponseEntity<List<Subscription>> getSubscriptionsByType(@PathVariable("typeSub") TypeSubscription typeSubscription) {
+        List<Subscription> subscriptions = subscriptionServices.getSubscriptionByType(typeSubscription);
         return ResponseEntity.ok(subscriptions);
     }
 
+    @Operation(description = "Retrieve a page of Subscriptions by Type")
+    @GetMapping(value = "/all/{typeSub}", params = "size")
+    public ResponseEntity<KeysetPage<Subscription>> getSubscriptionPageByType(@PathVariable("typeSub") TypeSubscription typeSubscription,
+                                                                              @RequestParam(value = "cursor", required = false) String cursor,
+                                                                              @RequestParam("size") Integer size) {
+        try {
+            return ResponseEntity.ok(subscriptionServices.getSubscriptionPageByType(typeSubscription, cursor, size));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+    }
+
+    @Operation(description = "Stream Subscriptions by Type as NDJSON")
+    @GetMapping(value = "/all/{typeSub}", params = {"!size", "!cursor"}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSubscriptionsByType(@PathVariable("typeSub") TypeSubscription typeSubscription) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> subscriptionServices.exportSubscriptionsByType(typeSubscription, out));
+    }
+
 
 
     @Operation(description = "Update Subscription")
@@ -100,6 +125,40 @@ public class SubscriptionRestController {
         return ResponseEntity.ok(updatedSubscription);
     }
 
+    @Operation(description = "Retrieve a page of Subscriptions ending on or before a date (today by default)")
+    @GetMapping("/expiring")
+    public ResponseEntity<KeysetPage<ExpiringSubscription>> getExpiringSubscriptions(
+            @RequestParam(value = "until", required = false) LocalDate until,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(subscriptionServices.retrieveExpiringSubscriptions(
+                    until == null ? LocalDate.now() : until, cursor, size));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+    }
+
+    @Operation(description = "Monthly recurring revenue")
+    @GetMapping("/revenue/monthly")
+    public ResponseEntity<Float> getMonthlyRecurringRevenue() {
+        return ResponseEntity.ok(subscriptionServices.retrieveMonthlyRecurringRevenue());
+    }
+
+    @Operation(description = "Revenue of the Subscriptions started between two dates, per type and day, week, month or season")
+    @GetMapping("/revenue")
+    public ResponseEntity<List<RevenueBucketDTO>> getRevenue(
+            @RequestParam("from") LocalDate from,
+            @RequestParam("to") LocalDate to,
+            @RequestParam(value = "granularity", defaultValue = "DAY") RevenueGranularity granularity,
+            @RequestParam(value = "typeSub", required = false) TypeSubscription typeSub) {
+        try {
+            return ResponseEntity.ok(subscriptionServices.retrieveRevenue(from, to, granularity, typeSub));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+    }
+
     @Operation(description = "Retrieve Subscriptions created between two dates")
     @GetMapping("/all/{date1}/{date2}")
     public ResponseEntity<List<Subscription>> getSubscriptionsByDates(@PathVariable("date1") LocalDate startDate,
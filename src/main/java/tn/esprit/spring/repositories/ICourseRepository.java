@@ -3,14 +3,23 @@ package tn.esprit.spring.repositories;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.query.Param;
 import tn.esprit.spring.entities.Course;
 import tn.esprit.spring.entities.TypeCourse;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface ICourseRepository extends JpaRepository<Course, Long> {
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
+public interface ICourseRepository extends JpaRepository<Course, Long> {
 
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    Stream<Course> streamAllBy();
 
+    List<Course> findByNumCourseGreaterThanOrderByNumCourseAsc(Long after, Pageable pageable);
 }
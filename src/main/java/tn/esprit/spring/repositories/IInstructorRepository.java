@@ -1,11 +1,39 @@
 package tn.esprit.spring.repositories;
 
-
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import tn.esprit.spring.DTO.InstructorCourse;
 import tn.esprit.spring.entities.Instructor;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface IInstructorRepository extends JpaRepository<Instructor, Long>, IInstructorRepositoryCustom {
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select i from Instructor i order by i.numInstructor")
+    Stream<Instructor> streamAllBy();
+
+    @Query("select i.numInstructor as numInstructor, c as course from Instructor i join i.courses c " +
+            "where i.numInstructor in :numInstructors order by i.numInstructor, c.numCourse")
+    List<InstructorCourse> findInstructorCourses(@Param("numInstructors") Collection<Long> numInstructors);
 
+    @Query("select i.numInstructor as numInstructor, c as course from Instructor i join i.courses c " +
+            "order by i.numInstructor, c.numCourse")
+    List<InstructorCourse> findAllInstructorCourses();
 
-public interface IInstructorRepository extends JpaRepository<Instructor, Long> {
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select i.numInstructor as numInstructor, c as course from Instructor i join i.courses c " +
+            "order by i.numInstructor, c.numCourse")
+    Stream<InstructorCourse> streamInstructorCourses();
 
+    List<Instructor> findByNumInstructorGreaterThanOrderByNumInstructorAsc(Long after, Pageable pageable);
 }
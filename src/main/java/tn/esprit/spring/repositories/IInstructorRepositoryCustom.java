@@ -0,0 +1,15 @@
+package tn.esprit.spring.repositories;
+
+import tn.esprit.spring.DTO.RosterAssignmentDTO;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface IInstructorRepositoryCustom {
+
+    /**
+     * Takes the courses away from their instructors, then gives each assigned course to its
+     * instructor, with one JDBC batch per statement. Returns the number of rows inserted.
+     */
+    int replaceCourseAssignments(Collection<Long> numCourses, List<RosterAssignmentDTO> assignments);
+}
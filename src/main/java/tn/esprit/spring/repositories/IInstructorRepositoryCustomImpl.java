@@ -0,0 +1,40 @@
+package tn.esprit.spring.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import tn.esprit.spring.DTO.RosterAssignmentDTO;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class IInstructorRepositoryCustomImpl implements IInstructorRepositoryCustom {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String DELETE_COURSE_ASSIGNMENT =
+            "delete from instructor_courses where courses_num_course = ?";
+
+    private static final String INSERT_COURSE_ASSIGNMENT =
+            "insert into instructor_courses (instructor_num_instructor, courses_num_course) values (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int replaceCourseAssignments(Collection<Long> numCourses, List<RosterAssignmentDTO> assignments) {
+        // Going through Instructor.courses would load and rewrite every instructor's whole set
+        if (!numCourses.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_COURSE_ASSIGNMENT, numCourses, BATCH_SIZE,
+                    (ps, numCourse) -> ps.setLong(1, numCourse));
+        }
+        if (assignments.isEmpty()) {
+            return 0;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_COURSE_ASSIGNMENT, assignments, BATCH_SIZE, (ps, assignment) -> {
+            ps.setLong(1, assignment.getNumInstructor());
+            ps.setLong(2, assignment.getNumCourse());
+        });
+        return assignments.size() - (int) Arrays.stream(counts).flatMapToInt(Arrays::stream).filter(c -> c == 0).count();
+    }
+}
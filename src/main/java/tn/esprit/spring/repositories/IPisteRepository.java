@@ -1,9 +1,30 @@
 package tn.esprit.spring.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import tn.esprit.spring.DTO.PisteSkierCount;
 import tn.esprit.spring.entities.Piste;
 
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 public interface IPisteRepository extends JpaRepository<Piste, Long> {
 
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    Stream<Piste> streamAllBy();
+
+    List<Piste> findByNumPisteGreaterThanOrderByNumPisteAsc(Long after, Pageable pageable);
+
+    @Query("select p.numPiste as numPiste, count(s) as total from Piste p left join p.skiers s"
+            + " group by p.numPiste order by p.numPiste")
+    List<PisteSkierCount> countSkiersGroupByPiste();
+
+    @Query(value = "select count(*) from excursion where num_piste = ?1", nativeQuery = true)
+    long countSkiers(Long numPiste);
 }
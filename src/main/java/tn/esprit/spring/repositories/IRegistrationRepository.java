@@ -1,25 +1,54 @@
 package tn.esprit.spring.repositories;
 
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 
 import org.springframework.data.repository.query.Param;
+import tn.esprit.spring.DTO.CourseWeekCount;
+import tn.esprit.spring.DTO.SkierRegistration;
 import tn.esprit.spring.entities.*;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
-public interface IRegistrationRepository extends CrudRepository<Registration, Long> {
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface IRegistrationRepository extends CrudRepository<Registration, Long>, IRegistrationRepositoryCustom {
 
     long countByCourseAndNumWeek(Course course, int numWeek);
-    @Query("select reg.numWeek from Registration reg " +
-            "join Instructor ins " +
-            "on reg.course member ins.courses " +
-            "where ins.numInstructor = :idIns and reg.course.support = :support")
-    List<Integer> numWeeksCourseOfInstructorBySupport(@Param("idIns") Long numInstructor, @Param("support") Support support);
-
-    @Query("select count(distinct r) from Registration r " +
-            "where r.numWeek = ?1 and r.skier.numSkier = ?2 and r.course.numCourse = ?3")
-    long countDistinctByNumWeekAndSkier_NumSkierAndCourse_NumCourse(int numWeek, Long numSkier, Long numCourse);
+
+    long countByCourse_NumCourseAndNumWeek(Long numCourse, int numWeek);
+
+    @Query("select r.course.numCourse as numCourse, r.numWeek as numWeek, count(r) as total " +
+            "from Registration r where r.course is not null " +
+            "group by r.course.numCourse, r.numWeek")
+    List<CourseWeekCount> countGroupByCourseAndNumWeek();
+
+    @Query("select r.skier.numSkier from Registration r " +
+            "where r.course.numCourse = :numCourse and r.numWeek = :numWeek and r.skier.numSkier in :numSkiers")
+    Set<Long> findRegisteredSkiers(@Param("numCourse") Long numCourse, @Param("numWeek") int numWeek,
+                                   @Param("numSkiers") Collection<Long> numSkiers);
+
+    @Query("select r.skier.numSkier as numSkier, r.numRegistration as numRegistration, r.numWeek as numWeek, " +
+            "r.course.numCourse as numCourse from Registration r where r.skier.numSkier in :numSkiers " +
+            "order by r.skier.numSkier, r.numRegistration")
+    List<SkierRegistration> findSkierRegistrations(@Param("numSkiers") Collection<Long> numSkiers);
+
+    @Query("select r.skier.numSkier as numSkier, r.numRegistration as numRegistration, r.numWeek as numWeek, " +
+            "r.course.numCourse as numCourse from Registration r where r.skier is not null " +
+            "order by r.skier.numSkier, r.numRegistration")
+    List<SkierRegistration> findAllSkierRegistrations();
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select r.skier.numSkier as numSkier, r.numRegistration as numRegistration, r.numWeek as numWeek, " +
+            "r.course.numCourse as numCourse from Registration r where r.skier is not null " +
+            "order by r.skier.numSkier, r.numRegistration")
+    Stream<SkierRegistration> streamSkierRegistrations();
 
   //  long countDistinctByNumWeekAndSkier_NumSkierAndCourse_NumCourse(int numWeek, Long numSkier, Long numCourse);
 
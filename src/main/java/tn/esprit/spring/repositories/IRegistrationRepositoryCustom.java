@@ -0,0 +1,12 @@
+package tn.esprit.spring.repositories;
+
+import java.util.List;
+
+public interface IRegistrationRepositoryCustom {
+
+    /**
+     * Inserts one registration per skier for the course and week in a single JDBC batch
+     * and returns the number of rows inserted.
+     */
+    int batchInsert(List<Long> numSkiers, Long numCourse, int numWeek);
+}
@@ -0,0 +1,31 @@
+package tn.esprit.spring.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class IRegistrationRepositoryCustomImpl implements IRegistrationRepositoryCustom {
+
+    private static final String INSERT_REGISTRATION =
+            "insert into registration (num_week, skier_num_skier, course_num_course) values (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int batchInsert(List<Long> numSkiers, Long numCourse, int numWeek) {
+        // Registration ids are IDENTITY generated, which keeps Hibernate from batching inserts,
+        // so the rows go straight through JDBC instead.
+        if (numSkiers.isEmpty()) {
+            return 0;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_REGISTRATION, numSkiers, numSkiers.size(), (ps, numSkier) -> {
+            ps.setInt(1, numWeek);
+            ps.setLong(2, numSkier);
+            ps.setLong(3, numCourse);
+        });
+        return numSkiers.size() - (int) Arrays.stream(counts).flatMapToInt(Arrays::stream).filter(c -> c == 0).count();
+    }
+}
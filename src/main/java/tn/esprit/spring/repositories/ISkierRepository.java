@@ -3,15 +3,55 @@ package tn.esprit.spring.repositories;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.domain.Pageable;
+import tn.esprit.spring.DTO.SkierPass;
 import tn.esprit.spring.entities.Skier;
 import tn.esprit.spring.entities.Subscription;
 import tn.esprit.spring.entities.TypeSubscription;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface ISkierRepository extends JpaRepository<Skier, Long> {
-   List<Skier> findBySubscription_TypeSub(TypeSubscription typeSubscription);
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface ISkierRepository extends JpaRepository<Skier, Long>, ISkierRepositoryCustom {
+   // The subscription and registrations are serialized with each skier, and registrations load their
+   // course eagerly: all fetched in the same query
+   @Query("select distinct s from Skier s join fetch s.subscription sub left join fetch s.registrations r"
+           + " left join fetch r.course where sub.typeSub = :typeSub")
+   List<Skier> findBySubscription_TypeSub(@Param("typeSub") TypeSubscription typeSubscription);
    Skier findBySubscription(Subscription subscription);
 
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select s from Skier s left join fetch s.subscription order by s.numSkier")
+    Stream<Skier> streamAllBy();
+
+    @Query("select s from Skier s left join fetch s.subscription order by s.numSkier")
+    List<Skier> findAllWithSubscription();
+
+    @Query("select s from Skier s left join fetch s.subscription where s.numSkier in :numSkiers")
+    List<Skier> findAllWithSubscriptionById(@Param("numSkiers") Iterable<Long> numSkiers);
+
+    @Query("select s from Skier s left join fetch s.subscription where s.numSkier > :after order by s.numSkier")
+    List<Skier> findPageAfter(@Param("after") Long after, Pageable pageable);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select k.numSkier as numSkier, s.startDate as startDate, s.endDate as endDate from Skier k join k.subscription s")
+    Stream<SkierPass> streamPasses();
+
+    @Query("select k.numSkier as numSkier, s.startDate as startDate, s.endDate as endDate from Skier k join k.subscription s"
+            + " where k.numSkier = :numSkier")
+    Optional<SkierPass> findPassByNumSkier(@Param("numSkier") Long numSkier);
+
+    @Query("select k.numSkier from Skier k where k.subscription.numSub = :numSub")
+    Long findNumSkierBySubscription(@Param("numSub") Long numSub);
 
+    @Query("select k.dateOfBirth from Skier k where k.numSkier = :numSkier")
+    Optional<LocalDate> findDateOfBirthByNumSkier(@Param("numSkier") Long numSkier);
 }
@@ -0,0 +1,30 @@
+package tn.esprit.spring.repositories;
+
+import tn.esprit.spring.DTO.ExcursionDTO;
+import tn.esprit.spring.entities.Skier;
+
+import java.util.List;
+
+public interface ISkierRepositoryCustom {
+
+    /**
+     * Inserts the skiers and their subscriptions with two JDBC batches and sets the generated
+     * ids on the given objects.
+     */
+    void batchInsert(List<Skier> skiers);
+
+    /**
+     * Adds the excursion rows in a single JDBC batch, without loading the skiers or their
+     * pistes. Rows that already exist or that reference an unknown skier or piste are skipped.
+     *
+     * @return the number of rows inserted
+     */
+    int insertExcursions(List<ExcursionDTO> excursions);
+
+    /**
+     * Removes the excursion rows in a single JDBC batch.
+     *
+     * @return the number of rows deleted
+     */
+    int deleteExcursions(List<ExcursionDTO> excursions);
+}
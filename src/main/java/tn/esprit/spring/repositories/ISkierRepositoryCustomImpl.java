@@ -0,0 +1,126 @@
+package tn.esprit.spring.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.JdbcUpdateAffectedIncorrectNumberOfRowsException;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import tn.esprit.spring.DTO.ExcursionDTO;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.Subscription;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+
+@RequiredArgsConstructor
+public class ISkierRepositoryCustomImpl implements ISkierRepositoryCustom {
+
+    private static final String INSERT_SUBSCRIPTION =
+            "insert into subscription (start_date, end_date, price, type_sub) values (?, ?, ?, ?)";
+
+    private static final String INSERT_SKIER =
+            "insert into skier (first_name, last_name, date_of_birth, city, subscription_num_sub) values (?, ?, ?, ?, ?)";
+
+    // Selecting the pair from skier and piste skips unknown ids, the not exists skips duplicates
+    private static final String INSERT_EXCURSION =
+            "insert into excursion (num_skier, num_piste) select s.num_skier, p.num_piste from skier s, piste p"
+                    + " where s.num_skier = ? and p.num_piste = ?"
+                    + " and not exists (select 1 from excursion e where e.num_skier = s.num_skier and e.num_piste = p.num_piste)";
+
+    private static final String DELETE_EXCURSION = "delete from excursion where num_skier = ? and num_piste = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void batchInsert(List<Skier> skiers) {
+        // Skier and subscription ids are IDENTITY generated, which keeps Hibernate from batching
+        // inserts, so the rows go straight through JDBC and the keys are read back per batch.
+        List<Subscription> subscriptions = new ArrayList<>(skiers.size());
+        for (Skier skier : skiers) {
+            if (skier.getSubscription() != null) {
+                subscriptions.add(skier.getSubscription());
+            }
+        }
+        insert(INSERT_SUBSCRIPTION, subscriptions, (ps, subscription) -> {
+            ps.setDate(1, date(subscription.getStartDate()));
+            ps.setDate(2, date(subscription.getEndDate()));
+            ps.setObject(3, subscription.getPrice(), Types.FLOAT);
+            ps.setInt(4, subscription.getTypeSub().ordinal());
+        }, Subscription::setNumSub);
+        insert(INSERT_SKIER, skiers, (ps, skier) -> {
+            ps.setString(1, skier.getFirstName());
+            ps.setString(2, skier.getLastName());
+            ps.setDate(3, date(skier.getDateOfBirth()));
+            ps.setString(4, skier.getCity());
+            ps.setObject(5, skier.getSubscription() != null ? skier.getSubscription().getNumSub() : null, Types.BIGINT);
+        }, Skier::setNumSkier);
+    }
+
+    @Override
+    public int insertExcursions(List<ExcursionDTO> excursions) {
+        return excursions(INSERT_EXCURSION, excursions);
+    }
+
+    @Override
+    public int deleteExcursions(List<ExcursionDTO> excursions) {
+        return excursions(DELETE_EXCURSION, excursions);
+    }
+
+    private int excursions(String sql, List<ExcursionDTO> excursions) {
+        if (excursions.isEmpty()) {
+            return 0;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(sql, excursions, excursions.size(), (ps, excursion) -> {
+            ps.setLong(1, excursion.getNumSkier());
+            ps.setLong(2, excursion.getNumPiste());
+        });
+        // A driver answering Statement.SUCCESS_NO_INFO does not say which rows were skipped: all count
+        return excursions.size() - (int) Arrays.stream(counts).flatMapToInt(Arrays::stream).filter(c -> c == 0).count();
+    }
+
+    private <T> void insert(String sql, List<T> rows, ParameterizedPreparedStatementSetter<T> setter,
+                            ObjLongConsumer<T> idSetter) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (T row : rows) {
+                    setter.setValues(ps, row);
+                    ps.addBatch();
+                }
+                for (int count : ps.executeBatch()) {
+                    // Some drivers only report SUCCESS_NO_INFO for the rows of a batch
+                    if (count != 1 && count != Statement.SUCCESS_NO_INFO) {
+                        throw new JdbcUpdateAffectedIncorrectNumberOfRowsException(sql, 1, count);
+                    }
+                }
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int read = 0;
+                    for (T row : rows) {
+                        if (!keys.next()) {
+                            throw new DataRetrievalFailureException("Only " + read + " of " + rows.size()
+                                    + " generated keys returned for: " + sql);
+                        }
+                        idSetter.accept(row, keys.getLong(1));
+                        read++;
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private static Date date(LocalDate date) {
+        return date != null ? Date.valueOf(date) : null;
+    }
+}
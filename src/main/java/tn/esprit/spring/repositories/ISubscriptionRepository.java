@@ -1,29 +1,62 @@
 package tn.esprit.spring.repositories;
 
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.CrudRepository;
 
 import org.springframework.data.repository.query.Param;
+import tn.esprit.spring.DTO.DailyRevenue;
+import tn.esprit.spring.DTO.ExpiringSubscription;
+import tn.esprit.spring.DTO.SubscriptionRevenue;
 import tn.esprit.spring.entities.Subscription;
 import tn.esprit.spring.entities.TypeSubscription;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 public interface ISubscriptionRepository extends CrudRepository<Subscription, Long> {
 
     @Query("select s from Subscription s where s.typeSub = :typeS order by s.startDate")
-    Set<Subscription> findByTypeSubOrderByStartDateAsc(@Param("typeS") TypeSubscription typeSub);
+    List<Subscription> findByTypeSubOrderByStartDateAsc(@Param("typeS") TypeSubscription typeSub);
 
     List<Subscription> getSubscriptionsByStartDateBetween(LocalDate date1, LocalDate date2);
 
-    @Query("select distinct s from Subscription s where s.endDate <= CURRENT_TIME order by s.endDate")
-    List<Subscription> findDistinctOrderByEndDateAsc();
+    @Query("select s.numSub as numSub, s.endDate as endDate, k.firstName as firstName, k.lastName as lastName " +
+            "from Subscription s left join Skier k on k.subscription = s " +
+            "where s.endDate <= :until order by s.endDate, s.numSub")
+    List<ExpiringSubscription> findExpiring(@Param("until") LocalDate until, Pageable pageable);
+
+    @Query("select s.numSub as numSub, s.endDate as endDate, k.firstName as firstName, k.lastName as lastName " +
+            "from Subscription s left join Skier k on k.subscription = s " +
+            "where s.endDate <= :until " +
+            "and (s.endDate > :endDate or (s.endDate = :endDate and s.numSub > :numSub)) " +
+            "order by s.endDate, s.numSub")
+    List<ExpiringSubscription> findExpiringAfter(@Param("until") LocalDate until, @Param("endDate") LocalDate endDate,
+                                                 @Param("numSub") Long numSub, Pageable pageable);
+
+
+    @Query("select s.typeSub as typeSub, count(s) as total, sum(s.price) as revenue " +
+            "from Subscription s group by s.typeSub")
+    List<SubscriptionRevenue> sumRevenueGroupByTypeSub();
 
+    @Query("select s.startDate as startDate, s.typeSub as typeSub, count(s) as total, sum(s.price) as revenue " +
+            "from Subscription s where s.startDate is not null group by s.startDate, s.typeSub")
+    List<DailyRevenue> sumRevenueGroupByStartDateAndTypeSub();
 
-    @Query("select (sum(s.price))/(count(s)) from Subscription s where s.typeSub = ?1")
-    Float recurringRevenueByTypeSubEquals(TypeSubscription typeSub);
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    Stream<Subscription> streamByTypeSubOrderByStartDateAsc(TypeSubscription typeSub);
 
+    List<Subscription> findByTypeSubOrderByStartDateAscNumSubAsc(TypeSubscription typeSub, Pageable pageable);
 
-}
\ No newline at end of file
+    @Query("select s from Subscription s where s.typeSub = :typeSub " +
+            "and (s.startDate > :startDate or (s.startDate = :startDate and s.numSub > :numSub)) " +
+            "order by s.startDate, s.numSub")
+    List<Subscription> findPageAfter(@Param("typeSub") TypeSubscription typeSub, @Param("startDate") LocalDate startDate,
+                                     @Param("numSub") Long numSub, Pageable pageable);
+}
@@ -0,0 +1,21 @@
+package tn.esprit.spring.repositories;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.spring.entities.WaitlistEntry;
+
+import java.util.List;
+
+public interface IWaitlistRepository extends CrudRepository<WaitlistEntry, Long> {
+
+    List<WaitlistEntry> findAllByOrderByNumEntry();
+
+    // Unlike deleteById, a missing entry (e.g. removed in cascade with its skier) is not an error
+    @Transactional
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.numEntry = :numEntry")
+    int deleteEntry(@Param("numEntry") Long numEntry);
+}
@@ -0,0 +1,185 @@
+package tn.esprit.spring.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tn.esprit.spring.DTO.CourseWeekCount;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory count of the seats taken per (course, week).
+ * <p>
+ * Seats are reserved with a CAS loop before the registration is inserted, so concurrent
+ * requests can never push a course past its capacity. A reservation made inside a
+ * transaction is handed back automatically if that transaction rolls back.
+ * <p>
+ * The seats taken, the reservations in flight and a count of the changes of each course week
+ * are swapped together as one immutable state, so that {@link #reconcile} only corrects a
+ * course week that nothing touched while the database was being counted.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CourseCapacityLedger {
+
+    private final IRegistrationRepository registrationRepository;
+
+    private final Map<Long, Slot> slots = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        slots.clear();
+        for (CourseWeekCount count : registrationRepository.countGroupByCourseAndNumWeek()) {
+            slots.put(key(count.getNumCourse(), count.getNumWeek()), new Slot(count.getTotal().intValue()));
+        }
+        log.info("Capacity ledger loaded with " + slots.size() + " course weeks");
+    }
+
+    /**
+     * Takes one seat of the course for the week if fewer than {@code capacity} are taken.
+     *
+     * @return false when the course is full
+     */
+    public boolean tryReserve(Long numCourse, int numWeek, int capacity) {
+        Slot slot = slot(numCourse, numWeek);
+        boolean tracked = TransactionSynchronizationManager.isSynchronizationActive();
+        State state;
+        do {
+            state = slot.state.get();
+            if (state.taken >= capacity) {
+                return false;
+            }
+        } while (!slot.state.compareAndSet(state, state.plus(1, tracked ? 1 : 0)));
+        track(slot, tracked);
+        return true;
+    }
+
+    /**
+     * Takes one seat without any capacity check (individual courses, reassignments).
+     */
+    public void reserve(Long numCourse, int numWeek) {
+        Slot slot = slot(numCourse, numWeek);
+        boolean tracked = TransactionSynchronizationManager.isSynchronizationActive();
+        slot.state.updateAndGet(state -> state.plus(1, tracked ? 1 : 0));
+        track(slot, tracked);
+    }
+
+    /**
+     * Gives back one seat, e.g. when a registration leaves the course. Inside a transaction
+     * the seat only comes back once it commits, so a delete that rolls back keeps its seat.
+     */
+    public void release(Long numCourse, int numWeek) {
+        AfterCommit.run(() -> {
+            Slot slot = slots.get(key(numCourse, numWeek));
+            if (slot != null) {
+                slot.state.updateAndGet(state -> state.plus(-1, 0));
+            }
+        });
+    }
+
+    public int taken(Long numCourse, int numWeek) {
+        return slot(numCourse, numWeek).state.get().taken;
+    }
+
+    /**
+     * Seats taken without going to the database: a course week the ledger has not seen since
+     * it was loaded has no registration.
+     */
+    public int peekTaken(Long numCourse, int numWeek) {
+        Slot slot = slots.get(key(numCourse, numWeek));
+        return slot != null ? slot.state.get().taken : 0;
+    }
+
+    /**
+     * Compares the ledger with the database and fixes any drift, keeping the seats of
+     * transactions that are still running.
+     * <p>
+     * A course week changed since the count started is left for the next run: a registration
+     * committed meanwhile may be missing from the count although it no longer is in flight.
+     *
+     * @return the course weeks corrected, as {@link #key} values
+     */
+    @Scheduled(fixedDelayString = "${ski.capacity.reconcile-ms:300000}", initialDelayString = "${ski.capacity.reconcile-ms:300000}")
+    public Set<Long> reconcile() {
+        Map<Long, State> before = new HashMap<>();
+        slots.forEach((key, slot) -> before.put(key, slot.state.get()));
+        Map<Long, Integer> committed = new HashMap<>();
+        for (CourseWeekCount count : registrationRepository.countGroupByCourseAndNumWeek()) {
+            committed.put(key(count.getNumCourse(), count.getNumWeek()), count.getTotal().intValue());
+        }
+        committed.forEach((key, total) -> slots.putIfAbsent(key, new Slot(total)));
+        Set<Long> corrected = new HashSet<>();
+        before.forEach((key, counted) -> {
+            Slot slot = slots.get(key);
+            int expected = committed.getOrDefault(key, 0) + counted.inFlight;
+            if (slot != null && counted.taken != expected && slot.state.compareAndSet(counted, counted.withTaken(expected))) {
+                log.warn("Capacity ledger drift on course week " + key + ": " + counted.taken + " -> " + expected);
+                corrected.add(key);
+            }
+        });
+        return corrected;
+    }
+
+    private Slot slot(Long numCourse, int numWeek) {
+        return slots.computeIfAbsent(key(numCourse, numWeek),
+                k -> new Slot((int) registrationRepository.countByCourse_NumCourseAndNumWeek(numCourse, numWeek)));
+    }
+
+    private void track(Slot slot, boolean tracked) {
+        if (!tracked) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                slot.state.updateAndGet(state -> state.plus(status == STATUS_COMMITTED ? 0 : -1, -1));
+            }
+        });
+    }
+
+    // Course ids and week numbers both fit in 32 bits, so one long identifies a course week.
+    public static long key(Long numCourse, int numWeek) {
+        return (numCourse << 32) | (numWeek & 0xFFFFFFFFL);
+    }
+
+    private static final class Slot {
+        final AtomicReference<State> state;
+
+        Slot(int taken) {
+            this.state = new AtomicReference<>(new State(taken, 0, 0));
+        }
+    }
+
+    private static final class State {
+        final int taken;
+        // Seats reserved by transactions that have not completed yet
+        final int inFlight;
+        final long changes;
+
+        State(int taken, int inFlight, long changes) {
+            this.taken = taken;
+            this.inFlight = inFlight;
+            this.changes = changes;
+        }
+
+        State plus(int seats, int reservations) {
+            return new State(Math.max(0, taken + seats), inFlight + reservations, changes + 1);
+        }
+
+        State withTaken(int seats) {
+            return new State(seats, inFlight, changes + 1);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package tn.esprit.spring.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.DTO.AvailableCourseDTO;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Support;
+import tn.esprit.spring.entities.TypeCourse;
+import tn.esprit.spring.repositories.ICourseRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory index of the courses by support, type and level, answering which courses a
+ * skier can still join over a range of weeks.
+ * <p>
+ * The seats left come from the {@link CourseCapacityLedger}, which every registration goes
+ * through, so only course changes have to be applied here. The courses of each
+ * (support, type) are an array sorted by level that is replaced, never modified, on change:
+ * searches take no lock and never touch the database.
+ * <p>
+ * The courses are loaded on startup and reloaded every {@code ski.courses.finder-reload-ms},
+ * for courses changed through other nodes. A change committed during a reload waits for it
+ * and is then applied on top, which is safe since a change sets the whole course.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CourseFinder {
+
+    static final int MAX_WEEKS = 53;
+
+    private static final TypeCourse[] TYPES = TypeCourse.values();
+
+    private static final Comparator<Row> BY_LEVEL = Comparator.<Row>comparingInt(row -> row.level)
+            .thenComparing(row -> row.numCourse);
+
+    private final ICourseRepository courseRepository;
+
+    private final CourseCapacityLedger capacityLedger;
+
+    private final CourseWaitlist courseWaitlist;
+
+    // Indexed course of each id, guarded by this
+    private final Map<Long, Row> rows = new HashMap<>();
+
+    private volatile Row[][] buckets = buckets(List.of());
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${ski.courses.finder-reload-ms:600000}", initialDelayString = "${ski.courses.finder-reload-ms:600000}")
+    public synchronized void load() {
+        rows.clear();
+        for (Course course : courseRepository.findAll()) {
+            Row row = Row.of(course);
+            if (row != null) {
+                rows.put(row.numCourse, row);
+            }
+        }
+        buckets = buckets(rows.values());
+        log.info("Course finder loaded with " + rows.size() + " courses");
+    }
+
+    /**
+     * The course was added or updated: once committed, only the buckets it leaves and enters
+     * are rebuilt.
+     */
+    public void courseSaved(Course course) {
+        if (course.getNumCourse() != null) {
+            Row row = Row.of(course);
+            AfterCommit.run(() -> index(course.getNumCourse(), row));
+        }
+    }
+
+    private synchronized void index(Long numCourse, Row row) {
+        Row previous = row != null ? rows.put(row.numCourse, row) : rows.remove(numCourse);
+        Row[][] changed = buckets.clone();
+        if (previous != null) {
+            int left = bucket(previous.support, previous.typeCourse);
+            changed[left] = Arrays.stream(changed[left])
+                    .filter(indexed -> !indexed.numCourse.equals(numCourse))
+                    .toArray(Row[]::new);
+        }
+        if (row != null) {
+            int entered = bucket(row.support, row.typeCourse);
+            Row[] grown = Arrays.copyOf(changed[entered], changed[entered].length + 1);
+            grown[grown.length - 1] = row;
+            Arrays.sort(grown, BY_LEVEL);
+            changed[entered] = grown;
+        }
+        buckets = changed;
+    }
+
+    /**
+     * Courses of the support, and of the level when given, that a skier of this age can join,
+     * for each week of the range: individual courses, and collective courses with a seat left
+     * and nobody on their waitlist. Ordered by week, level and course.
+     *
+     * @param registered course weeks to leave out, as {@link CourseCapacityLedger#key} values
+     */
+    public List<AvailableCourseDTO> find(int age, Support support, Integer level, int fromWeek, int toWeek,
+                                         Set<Long> registered) {
+        Row[][] index = buckets;
+        List<AvailableCourseDTO> found = new ArrayList<>();
+        for (int week = fromWeek; week <= toWeek; week++) {
+            for (TypeCourse typeCourse : TYPES) {
+                if (!RegistrationServicesImpl.ageAllowed(typeCourse, age)) {
+                    continue;
+                }
+                Row[] bucket = index[bucket(support, typeCourse)];
+                for (int i = level != null ? firstOfLevel(bucket, level) : 0;
+                     i < bucket.length && (level == null || bucket[i].level == level); i++) {
+                    Row row = bucket[i];
+                    if (registered.contains(CourseCapacityLedger.key(row.numCourse, week))) {
+                        continue;
+                    }
+                    Integer seatsLeft = null;
+                    if (typeCourse != TypeCourse.INDIVIDUAL) {
+                        seatsLeft = RegistrationServicesImpl.MAX_PLACES_PER_COURSE - capacityLedger.peekTaken(row.numCourse, week);
+                        if (seatsLeft <= 0 || courseWaitlist.hasWaiting(row.numCourse, week)) {
+                            continue;
+                        }
+                    }
+                    found.add(new AvailableCourseDTO(row.numCourse, row.level, row.typeCourse, row.support,
+                            row.price, row.timeSlot, week, seatsLeft));
+                }
+            }
+        }
+        found.sort(Comparator.comparingInt(AvailableCourseDTO::getNumWeek)
+                .thenComparingInt(AvailableCourseDTO::getLevel)
+                .thenComparing(AvailableCourseDTO::getNumCourse));
+        return found;
+    }
+
+    public synchronized int size() {
+        return rows.size();
+    }
+
+    private static int firstOfLevel(Row[] bucket, int level) {
+        int low = 0;
+        int high = bucket.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (bucket[middle].level < level) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int bucket(Support support, TypeCourse typeCourse) {
+        return support.ordinal() * TYPES.length + typeCourse.ordinal();
+    }
+
+    private static Row[][] buckets(Iterable<Row> rows) {
+        List<List<Row>> lists = new ArrayList<>();
+        for (int i = 0; i < Support.values().length * TYPES.length; i++) {
+            lists.add(new ArrayList<>());
+        }
+        rows.forEach(row -> lists.get(bucket(row.support, row.typeCourse)).add(row));
+        Row[][] buckets = new Row[lists.size()][];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = lists.get(i).toArray(new Row[0]);
+            Arrays.sort(buckets[i], BY_LEVEL);
+        }
+        return buckets;
+    }
+
+    private static final class Row {
+        final Long numCourse;
+        final int level;
+        final TypeCourse typeCourse;
+        final Support support;
+        final Float price;
+        final int timeSlot;
+
+        private Row(Course course) {
+            this.numCourse = course.getNumCourse();
+            this.level = course.getLevel();
+            this.typeCourse = course.getTypeCourse();
+            this.support = course.getSupport();
+            this.price = course.getPrice();
+            this.timeSlot = course.getTimeSlot();
+        }
+
+        // Courses without a type or support can't be searched for
+        static Row of(Course course) {
+            return course.getTypeCourse() != null && course.getSupport() != null ? new Row(course) : null;
+        }
+    }
+}
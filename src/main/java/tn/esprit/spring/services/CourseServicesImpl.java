@@ -1,37 +1,121 @@
 package tn.esprit.spring.services;
 
 import lombok.AllArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
+import tn.esprit.spring.configs.CacheConfig;
 import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.Support;
 import tn.esprit.spring.entities.TypeCourse;
 import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.spring.DTO.AvailableCourseDTO;
+import tn.esprit.spring.DTO.CourseDTO;
+import tn.esprit.spring.DTO.KeysetPage;
+import tn.esprit.spring.DTO.SkierRegistration;
+import org.springframework.data.domain.PageRequest;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 @AllArgsConstructor
 @Service
 public class CourseServicesImpl implements  ICourseServices{
 
     private ICourseRepository courseRepository;
 
+    private NdjsonWriter ndjsonWriter;
+
+    private InstructorTimetable instructorTimetable;
+
+    private JsonSnapshots jsonSnapshots;
+
+    private CourseFinder courseFinder;
+
+    private ISkierRepository skierRepository;
+
+    private IRegistrationRepository registrationRepository;
+
     @Override
     public List<Course> retrieveAllCourses() {
         return courseRepository.findAll();
     }
 
     @Override
+    public JsonSnapshot retrieveAllCoursesSnapshot() {
+        return jsonSnapshots.get(CacheConfig.COURSES, courseRepository::findAll);
+    }
+
+    @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.COURSES, key = "#course.numCourse", condition = "#course.numCourse != null"),
+            @CacheEvict(cacheNames = CacheConfig.INSTRUCTORS, allEntries = true, condition = "#course.numCourse != null")})
     public Course addCourse(Course course) {
-        return courseRepository.save(course);
+        Course saved = courseRepository.save(course);
+        instructorTimetable.courseUpdated(saved);
+        courseFinder.courseSaved(saved);
+        jsonSnapshots.changed(CacheConfig.COURSES);
+        return saved;
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.COURSES, key = "#course.numCourse", condition = "#course.numCourse != null"),
+            @CacheEvict(cacheNames = CacheConfig.INSTRUCTORS, allEntries = true)})
     public Course updateCourse(Course course) {
-        return courseRepository.save(course);
+        Course saved = courseRepository.save(course);
+        instructorTimetable.courseUpdated(saved);
+        courseFinder.courseSaved(saved);
+        jsonSnapshots.changed(CacheConfig.COURSES);
+        return saved;
+    }
+
+    @Override
+    @Cacheable(cacheNames = CacheConfig.COURSES, unless = "#result == null")
+    public CourseDTO retrieveCourse(Long numCourse) {
+        return courseRepository.findById(numCourse).map(CourseDTO::of).orElse(null);
     }
 
     @Override
-    public Course retrieveCourse(Long numCourse) {
-        return courseRepository.findById(numCourse).orElse(null);
+    public List<AvailableCourseDTO> findAvailableCourses(Long numSkier, Support support, Integer level, int fromWeek, int toWeek) {
+        if (support == null || fromWeek < 1 || toWeek < fromWeek || toWeek - fromWeek >= CourseFinder.MAX_WEEKS) {
+            throw new IllegalArgumentException("A support and a range of at most " + CourseFinder.MAX_WEEKS + " weeks are required");
+        }
+        Skier skier = skierRepository.findById(numSkier).orElse(null);
+        if (skier == null || skier.getDateOfBirth() == null) {
+            return null;
+        }
+        Set<Long> registered = new HashSet<>();
+        for (SkierRegistration registration : registrationRepository.findSkierRegistrations(List.of(numSkier))) {
+            if (registration.getNumCourse() != null) {
+                registered.add(CourseCapacityLedger.key(registration.getNumCourse(), registration.getNumWeek()));
+            }
+        }
+        // The courses and their seats are searched in memory
+        return courseFinder.find(Period.between(skier.getDateOfBirth(), LocalDate.now()).getYears(), support, level,
+                fromWeek, toWeek, registered);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAllCourses(OutputStream out) throws IOException {
+        ndjsonWriter.write(courseRepository.streamAllBy(), out);
+    }
 
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<Course> retrieveCoursesPage(String cursor, Integer size) {
+        int pageSize = KeysetPage.size(size);
+        List<Course> rows = courseRepository.findByNumCourseGreaterThanOrderByNumCourseAsc(KeysetPage.decodeId(cursor), PageRequest.of(0, pageSize + 1));
+        return KeysetPage.of(rows, pageSize, row -> KeysetPage.encode(row.getNumCourse()));
+    }
 }
@@ -0,0 +1,449 @@
+package tn.esprit.spring.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.DTO.RegistrationStatus;
+import tn.esprit.spring.DTO.WaitlistState;
+import tn.esprit.spring.DTO.WaitlistStatusDTO;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.WaitlistEntry;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.repositories.IWaitlistRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Waitlists of the full collective courses, per (course, week).
+ * <p>
+ * Each waitlist is held in memory in arrival order and persisted in the waitlist_entry
+ * table, which it is reloaded from at startup. When a seat is given back (a registration
+ * deleted or moved to another course), the skiers at the head of the waitlist are registered
+ * once that change is committed, each in its own transaction, for as long as the capacity
+ * ledger has seats. The skier's age is checked again at promotion, since the skier or the
+ * course may have changed while waiting: an entry no longer allowed in the course is dropped.
+ * Clients wait for the next change of their position with {@link #nextChange} instead of
+ * retrying the registration.
+ * <p>
+ * Seats also come back without going through {@link #seatFreed}: a capacity ledger reconcile,
+ * or a registration deleted on another node. {@link #sweep} serves every waitlist on a fixed
+ * delay so that such a course week does not stay closed to newcomers below its capacity. It
+ * first reloads the waitlists from the table, for skiers who joined, left or were promoted
+ * through another node.
+ */
+@Slf4j
+@Component
+public class CourseWaitlist {
+
+    private final IWaitlistRepository waitlistRepository;
+
+    private final IRegistrationRepository registrationRepository;
+
+    private final ISkierRepository skierRepository;
+
+    private final ICourseRepository courseRepository;
+
+    private final CourseCapacityLedger capacityLedger;
+
+    private final InstructorTimetable instructorTimetable;
+
+    private final RegistrationMetrics registrationMetrics;
+
+    // Promotions may run right after the commit of the change that freed the seat, while the
+    // resources of that transaction are still bound: they need a transaction of their own.
+    private final TransactionTemplate promotionTransaction;
+
+    private final long maxWaitMillis;
+
+    // Only the course weeks with skiers waiting, by CourseCapacityLedger.key
+    private final Map<Long, Queue> queues = new ConcurrentHashMap<>();
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    // Counts the reloads, so that one only drops the entries known before it read the table
+    private final AtomicLong reloads = new AtomicLong();
+
+    public CourseWaitlist(IWaitlistRepository waitlistRepository,
+                          IRegistrationRepository registrationRepository,
+                          ISkierRepository skierRepository,
+                          ICourseRepository courseRepository,
+                          CourseCapacityLedger capacityLedger,
+                          InstructorTimetable instructorTimetable,
+                          RegistrationMetrics registrationMetrics,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${ski.registration.waitlist.max-wait-seconds:60}") int maxWaitSeconds) {
+        this.waitlistRepository = waitlistRepository;
+        this.registrationRepository = registrationRepository;
+        this.skierRepository = skierRepository;
+        this.courseRepository = courseRepository;
+        this.capacityLedger = capacityLedger;
+        this.instructorTimetable = instructorTimetable;
+        this.registrationMetrics = registrationMetrics;
+        this.promotionTransaction = new TransactionTemplate(transactionManager);
+        this.promotionTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxWaitMillis = TimeUnit.SECONDS.toMillis(maxWaitSeconds);
+        Gauge.builder("registration.waitlist.size", waiting, AtomicInteger::get)
+                .description("Skiers waiting for a seat in a full course")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Longest time a client may wait for a change of its position.
+     */
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        queues.clear();
+        waiting.set(0);
+        for (WaitlistEntry entry : waitlistRepository.findAllByOrderByNumEntry()) {
+            add(entry);
+        }
+        log.info("Waitlists loaded with {} skiers in {} course weeks", waiting.get(), queues.size());
+        // Seats may have been given back while the application was down
+        for (Queue queue : new ArrayList<>(queues.values())) {
+            promote(queue.numCourse, queue.numWeek);
+        }
+    }
+
+    /**
+     * Whether skiers are waiting for the course week. A newcomer must not take a seat that is
+     * about to be handed to the head of the waitlist.
+     */
+    public boolean hasWaiting(Long numCourse, int numWeek) {
+        return queues.containsKey(CourseCapacityLedger.key(numCourse, numWeek));
+    }
+
+    /**
+     * Puts the skier at the end of the waitlist of a course week the caller found full. Called
+     * outside of a transaction, so the entry is committed on return; joining twice keeps the
+     * first position.
+     */
+    public WaitlistStatusDTO join(Long numSkier, Long numCourse, int numWeek) {
+        try {
+            add(waitlistRepository.save(new WaitlistEntry(null, numSkier, numCourse, numWeek, LocalDateTime.now())));
+            log.info("Skier {} waitlisted for course {} week {}", numSkier, numCourse, numWeek);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Skier {} already waitlisted for course {} week {}", numSkier, numCourse, numWeek);
+        }
+        // A seat may have been given back since the caller found the course full
+        promote(numCourse, numWeek);
+        return status(numSkier, numCourse, numWeek);
+    }
+
+    /**
+     * Takes the skier off the waitlist of a course week.
+     *
+     * @return false when the skier was not waiting
+     */
+    public boolean leave(Long numSkier, Long numCourse, int numWeek) {
+        Queue queue = queues.get(CourseCapacityLedger.key(numCourse, numWeek));
+        if (queue == null) {
+            return false;
+        }
+        synchronized (queue.promotion) {
+            Long numEntry;
+            synchronized (queue) {
+                numEntry = queue.entryOfSkier.get(numSkier);
+            }
+            if (numEntry == null) {
+                return false;
+            }
+            waitlistRepository.deleteEntry(numEntry);
+            remove(queue, numEntry);
+        }
+        changed(queue);
+        return true;
+    }
+
+    public WaitlistStatusDTO status(Long numSkier, Long numCourse, int numWeek) {
+        Queue queue = queues.get(CourseCapacityLedger.key(numCourse, numWeek));
+        if (queue != null) {
+            synchronized (queue) {
+                Long numEntry = queue.entryOfSkier.get(numSkier);
+                if (numEntry != null) {
+                    return new WaitlistStatusDTO(numSkier, numCourse, numWeek, WaitlistState.WAITING,
+                            queue.entries.headMap(numEntry).size() + 1, queue.entries.size());
+                }
+            }
+        }
+        boolean registered = registrationRepository.findRegisteredSkiers(numCourse, numWeek, List.of(numSkier))
+                .contains(numSkier);
+        return new WaitlistStatusDTO(numSkier, numCourse, numWeek,
+                registered ? WaitlistState.REGISTERED : WaitlistState.NOT_WAITING, null, null);
+    }
+
+    /**
+     * Completes with the status of the skier at the next change of the waitlist: the skier
+     * promoted, or a skier ahead promoted or gone. Completes at once when the skier is not
+     * waiting. Callers cancel the future when they stop waiting.
+     */
+    public CompletableFuture<WaitlistStatusDTO> nextChange(Long numSkier, Long numCourse, int numWeek) {
+        Queue queue = queues.get(CourseCapacityLedger.key(numCourse, numWeek));
+        if (queue != null) {
+            synchronized (queue) {
+                if (queue.entryOfSkier.containsKey(numSkier)) {
+                    CompletableFuture<WaitlistStatusDTO> change = new CompletableFuture<>();
+                    queue.watchers.removeIf(watcher -> watcher.change.isDone());
+                    queue.watchers.add(new Watcher(numSkier, change));
+                    return change;
+                }
+            }
+        }
+        return CompletableFuture.completedFuture(status(numSkier, numCourse, numWeek));
+    }
+
+    /**
+     * A seat of the course week is given back: the waitlist is served once the current
+     * transaction commits.
+     */
+    public void seatFreed(Long numCourse, int numWeek) {
+        if (!hasWaiting(numCourse, numWeek)) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            try {
+                promote(numCourse, numWeek);
+            } catch (RuntimeException e) {
+                // The change that freed the seat is committed: its caller must not fail
+                log.error("Waitlist promotion for course {} week {} failed", numCourse, numWeek, e);
+            }
+        });
+    }
+
+    /**
+     * Reloads the waitlists, then serves every one that a seat may have come back to since it
+     * was last served.
+     */
+    @Scheduled(fixedDelayString = "${ski.registration.waitlist.sweep-ms:30000}",
+            initialDelayString = "${ski.registration.waitlist.sweep-ms:30000}")
+    public void sweep() {
+        reload();
+        for (Queue queue : new ArrayList<>(queues.values())) {
+            try {
+                promote(queue.numCourse, queue.numWeek);
+            } catch (RuntimeException e) {
+                log.error("Waitlist promotion for course {} week {} failed", queue.numCourse, queue.numWeek, e);
+            }
+        }
+    }
+
+    /**
+     * Adds the entries made through other nodes and drops the ones gone from the table.
+     * <p>
+     * An entry is only dropped if it was known before the table was read: one joined on this
+     * node meanwhile may be missing from what was read although it is committed.
+     */
+    private void reload() {
+        long reload = reloads.incrementAndGet();
+        Map<Long, Set<Long>> stored = new HashMap<>();
+        for (WaitlistEntry entry : waitlistRepository.findAllByOrderByNumEntry()) {
+            add(entry);
+            stored.computeIfAbsent(CourseCapacityLedger.key(entry.getNumCourse(), entry.getNumWeek()), k -> new HashSet<>())
+                    .add(entry.getNumEntry());
+        }
+        for (Queue queue : new ArrayList<>(queues.values())) {
+            Set<Long> kept = stored.getOrDefault(CourseCapacityLedger.key(queue.numCourse, queue.numWeek), Set.of());
+            List<Long> gone = new ArrayList<>();
+            synchronized (queue) {
+                queue.addedIn.forEach((numEntry, added) -> {
+                    if (added < reload && !kept.contains(numEntry)) {
+                        gone.add(numEntry);
+                    }
+                });
+            }
+            if (!gone.isEmpty()) {
+                gone.forEach(numEntry -> remove(queue, numEntry));
+                changed(queue);
+            }
+        }
+    }
+
+    /**
+     * Registers the skiers at the head of the waitlist for as long as the course week has
+     * seats. Promotions of a course week run one at a time.
+     */
+    void promote(Long numCourse, int numWeek) {
+        Queue queue = queues.get(CourseCapacityLedger.key(numCourse, numWeek));
+        if (queue == null) {
+            return;
+        }
+        boolean changed = false;
+        synchronized (queue.promotion) {
+            Course course = promotionTransaction.execute(status -> courseRepository.findById(numCourse).orElse(null));
+            if (course == null) {
+                // The entries were removed in cascade with the course
+                synchronized (queue) {
+                    waiting.addAndGet(-queue.entries.size());
+                    queue.entries.clear();
+                    queue.entryOfSkier.clear();
+                    queue.addedIn.clear();
+                }
+                changed = true;
+            }
+            while (course != null) {
+                Map.Entry<Long, Long> head;
+                synchronized (queue) {
+                    head = queue.entries.firstEntry();
+                }
+                if (head == null) {
+                    break;
+                }
+                Long numEntry = head.getKey();
+                Long numSkier = head.getValue();
+                try {
+                    RegistrationStatus outcome = promotionTransaction.execute(status -> register(status, numEntry, numSkier, course, numWeek));
+                    if (outcome == RegistrationStatus.FULL) {
+                        break;
+                    }
+                    registrationMetrics.record(outcome);
+                    if (outcome == RegistrationStatus.ACCEPTED) {
+                        log.info("Skier {} promoted from the waitlist of course {} week {}", numSkier, numCourse, numWeek);
+                    } else {
+                        promotionTransaction.executeWithoutResult(status -> waitlistRepository.deleteEntry(numEntry));
+                        log.info("Waitlist entry {} of skier {} dropped: {}", numEntry, numSkier, outcome);
+                    }
+                } catch (DataIntegrityViolationException e) {
+                    // Registered meanwhile, or removed with its skier: the entry is dropped
+                    promotionTransaction.executeWithoutResult(status -> waitlistRepository.deleteEntry(numEntry));
+                    log.info("Waitlist entry {} of skier {} dropped: {}", numEntry, numSkier,
+                            e.getMostSpecificCause().getMessage());
+                }
+                remove(queue, numEntry);
+                changed = true;
+            }
+        }
+        if (changed) {
+            changed(queue);
+        }
+    }
+
+    public int size() {
+        return waiting.get();
+    }
+
+    // The age is only looked up once a seat is taken; the rollback gives the seat back
+    private RegistrationStatus register(TransactionStatus status, Long numEntry, Long numSkier, Course course, int numWeek) {
+        if (!capacityLedger.tryReserve(course.getNumCourse(), numWeek, RegistrationServicesImpl.MAX_PLACES_PER_COURSE)) {
+            return RegistrationStatus.FULL;
+        }
+        LocalDate dateOfBirth = skierRepository.findDateOfBirthByNumSkier(numSkier).orElse(null);
+        RegistrationStatus refused = null;
+        if (dateOfBirth == null) {
+            refused = RegistrationStatus.UNKNOWN_SKIER;
+        } else if (!RegistrationServicesImpl.ageAllowed(course.getTypeCourse(), Period.between(dateOfBirth, LocalDate.now()).getYears())) {
+            refused = RegistrationStatus.WRONG_AGE;
+        }
+        if (refused != null) {
+            status.setRollbackOnly();
+            return refused;
+        }
+        waitlistRepository.deleteEntry(numEntry);
+        registrationRepository.batchInsert(List.of(numSkier), course.getNumCourse(), numWeek);
+        instructorTimetable.registrationAdded(course.getNumCourse(), course.getSupport(), numWeek);
+        return RegistrationStatus.ACCEPTED;
+    }
+
+    private void add(WaitlistEntry entry) {
+        queues.compute(CourseCapacityLedger.key(entry.getNumCourse(), entry.getNumWeek()), (key, queue) -> {
+            Queue target = queue != null ? queue : new Queue(entry.getNumCourse(), entry.getNumWeek());
+            synchronized (target) {
+                if (target.entryOfSkier.putIfAbsent(entry.getNumSkier(), entry.getNumEntry()) == null) {
+                    target.entries.put(entry.getNumEntry(), entry.getNumSkier());
+                    target.addedIn.put(entry.getNumEntry(), reloads.get());
+                    waiting.incrementAndGet();
+                }
+            }
+            return target;
+        });
+    }
+
+    private void remove(Queue queue, Long numEntry) {
+        synchronized (queue) {
+            Long numSkier = queue.entries.remove(numEntry);
+            if (numSkier == null) {
+                return;
+            }
+            queue.entryOfSkier.remove(numSkier);
+            queue.addedIn.remove(numEntry);
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Answers the clients waiting on the course week, then forgets it once nobody waits.
+     */
+    private void changed(Queue queue) {
+        List<Watcher> watchers;
+        synchronized (queue) {
+            watchers = new ArrayList<>(queue.watchers);
+            queue.watchers.clear();
+        }
+        for (Watcher watcher : watchers) {
+            if (!watcher.change.isDone()) {
+                watcher.change.complete(status(watcher.numSkier, queue.numCourse, queue.numWeek));
+            }
+        }
+        queues.computeIfPresent(CourseCapacityLedger.key(queue.numCourse, queue.numWeek), (key, current) -> {
+            synchronized (current) {
+                return current.entries.isEmpty() && current.watchers.isEmpty() ? null : current;
+            }
+        });
+    }
+
+    private static final class Queue {
+        final Long numCourse;
+        final int numWeek;
+        // Entry id -> skier; ids grow with arrival, so the first entry is served next
+        final TreeMap<Long, Long> entries = new TreeMap<>();
+        final Map<Long, Long> entryOfSkier = new HashMap<>();
+        // Entry id -> reload count when it was added
+        final Map<Long, Long> addedIn = new HashMap<>();
+        final List<Watcher> watchers = new ArrayList<>();
+        final Object promotion = new Object();
+
+        Queue(Long numCourse, int numWeek) {
+            this.numCourse = numCourse;
+            this.numWeek = numWeek;
+        }
+    }
+
+    private static final class Watcher {
+        final Long numSkier;
+        final CompletableFuture<WaitlistStatusDTO> change;
+
+        Watcher(Long numSkier, CompletableFuture<WaitlistStatusDTO> change) {
+            this.numSkier = numSkier;
+            this.change = change;
+        }
+    }
+}
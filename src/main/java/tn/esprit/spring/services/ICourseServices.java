@@ -1,19 +1,33 @@
 package tn.esprit.spring.services;
 
+import tn.esprit.spring.DTO.AvailableCourseDTO;
+import tn.esprit.spring.DTO.CourseDTO;
 import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Support;
 import tn.esprit.spring.entities.TypeCourse;
+import tn.esprit.spring.DTO.KeysetPage;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface ICourseServices {
 
     List<Course> retrieveAllCourses();
 
+    JsonSnapshot retrieveAllCoursesSnapshot();
+
+    KeysetPage<Course> retrieveCoursesPage(String cursor, Integer size);
+
+    void exportAllCourses(OutputStream out) throws IOException;
+
     Course  addCourse(Course  course);
 
     Course updateCourse(Course course);
 
-    Course retrieveCourse(Long numCourse);
+    CourseDTO retrieveCourse(Long numCourse);
+
+    List<AvailableCourseDTO> findAvailableCourses(Long numSkier, Support support, Integer level, int fromWeek, int toWeek);
 
 
 }
@@ -3,19 +3,31 @@ package tn.esprit.spring.services;
 import tn.esprit.spring.entities.Course;
 import tn.esprit.spring.entities.Instructor;
 import tn.esprit.spring.entities.Support;
+import tn.esprit.spring.DTO.InstructorDTO;
+import tn.esprit.spring.DTO.KeysetPage;
+import tn.esprit.spring.DTO.RosterPlanDTO;
+import tn.esprit.spring.DTO.RosterRequestDTO;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface IInstructorServices {
 
     Instructor addInstructor(Instructor instructor);
 
-    List<Instructor> retrieveAllInstructors();
+    List<InstructorDTO> retrieveAllInstructors();
+
+    KeysetPage<InstructorDTO> retrieveInstructorsPage(String cursor, Integer size);
+
+    void exportAllInstructors(OutputStream out) throws IOException;
 
     Instructor updateInstructor(Instructor instructor);
 
-    Instructor retrieveInstructor(Long numInstructor);
+    InstructorDTO retrieveInstructor(Long numInstructor);
 
     Instructor addInstructorAndAssignToCourse(Instructor instructor, Long numCourse);
 
+    RosterPlanDTO planRoster(RosterRequestDTO request, boolean apply);
+
 }
@@ -1,16 +1,31 @@
 package tn.esprit.spring.services;
 
 import tn.esprit.spring.entities.Piste;
+import tn.esprit.spring.DTO.KeysetPage;
+import tn.esprit.spring.DTO.PisteDTO;
+import tn.esprit.spring.DTO.PisteSkierCount;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface IPisteServices {
 
     List<Piste> retrieveAllPistes();
 
+    JsonSnapshot retrieveAllPistesSnapshot();
+
+    KeysetPage<Piste> retrievePistesPage(String cursor, Integer size);
+
+    void exportAllPistes(OutputStream out) throws IOException;
+
     Piste  addPiste(Piste  piste);
 
     void removePiste (Long numPiste);
 
-    Piste retrievePiste (Long numPiste);
+    PisteDTO retrievePiste (Long numPiste);
+
+    List<PisteSkierCount> retrieveSkierCounts();
+
+    long countSkiers(Long numPiste);
 }
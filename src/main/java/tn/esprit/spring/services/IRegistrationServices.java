@@ -1,5 +1,8 @@
 package tn.esprit.spring.services;
 
+import tn.esprit.spring.DTO.RegistrationResultDTO;
+import tn.esprit.spring.DTO.TimetableSlotDTO;
+import tn.esprit.spring.DTO.WaitlistStatusDTO;
 import tn.esprit.spring.entities.*;
 
 import java.util.List;
@@ -9,6 +12,10 @@ public interface IRegistrationServices {
 	Registration addRegistrationAndAssignToSkier(Registration registration, Long numSkier);
 	Registration assignRegistrationToCourse(Long numRegistration, Long numCourse);
 	Registration addRegistrationAndAssignToSkierAndCourse(Registration registration, Long numSkieur, Long numCours);
+	List<RegistrationResultDTO> addGroupRegistration(List<Long> numSkiers, Long numCourse, int numWeek);
+	WaitlistStatusDTO addRegistrationOrWait(Long numSkier, Long numCourse, int numWeek);
+	boolean removeRegistration(Long numRegistration);
 	List<Integer> numWeeksCourseOfInstructorBySupport(Long numInstructor, Support support);
+	List<TimetableSlotDTO> retrieveInstructorTimetable(Long numInstructor);
 }
 
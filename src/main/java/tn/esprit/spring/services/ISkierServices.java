@@ -2,12 +2,27 @@ package tn.esprit.spring.services;
 
 import tn.esprit.spring.entities.Skier;
 import tn.esprit.spring.entities.TypeSubscription;
-
+import tn.esprit.spring.DTO.ExcursionDTO;
+import tn.esprit.spring.DTO.KeysetPage;
+import tn.esprit.spring.DTO.PassCheckDTO;
+import tn.esprit.spring.DTO.SkierDTO;
+import tn.esprit.spring.DTO.SkierImportSummaryDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.util.List;
 
 public interface ISkierServices {
 
-	List<Skier> retrieveAllSkiers();
+	List<SkierDTO> retrieveAllSkiers();
+
+	KeysetPage<SkierDTO> retrieveSkiersPage(String cursor, Integer size);
+
+	void exportAllSkiers(OutputStream out) throws IOException;
+
+	SkierImportSummaryDTO importSkiers(InputStream csv) throws IOException;
 
 	Skier  addSkier(Skier  skier);
 
@@ -17,11 +32,17 @@ public interface ISkierServices {
 
 	void removeSkier (Long numSkier);
 
-	Skier retrieveSkier (Long numSkier);
+	SkierDTO retrieveSkier (Long numSkier);
+
+	PassCheckDTO checkPass(Long numSkier, LocalDate day);
 
 
 	Skier assignSkierToPiste(Long numSkieur, Long numPiste);
 
+	int addExcursions(List<ExcursionDTO> excursions);
+
+	int removeExcursions(List<ExcursionDTO> excursions);
+
 	List<Skier> retrieveSkiersBySubscriptionType(TypeSubscription typeSubscription);
 
 }
@@ -1,12 +1,17 @@
 package tn.esprit.spring.services;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Set;
 
 import org.springframework.http.ResponseEntity;
 import tn.esprit.spring.entities.Subscription;
 import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.DTO.ExpiringSubscription;
+import tn.esprit.spring.DTO.KeysetPage;
+import tn.esprit.spring.DTO.RevenueBucketDTO;
+import tn.esprit.spring.DTO.RevenueGranularity;
 
 public interface ISubscriptionServices {
 
@@ -16,9 +21,19 @@ public interface ISubscriptionServices {
 
 	ResponseEntity<Subscription> retrieveSubscriptionById(Long numSubscription);
 
-	Set<Subscription> getSubscriptionByType(TypeSubscription type);
+	List<Subscription> getSubscriptionByType(TypeSubscription type);
+
+	KeysetPage<Subscription> getSubscriptionPageByType(TypeSubscription type, String cursor, Integer size);
+
+	void exportSubscriptionsByType(TypeSubscription type, OutputStream out) throws IOException;
 
 	List<Subscription> retrieveSubscriptionsByDates(LocalDate startDate, LocalDate endDate);
 
 	void retrieveSubscriptions();
+
+	KeysetPage<ExpiringSubscription> retrieveExpiringSubscriptions(LocalDate until, String cursor, Integer size);
+
+	Float retrieveMonthlyRecurringRevenue();
+
+	List<RevenueBucketDTO> retrieveRevenue(LocalDate from, LocalDate to, RevenueGranularity granularity, TypeSubscription typeSub);
 }
\ No newline at end of file
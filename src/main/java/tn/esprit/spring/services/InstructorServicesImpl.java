@@ -1,15 +1,31 @@
 package tn.esprit.spring.services;
 
 import lombok.AllArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import tn.esprit.spring.configs.CacheConfig;
 import tn.esprit.spring.entities.Course;
 import tn.esprit.spring.entities.Instructor;
 import tn.esprit.spring.repositories.ICourseRepository;
 import tn.esprit.spring.repositories.IInstructorRepository;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.spring.DTO.CourseDTO;
+import tn.esprit.spring.DTO.InstructorCourse;
+import tn.esprit.spring.DTO.InstructorDTO;
+import tn.esprit.spring.DTO.KeysetPage;
+import tn.esprit.spring.DTO.RosterPlanDTO;
+import tn.esprit.spring.DTO.RosterRequestDTO;
+import org.springframework.data.domain.PageRequest;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @AllArgsConstructor
 @Service
@@ -17,35 +33,91 @@ public class InstructorServicesImpl implements IInstructorServices{
 
     private IInstructorRepository instructorRepository;
     private ICourseRepository courseRepository;
+    private NdjsonWriter ndjsonWriter;
+    private InstructorTimetable instructorTimetable;
+    private RosterPlanner rosterPlanner;
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.INSTRUCTORS, key = "#instructor.numInstructor", condition = "#instructor.numInstructor != null")
     public Instructor addInstructor(Instructor instructor) {
-        return instructorRepository.save(instructor);
+        Instructor saved = instructorRepository.save(instructor);
+        instructorTimetable.instructorCoursesChanged(saved.getNumInstructor(), saved.getCourses());
+        return saved;
     }
 
     @Override
-    public List<Instructor> retrieveAllInstructors() {
-        return instructorRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<InstructorDTO> retrieveAllInstructors() {
+        return toDTOs(instructorRepository.findAll(Sort.by("numInstructor")).stream(),
+                instructorRepository.findAllInstructorCourses().stream())
+                .collect(Collectors.toList());
     }
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.INSTRUCTORS, key = "#instructor.numInstructor", condition = "#instructor.numInstructor != null")
     public Instructor updateInstructor(Instructor instructor) {
-        return instructorRepository.save(instructor);
+        Instructor saved = instructorRepository.save(instructor);
+        instructorTimetable.instructorCoursesChanged(saved.getNumInstructor(), saved.getCourses());
+        return saved;
     }
 
     @Override
-    public Instructor retrieveInstructor(Long numInstructor) {
-        return instructorRepository.findById(numInstructor).orElse(null);
+    // Read-write on purpose: cached rows must come from the primary, never from a lagging replica
+    @Transactional
+    @Cacheable(cacheNames = CacheConfig.INSTRUCTORS, unless = "#result == null")
+    public InstructorDTO retrieveInstructor(Long numInstructor) {
+        return instructorRepository.findById(numInstructor)
+                .map(instructor -> toDTOs(Stream.of(instructor),
+                        instructorRepository.findInstructorCourses(List.of(numInstructor)).stream()).findFirst().get())
+                .orElse(null);
     }
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.INSTRUCTORS, key = "#instructor.numInstructor", condition = "#instructor.numInstructor != null")
     public Instructor addInstructorAndAssignToCourse(Instructor instructor, Long numCourse) {
+        // The entity rather than the cached copy: it is linked to the instructor, and the timetable reads its support
         Course course = courseRepository.findById(numCourse).orElse(null);
         Set<Course> courseSet = new HashSet<>();
         courseSet.add(course);
         instructor.setCourses(courseSet);
-        return instructorRepository.save(instructor);
+        Instructor saved = instructorRepository.save(instructor);
+        instructorTimetable.instructorCoursesChanged(saved.getNumInstructor(), saved.getCourses());
+        return saved;
     }
 
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.INSTRUCTORS, allEntries = true, condition = "#apply")
+    public RosterPlanDTO planRoster(RosterRequestDTO request, boolean apply) {
+        RosterPlanDTO plan = rosterPlanner.plan(request, apply);
+        return apply ? rosterPlanner.apply(plan, request.isReplace()) : plan;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAllInstructors(OutputStream out) throws IOException {
+        ndjsonWriter.write(toDTOs(instructorRepository.streamAllBy(), instructorRepository.streamInstructorCourses()), out);
+    }
 
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<InstructorDTO> retrieveInstructorsPage(String cursor, Integer size) {
+        int pageSize = KeysetPage.size(size);
+        List<Instructor> rows = instructorRepository.findByNumInstructorGreaterThanOrderByNumInstructorAsc(KeysetPage.decodeId(cursor), PageRequest.of(0, pageSize + 1));
+        KeysetPage<Instructor> page = KeysetPage.of(rows, pageSize, row -> KeysetPage.encode(row.getNumInstructor()));
+        if (page.getItems().isEmpty()) {
+            return new KeysetPage<>(List.of(), page.getNext());
+        }
+        List<Long> numInstructors = page.getItems().stream().map(Instructor::getNumInstructor).collect(Collectors.toList());
+        List<InstructorDTO> items = toDTOs(page.getItems().stream(),
+                instructorRepository.findInstructorCourses(numInstructors).stream())
+                .collect(Collectors.toList());
+        return new KeysetPage<>(items, page.getNext());
+    }
+
+    // Both streams are sorted by instructor id
+    private Stream<InstructorDTO> toDTOs(Stream<Instructor> instructors, Stream<InstructorCourse> courses) {
+        return OrderedChildren.attach(instructors, Instructor::getNumInstructor, courses, InstructorCourse::getNumInstructor,
+                (instructor, rows) -> InstructorDTO.of(instructor,
+                        rows.stream().map(row -> CourseDTO.of(row.getCourse())).collect(Collectors.toList())));
+    }
 }
@@ -0,0 +1,228 @@
+package tn.esprit.spring.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.DTO.CourseWeekCount;
+import tn.esprit.spring.DTO.InstructorCourse;
+import tn.esprit.spring.DTO.TimetableSlotDTO;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Support;
+import tn.esprit.spring.repositories.IInstructorRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Materialized timetable of the instructors: number of registrations per (instructor,
+ * support, week).
+ * <p>
+ * It is built on startup and then kept up to date as registrations are assigned to courses,
+ * courses change support and instructors change courses. Like the other running totals,
+ * changes are applied when the transaction that made them commits.
+ * <p>
+ * It is also rebuilt every {@code ski.timetable.rebuild-ms}, for changes made through other
+ * nodes. A rebuild fills new maps and swaps them in at once, so readers never see an empty
+ * timetable. Like the revenue totals, it only swaps them in when no change was applied or in
+ * flight while it counted, since it cannot tell whether its queries saw such a change.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InstructorTimetable {
+
+    private final IRegistrationRepository registrationRepository;
+
+    private final IInstructorRepository instructorRepository;
+
+    // Replaced as a whole on each rebuild; changed in place under the monitor of this timetable
+    private volatile Timetable current = new Timetable();
+
+    // Changes applied so far, guarded by the monitor of this timetable
+    private long changesApplied;
+
+    // Changes of transactions that have not completed yet
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${ski.timetable.rebuild-ms:600000}", initialDelayString = "${ski.timetable.rebuild-ms:600000}")
+    public void rebuild() {
+        long applied;
+        synchronized (this) {
+            applied = changesApplied;
+        }
+        boolean quiet = inFlight.get() == 0;
+        Timetable rebuilt = new Timetable();
+        for (InstructorCourse row : instructorRepository.findAllInstructorCourses()) {
+            Course course = row.getCourse();
+            rebuilt.courses.put(course.getNumCourse(), new CourseRow(row.getNumInstructor(), course.getSupport()));
+        }
+        for (CourseWeekCount count : registrationRepository.countGroupByCourseAndNumWeek()) {
+            CourseRow row = rebuilt.courses.computeIfAbsent(count.getNumCourse(), k -> new CourseRow(null, null));
+            row.add(count.getNumWeek(), count.getTotal().intValue());
+        }
+        rebuilt.courses.values().forEach(row -> rebuilt.move(row, row.numInstructor, row.support, 1));
+        synchronized (this) {
+            if (!quiet || inFlight.get() != 0 || changesApplied != applied) {
+                log.info("Instructor timetable rebuild skipped: registrations changed while it ran");
+                return;
+            }
+            current = rebuilt;
+        }
+        log.info("Instructor timetable built for {} instructors", rebuilt.cells.size());
+    }
+
+    /**
+     * Weeks, in ascending order, in which the instructor has registrations in courses of the
+     * support.
+     */
+    public List<Integer> weeks(Long numInstructor, Support support) {
+        List<Integer> weeks = new ArrayList<>();
+        Map<Support, NavigableMap<Integer, AtomicInteger>> timetable = current.cells.get(numInstructor);
+        if (timetable != null) {
+            timetable.get(support).forEach((week, total) -> {
+                if (total.get() > 0) {
+                    weeks.add(week);
+                }
+            });
+        }
+        return weeks;
+    }
+
+    public List<TimetableSlotDTO> timetable(Long numInstructor) {
+        List<TimetableSlotDTO> slots = new ArrayList<>();
+        Map<Support, NavigableMap<Integer, AtomicInteger>> timetable = current.cells.get(numInstructor);
+        if (timetable != null) {
+            timetable.forEach((support, weeks) -> weeks.forEach((week, total) -> {
+                if (total.get() > 0) {
+                    slots.add(new TimetableSlotDTO(support, week, total.get()));
+                }
+            }));
+        }
+        return slots;
+    }
+
+    public void registrationAdded(Long numCourse, Support support, int numWeek) {
+        AfterCommit.run(() -> registrations(numCourse, support, numWeek, 1), inFlight);
+    }
+
+    public void registrationsAdded(Long numCourse, Support support, int numWeek, int total) {
+        if (total > 0) {
+            AfterCommit.run(() -> registrations(numCourse, support, numWeek, total), inFlight);
+        }
+    }
+
+    public void registrationRemoved(Long numCourse, Support support, int numWeek) {
+        AfterCommit.run(() -> registrations(numCourse, support, numWeek, -1), inFlight);
+    }
+
+    /**
+     * The course may have changed support.
+     */
+    public void courseUpdated(Course course) {
+        if (course.getNumCourse() != null) {
+            AfterCommit.run(() -> reassign(course.getNumCourse(), null, course.getSupport(), false), inFlight);
+        }
+    }
+
+    /**
+     * The instructor now teaches exactly these courses.
+     */
+    public void instructorCoursesChanged(Long numInstructor, Collection<Course> taught) {
+        if (numInstructor == null) {
+            return;
+        }
+        Set<Long> numCourses = new HashSet<>();
+        if (taught != null) {
+            taught.forEach(course -> numCourses.add(course.getNumCourse()));
+        }
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                current.courses.forEach((numCourse, row) -> {
+                    if (numInstructor.equals(row.numInstructor) && !numCourses.contains(numCourse)) {
+                        reassign(numCourse, null, row.support, true);
+                    }
+                });
+                if (taught != null) {
+                    taught.forEach(course -> reassign(course.getNumCourse(), numInstructor, course.getSupport(), true));
+                }
+            }
+        }, inFlight);
+    }
+
+    private synchronized void registrations(Long numCourse, Support support, int numWeek, int delta) {
+        changesApplied++;
+        Timetable timetable = current;
+        CourseRow row = timetable.courses.computeIfAbsent(numCourse, k -> new CourseRow(null, support));
+        row.add(numWeek, delta);
+        timetable.cell(row.numInstructor, row.support, numWeek, delta);
+    }
+
+    private synchronized void reassign(Long numCourse, Long numInstructor, Support support, boolean instructorChanged) {
+        changesApplied++;
+        Timetable timetable = current;
+        CourseRow row = timetable.courses.computeIfAbsent(numCourse, k -> new CourseRow(null, support));
+        Long newInstructor = instructorChanged ? numInstructor : row.numInstructor;
+        timetable.move(row, row.numInstructor, row.support, -1);
+        row.numInstructor = newInstructor;
+        if (support != null) {
+            row.support = support;
+        }
+        timetable.move(row, row.numInstructor, row.support, 1);
+    }
+
+    private static final class Timetable {
+        // Registrations of every known course, whether it has an instructor or not
+        final Map<Long, CourseRow> courses = new ConcurrentHashMap<>();
+
+        final Map<Long, Map<Support, NavigableMap<Integer, AtomicInteger>>> cells = new ConcurrentHashMap<>();
+
+        void move(CourseRow row, Long numInstructor, Support support, int sign) {
+            row.weeks.forEach((week, total) -> cell(numInstructor, support, week, sign * total.get()));
+        }
+
+        void cell(Long numInstructor, Support support, int numWeek, int delta) {
+            if (numInstructor == null || support == null || delta == 0) {
+                return;
+            }
+            cells.computeIfAbsent(numInstructor, k -> {
+                        Map<Support, NavigableMap<Integer, AtomicInteger>> timetable = new EnumMap<>(Support.class);
+                        for (Support s : Support.values()) {
+                            timetable.put(s, new ConcurrentSkipListMap<>());
+                        }
+                        return timetable;
+                    })
+                    .get(support)
+                    .computeIfAbsent(numWeek, k -> new AtomicInteger())
+                    .addAndGet(delta);
+        }
+    }
+
+    private static final class CourseRow {
+        final Map<Integer, AtomicInteger> weeks = new ConcurrentHashMap<>();
+        volatile Long numInstructor;
+        volatile Support support;
+
+        CourseRow(Long numInstructor, Support support) {
+            this.numInstructor = numInstructor;
+            this.support = support;
+        }
+
+        void add(int numWeek, int delta) {
+            weeks.computeIfAbsent(numWeek, k -> new AtomicInteger()).addAndGet(delta);
+        }
+    }
+}
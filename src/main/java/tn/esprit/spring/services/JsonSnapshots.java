@@ -0,0 +1,95 @@
+package tn.esprit.spring.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Serialized listings of the reference data, named like their caches in
+ * {@link tn.esprit.spring.configs.CacheConfig}.
+ * <p>
+ * A listing is loaded and serialized on the first request after it changed, then served as is
+ * until the next change commits. Every change bumps the generation of the listing, so a
+ * snapshot built from data read before a change is never served after it.
+ * <p>
+ * Only the changes made through this node are seen that way: a snapshot is also rebuilt once
+ * it is older than {@code ski.snapshots.ttl-ms}, for the changes made through the others. An
+ * unchanged listing keeps its ETag, so clients still get 304s across rebuilds.
+ */
+@Component
+public class JsonSnapshots {
+
+    private final ObjectMapper objectMapper;
+
+    private final long ttlNanos;
+
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+
+    public JsonSnapshots(ObjectMapper objectMapper, @Value("${ski.snapshots.ttl-ms:30000}") long ttlMillis) {
+        this.objectMapper = objectMapper;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    public JsonSnapshot get(String name, Supplier<?> loader) {
+        return slots.computeIfAbsent(name, k -> new Slot()).get(loader);
+    }
+
+    /**
+     * The listing changed: it is rebuilt on the next request once the transaction commits.
+     */
+    public void changed(String name) {
+        Slot slot = slots.computeIfAbsent(name, k -> new Slot());
+        AfterCommit.run(slot.generation::incrementAndGet);
+    }
+
+    private final class Slot {
+        final AtomicLong generation = new AtomicLong();
+        volatile Built built;
+
+        JsonSnapshot get(Supplier<?> loader) {
+            Built current = built;
+            if (current != null && current.isCurrent(generation.get())) {
+                return current.snapshot;
+            }
+            synchronized (this) {
+                current = built;
+                long version = generation.get();
+                if (current != null && current.isCurrent(version)) {
+                    return current.snapshot;
+                }
+                try {
+                    long loadedAt = System.nanoTime();
+                    JsonSnapshot snapshot = new JsonSnapshot(objectMapper.writeValueAsBytes(loader.get()));
+                    built = new Built(version, loadedAt, snapshot);
+                    return snapshot;
+                } catch (JsonProcessingException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    private final class Built {
+        final long generation;
+        final long loadedAt;
+        final JsonSnapshot snapshot;
+
+        Built(long generation, long loadedAt, JsonSnapshot snapshot) {
+            this.generation = generation;
+            this.loadedAt = loadedAt;
+            this.snapshot = snapshot;
+        }
+
+        boolean isCurrent(long version) {
+            return generation == version && System.nanoTime() - loadedAt < ttlNanos;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package tn.esprit.spring.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes a stream of entities as newline-delimited JSON.
+ * <p>
+ * The persistence context is cleared after every chunk of rows, so memory stays flat
+ * whatever the size of the result. Callers must keep a read-only transaction open while the
+ * stream is consumed.
+ */
+@Component
+@RequiredArgsConstructor
+public class NdjsonWriter {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private final EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+
+    public long write(Stream<?> rows, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writer();
+        OutputStream buffered = new BufferedOutputStream(out, 64 * 1024);
+        long count = 0;
+        try (rows) {
+            Iterator<?> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Object row = iterator.next();
+                buffered.write(writer.writeValueAsBytes(row));
+                buffered.write('\n');
+                if (++count % CHUNK_SIZE == 0) {
+                    entityManager.clear();
+                    buffered.flush();
+                }
+            }
+        }
+        buffered.flush();
+        return count;
+    }
+}
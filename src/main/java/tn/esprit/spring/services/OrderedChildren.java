@@ -0,0 +1,60 @@
+package tn.esprit.spring.services;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Attaches child rows to their parent while walking both in parent id order (a merge join),
+ * so a listing and one of its collections are read with two queries whatever their size.
+ * Both inputs must be sorted by ascending parent id.
+ */
+final class OrderedChildren {
+
+    private OrderedChildren() {
+    }
+
+    static <P, C, V> Stream<V> attach(Stream<P> parents, Function<P, Long> parentId,
+                                      Stream<C> children, Function<C, Long> childParentId,
+                                      BiFunction<P, List<C>, V> combine) {
+        Iterator<P> parentRows = parents.iterator();
+        Iterator<C> childRows = children.iterator();
+        Iterator<V> joined = new Iterator<V>() {
+
+            private C pending;
+
+            @Override
+            public boolean hasNext() {
+                return parentRows.hasNext();
+            }
+
+            @Override
+            public V next() {
+                P parent = parentRows.next();
+                long id = parentId.apply(parent);
+                List<C> matches = new ArrayList<>();
+                while (pending != null || childRows.hasNext()) {
+                    C child = pending != null ? pending : childRows.next();
+                    pending = null;
+                    long childId = childParentId.apply(child);
+                    if (childId == id) {
+                        matches.add(child);
+                    } else if (childId > id) {
+                        pending = child;
+                        break;
+                    }
+                }
+                return combine.apply(parent, matches);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(joined, Spliterator.ORDERED), false)
+                .onClose(parents::close)
+                .onClose(children::close);
+    }
+}
@@ -1,10 +1,20 @@
 package tn.esprit.spring.services;
 
 import lombok.AllArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import tn.esprit.spring.configs.CacheConfig;
 import tn.esprit.spring.entities.Piste;
 import tn.esprit.spring.repositories.IPisteRepository;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.spring.DTO.KeysetPage;
+import tn.esprit.spring.DTO.PisteDTO;
+import tn.esprit.spring.DTO.PisteSkierCount;
+import org.springframework.data.domain.PageRequest;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 @AllArgsConstructor
 @Service
@@ -12,23 +22,64 @@ public class PisteServicesImpl implements  IPisteServices{
 
     private IPisteRepository pisteRepository;
 
+    private NdjsonWriter ndjsonWriter;
+
+    private JsonSnapshots jsonSnapshots;
+
     @Override
     public List<Piste> retrieveAllPistes() {
         return pisteRepository.findAll();
     }
 
     @Override
+    public JsonSnapshot retrieveAllPistesSnapshot() {
+        return jsonSnapshots.get(CacheConfig.PISTES, pisteRepository::findAll);
+    }
+
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.PISTES, key = "#piste.numPiste", condition = "#piste.numPiste != null")
     public Piste addPiste(Piste piste) {
-        return pisteRepository.save(piste);
+        Piste saved = pisteRepository.save(piste);
+        jsonSnapshots.changed(CacheConfig.PISTES);
+        return saved;
     }
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.PISTES, key = "#numPiste")
     public void removePiste(Long numPiste) {
         pisteRepository.deleteById(numPiste);
+        jsonSnapshots.changed(CacheConfig.PISTES);
+    }
+
+    @Override
+    @Cacheable(cacheNames = CacheConfig.PISTES, unless = "#result == null")
+    public PisteDTO retrievePiste(Long numPiste) {
+        return pisteRepository.findById(numPiste).map(PisteDTO::of).orElse(null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAllPistes(OutputStream out) throws IOException {
+        ndjsonWriter.write(pisteRepository.streamAllBy(), out);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<Piste> retrievePistesPage(String cursor, Integer size) {
+        int pageSize = KeysetPage.size(size);
+        List<Piste> rows = pisteRepository.findByNumPisteGreaterThanOrderByNumPisteAsc(KeysetPage.decodeId(cursor), PageRequest.of(0, pageSize + 1));
+        return KeysetPage.of(rows, pageSize, row -> KeysetPage.encode(row.getNumPiste()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PisteSkierCount> retrieveSkierCounts() {
+        return pisteRepository.countSkiersGroupByPiste();
     }
 
     @Override
-    public Piste retrievePiste(Long numPiste) {
-        return pisteRepository.findById(numPiste).orElse(null);
+    @Transactional(readOnly = true)
+    public long countSkiers(Long numPiste) {
+        return pisteRepository.countSkiers(numPiste);
     }
 }
@@ -0,0 +1,32 @@
+package tn.esprit.spring.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.DTO.RegistrationStatus;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Counters of the registration decisions, exported as {@code registration.outcome{outcome=...}}.
+ */
+@Component
+public class RegistrationMetrics {
+
+    private final Map<RegistrationStatus, Counter> counters = new EnumMap<>(RegistrationStatus.class);
+
+    public RegistrationMetrics(MeterRegistry meterRegistry) {
+        for (RegistrationStatus status : RegistrationStatus.values()) {
+            counters.put(status, Counter.builder("registration.outcome")
+                    .description("Registration requests by decision")
+                    .tag("outcome", status.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+    }
+
+    public void record(RegistrationStatus status) {
+        counters.get(status).increment();
+    }
+}
@@ -0,0 +1,195 @@
+package tn.esprit.spring.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.DTO.RegistrationResultDTO;
+import tn.esprit.spring.DTO.RegistrationTicketDTO;
+import tn.esprit.spring.DTO.TicketState;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind pipeline for registration requests ({@code ski.registration.queue.enabled}).
+ * <p>
+ * Requests are put on a bounded queue and answered with a ticket; {@link #submit} returns
+ * null when the queue is full so callers can push back. A single writer thread drains the
+ * queue in micro-batches and registers each batch in one transaction, grouped by course and
+ * week, with the same rules as the group registration. When that transaction fails, each
+ * group is retried in its own, so that only the tickets of a failing group end up FAILED.
+ * Tickets can be polled for an hour.
+ */
+@Slf4j
+@Component
+public class RegistrationQueue {
+
+    private final IRegistrationServices registrationServices;
+
+    private final ICourseServices courseServices;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    private final BlockingQueue<RegistrationTicketDTO> queue;
+
+    private final Cache<String, RegistrationTicketDTO> tickets = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofHours(1))
+            .maximumSize(500_000)
+            .build();
+
+    private volatile Thread writer;
+
+    public RegistrationQueue(IRegistrationServices registrationServices,
+                             ICourseServices courseServices,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${ski.registration.queue.enabled:false}") boolean enabled,
+                             @Value("${ski.registration.queue.capacity:10000}") int capacity,
+                             @Value("${ski.registration.queue.batch-size:200}") int batchSize) {
+        this.registrationServices = registrationServices;
+        this.courseServices = courseServices;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        Gauge.builder("registration.queue.size", queue, BlockingQueue::size)
+                .description("Registration requests waiting for the writer")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || writer != null) {
+            return;
+        }
+        writer = new Thread(this::drain, "registration-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Registration queue started (capacity {}, batches of {})", queue.remainingCapacity(), batchSize);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Thread current = writer;
+        writer = null;
+        if (current != null) {
+            current.interrupt();
+            current.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /**
+     * Queues the request once the course and week have been checked.
+     *
+     * @return the ticket to poll, or null when the queue is full
+     * @throws IllegalArgumentException when the course does not exist or the week is invalid
+     */
+    public RegistrationTicketDTO submit(Long numSkier, Long numCourse, int numWeek) {
+        if (numSkier == null || numWeek < 1 || courseServices.retrieveCourse(numCourse) == null) {
+            throw new IllegalArgumentException("Unknown course or invalid week");
+        }
+        RegistrationTicketDTO ticket = new RegistrationTicketDTO(UUID.randomUUID().toString(), numSkier, numCourse,
+                numWeek, TicketState.QUEUED, null);
+        tickets.put(ticket.getTicket(), ticket);
+        if (!queue.offer(ticket)) {
+            tickets.invalidate(ticket.getTicket());
+            return null;
+        }
+        return ticket;
+    }
+
+    public RegistrationTicketDTO retrieveTicket(String ticket) {
+        return tickets.getIfPresent(ticket);
+    }
+
+    private void drain() {
+        List<RegistrationTicketDTO> batch = new ArrayList<>(batchSize);
+        while (writer == Thread.currentThread()) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("Registration batch of {} failed", batch.size(), e);
+                batch.forEach(ticket -> complete(ticket, TicketState.FAILED, null));
+            } finally {
+                batch.clear();
+            }
+        }
+        queue.forEach(ticket -> complete(ticket, TicketState.FAILED, null));
+        queue.clear();
+    }
+
+    private void process(List<RegistrationTicketDTO> batch) {
+        Map<List<Object>, List<RegistrationTicketDTO>> groups = new LinkedHashMap<>();
+        for (RegistrationTicketDTO ticket : batch) {
+            groups.computeIfAbsent(List.of(ticket.getNumCourse(), ticket.getNumWeek()), k -> new ArrayList<>())
+                    .add(ticket);
+        }
+        Map<RegistrationTicketDTO, RegistrationResultDTO> results = new LinkedHashMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> groups.values().forEach(group -> register(group, results)));
+        } catch (RuntimeException e) {
+            // The whole batch was rolled back: retry each group on its own
+            log.warn("Registration batch of {} failed, retrying its {} groups one by one", batch.size(), groups.size(), e);
+            results.clear();
+            for (List<RegistrationTicketDTO> group : groups.values()) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> register(group, results));
+                } catch (RuntimeException groupFailure) {
+                    RegistrationTicketDTO first = group.get(0);
+                    log.error("Registration of {} skiers to course {} week {} failed", group.size(),
+                            first.getNumCourse(), first.getNumWeek(), groupFailure);
+                    group.forEach(ticket -> results.put(ticket, null));
+                }
+            }
+        }
+        results.forEach((ticket, result) -> complete(ticket,
+                result != null ? TicketState.PROCESSED : TicketState.FAILED, result));
+    }
+
+    private void register(List<RegistrationTicketDTO> group, Map<RegistrationTicketDTO, RegistrationResultDTO> results) {
+        List<Long> numSkiers = new ArrayList<>(group.size());
+        group.forEach(ticket -> numSkiers.add(ticket.getNumSkier()));
+        RegistrationTicketDTO first = group.get(0);
+        List<RegistrationResultDTO> decided = registrationServices.addGroupRegistration(numSkiers,
+                first.getNumCourse(), first.getNumWeek());
+        // One result per requested skier, in the same order
+        for (int i = 0; i < group.size(); i++) {
+            results.put(group.get(i), decided != null ? decided.get(i) : null);
+        }
+    }
+
+    private void complete(RegistrationTicketDTO ticket, TicketState state, RegistrationResultDTO result) {
+        RegistrationTicketDTO done = new RegistrationTicketDTO(ticket.getTicket(), ticket.getNumSkier(),
+                ticket.getNumCourse(), ticket.getNumWeek(), state, result != null ? result.getStatus() : null);
+        tickets.asMap().computeIfPresent(ticket.getTicket(), (k, v) -> done);
+    }
+}
@@ -2,7 +2,19 @@ package tn.esprit.spring.services;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.DTO.CourseDTO;
+import tn.esprit.spring.DTO.RegistrationResultDTO;
+import tn.esprit.spring.DTO.RegistrationStatus;
+import tn.esprit.spring.DTO.TimetableSlotDTO;
+import tn.esprit.spring.DTO.WaitlistState;
+import tn.esprit.spring.DTO.WaitlistStatusDTO;
 import tn.esprit.spring.entities.*;
 import tn.esprit.spring.repositories.ICourseRepository;
 import tn.esprit.spring.repositories.IRegistrationRepository;
@@ -11,15 +23,34 @@ import tn.esprit.spring.repositories.ISkierRepository;
 import javax.transaction.Transactional;
 import java.time.LocalDate;
 import java.time.Period;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 @Slf4j
 @AllArgsConstructor
 @Service
 public class RegistrationServicesImpl implements  IRegistrationServices{
 
+    static final int MAX_PLACES_PER_COURSE = 6;
+
+    private static final String DUPLICATE_CONSTRAINT = "uk_registration_skier_course_week";
+
+    private static final TransactionDefinition OWN_TRANSACTION =
+            new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
     private IRegistrationRepository registrationRepository;
     private ISkierRepository skierRepository;
     private ICourseRepository courseRepository;
+    private ICourseServices courseServices;
+    private CourseCapacityLedger capacityLedger;
+    private RegistrationMetrics registrationMetrics;
+    private InstructorTimetable instructorTimetable;
+    private CourseWaitlist courseWaitlist;
+    private PlatformTransactionManager transactionManager;
 
 
     @Override
@@ -29,83 +60,264 @@ public class RegistrationServicesImpl implements  IRegistrationServices{
         registration.setSkier(skier);
         return registrationRepository.save(registration);
     }
+    // Not transactional, like addRegistrationAndAssignToSkierAndCourse: the seat and the move
+    // get a transaction of their own, so a move that fails gives the seat back.
     @Override
     public Registration assignRegistrationToCourse(Long numRegistration, Long numCourse) {
         Registration registration = registrationRepository.findById(numRegistration)
                 .orElseThrow(() -> new RuntimeException("Registration not found"));
-        Course course = courseRepository.findById(numCourse)
-                .orElseThrow(() -> new RuntimeException("Course not found"));
+        CourseDTO course = courseServices.retrieveCourse(numCourse);
+        if (course == null) {
+            throw new RuntimeException("Course not found");
+        }
+        Course previous = registration.getCourse();
+        if (previous != null && previous.getNumCourse().equals(numCourse)) {
+            return registration;
+        }
+        Skier skier = registration.getSkier();
+        if (skier != null && !ageAllowed(course.getTypeCourse(), Period.between(skier.getDateOfBirth(), LocalDate.now()).getYears())) {
+            registrationMetrics.record(RegistrationStatus.WRONG_AGE);
+            return null;
+        }
 
-        registration.setCourse(course);
-        return registrationRepository.save(registration); // Save the registration with the course assigned.
+        int numWeek = registration.getNumWeek();
+        Registration saved;
+        try {
+            saved = new TransactionTemplate(transactionManager, OWN_TRANSACTION).execute(tx -> {
+                if (course.getTypeCourse() == TypeCourse.INDIVIDUAL) {
+                    capacityLedger.reserve(numCourse, numWeek);
+                } else if (!takeSeat(numCourse, numWeek)) {
+                    return null;
+                }
+                registration.setCourse(courseRepository.getById(numCourse));
+                Registration moved = registrationRepository.save(registration);
+                if (previous != null) {
+                    capacityLedger.release(previous.getNumCourse(), numWeek);
+                    instructorTimetable.registrationRemoved(previous.getNumCourse(), previous.getSupport(), numWeek);
+                    courseWaitlist.seatFreed(previous.getNumCourse(), numWeek);
+                }
+                instructorTimetable.registrationAdded(numCourse, course.getSupport(), numWeek);
+                return moved;
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (!isDuplicate(e)) {
+                throw e;
+            }
+            registrationMetrics.record(RegistrationStatus.DUPLICATE);
+            return null;
+        }
+        if (saved == null) {
+            log.info("Full Course ! Registration {} stays in its course", numRegistration);
+        }
+        registrationMetrics.record(saved != null ? RegistrationStatus.ACCEPTED : RegistrationStatus.FULL);
+        return saved;
     }
 
-
-
-    @Transactional
+    // Not transactional: the seat and the insert get a transaction of their own, see register
     @Override
     public Registration addRegistrationAndAssignToSkierAndCourse(Registration registration, Long numSkieur, Long numCours) {
         Skier skier = skierRepository.findById(numSkieur).orElse(null);
-        Course course = courseRepository.findById(numCours).orElse(null);
+        CourseDTO course = courseServices.retrieveCourse(numCours);
 
         if (skier == null || course == null) {
             return null;
         }
 
-        if(registrationRepository.countDistinctByNumWeekAndSkier_NumSkierAndCourse_NumCourse(registration.getNumWeek(), skier.getNumSkier(), course.getNumCourse()) >=1){
-            log.info("Sorry, you're already register to this course of the week :" + registration.getNumWeek());
-            return null;
-        }
-
         int ageSkieur = Period.between(skier.getDateOfBirth(), LocalDate.now()).getYears();
-        log.info("Age " + ageSkieur);
+        log.debug("Age {}", ageSkieur);
 
         switch (course.getTypeCourse()) {
             case INDIVIDUAL:
-                log.info("add without tests");
-                return assignRegistration(registration, skier, course);
+                log.debug("add without tests");
+                return register(registration, skier, course) == RegistrationStatus.ACCEPTED ? registration : null;
 
             case COLLECTIVE_CHILDREN:
                 if (ageSkieur < 16) {
-                    log.info("Ok CHILD !");
-                    if (registrationRepository.countByCourseAndNumWeek(course, registration.getNumWeek()) < 6) {
-                        log.info("Course successfully added !");
-                        return assignRegistration(registration, skier, course);
-                    } else {
-                        log.info("Full Course ! Please choose another week to register !");
-                        return null;
-                    }
+                    log.debug("Ok CHILD !");
+                    return register(registration, skier, course) == RegistrationStatus.ACCEPTED ? registration : null;
                 }
                 else{
                     log.info("Sorry, your age doesn't allow you to register for this course ! \n Try to Register to a Collective Adult Course...");
+                    registrationMetrics.record(RegistrationStatus.WRONG_AGE);
                 }
                 break;
 
             default:
                 if (ageSkieur >= 16) {
-                    log.info("Ok ADULT !");
-                    if (registrationRepository.countByCourseAndNumWeek(course, registration.getNumWeek()) < 6) {
-                        log.info("Course successfully added !");
-                        return assignRegistration(registration, skier, course);
-                    } else {
-                        log.info("Full Course ! Please choose another week to register !");
-                        return null;
-                    }
+                    log.debug("Ok ADULT !");
+                    return register(registration, skier, course) == RegistrationStatus.ACCEPTED ? registration : null;
                 }
                 log.info("Sorry, your age doesn't allow you to register for this course ! \n Try to Register to a Collective Child Course...");
+                registrationMetrics.record(RegistrationStatus.WRONG_AGE);
         }
         return registration;
 
     }
-    private Registration assignRegistration (Registration registration, Skier skier, Course course){
+    @Transactional
+    @Override
+    public List<RegistrationResultDTO> addGroupRegistration(List<Long> numSkiers, Long numCourse, int numWeek) {
+        CourseDTO course = courseServices.retrieveCourse(numCourse);
+        if (course == null) {
+            return null;
+        }
+        Map<Long, Skier> skiers = new HashMap<>();
+        for (Skier skier : skierRepository.findAllWithSubscriptionById(numSkiers)) {
+            skiers.put(skier.getNumSkier(), skier);
+        }
+        Set<Long> registered = skiers.isEmpty() ? new HashSet<>()
+                : new HashSet<>(registrationRepository.findRegisteredSkiers(numCourse, numWeek, skiers.keySet()));
+
+        LocalDate today = LocalDate.now();
+        List<RegistrationResultDTO> results = new ArrayList<>(numSkiers.size());
+        List<Long> accepted = new ArrayList<>();
+        for (Long numSkier : numSkiers) {
+            Skier skier = skiers.get(numSkier);
+            RegistrationStatus status;
+            if (skier == null) {
+                status = RegistrationStatus.UNKNOWN_SKIER;
+            } else if (!registered.add(numSkier)) {
+                status = RegistrationStatus.DUPLICATE;
+            } else if (!ageAllowed(course.getTypeCourse(), Period.between(skier.getDateOfBirth(), today).getYears())) {
+                status = RegistrationStatus.WRONG_AGE;
+            } else if (course.getTypeCourse() == TypeCourse.INDIVIDUAL) {
+                capacityLedger.reserve(numCourse, numWeek);
+                status = RegistrationStatus.ACCEPTED;
+            } else if (takeSeat(numCourse, numWeek)) {
+                status = RegistrationStatus.ACCEPTED;
+            } else {
+                status = RegistrationStatus.FULL;
+            }
+            if (status == RegistrationStatus.ACCEPTED) {
+                accepted.add(numSkier);
+            }
+            registrationMetrics.record(status);
+            results.add(new RegistrationResultDTO(numSkier, status));
+        }
+        registrationRepository.batchInsert(accepted, numCourse, numWeek);
+        instructorTimetable.registrationsAdded(numCourse, course.getSupport(), numWeek, accepted.size());
+        log.info("Group registration to course {} week {}: {}/{} accepted",
+                numCourse, numWeek, accepted.size(), numSkiers.size());
+        return results;
+    }
+
+    // Not transactional, like addRegistrationAndAssignToSkierAndCourse: the waitlist entry is
+    // committed before the skier is told its position.
+    @Override
+    public WaitlistStatusDTO addRegistrationOrWait(Long numSkier, Long numCourse, int numWeek) {
+        Skier skier = skierRepository.findById(numSkier).orElse(null);
+        CourseDTO course = courseServices.retrieveCourse(numCourse);
+        if (skier == null || course == null) {
+            return null;
+        }
+        if (!ageAllowed(course.getTypeCourse(), Period.between(skier.getDateOfBirth(), LocalDate.now()).getYears())) {
+            registrationMetrics.record(RegistrationStatus.WRONG_AGE);
+            return new WaitlistStatusDTO(numSkier, numCourse, numWeek, WaitlistState.WRONG_AGE, null, null);
+        }
+        Registration registration = new Registration();
+        registration.setNumWeek(numWeek);
+        // A duplicate is a skier already registered, which is registered all the same
+        if (register(registration, skier, course) == RegistrationStatus.FULL
+                && registrationRepository.findRegisteredSkiers(numCourse, numWeek, List.of(numSkier)).isEmpty()) {
+            return courseWaitlist.join(numSkier, numCourse, numWeek);
+        }
+        return new WaitlistStatusDTO(numSkier, numCourse, numWeek, WaitlistState.REGISTERED, null, null);
+    }
+
+    @Transactional
+    @Override
+    public boolean removeRegistration(Long numRegistration) {
+        Registration registration = registrationRepository.findById(numRegistration).orElse(null);
+        if (registration == null) {
+            return false;
+        }
+        registrationRepository.delete(registration);
+        Course course = registration.getCourse();
+        if (course != null) {
+            capacityLedger.release(course.getNumCourse(), registration.getNumWeek());
+            instructorTimetable.registrationRemoved(course.getNumCourse(), course.getSupport(), registration.getNumWeek());
+            courseWaitlist.seatFreed(course.getNumCourse(), registration.getNumWeek());
+        }
+        return true;
+    }
+
+    // A seat of a collective course, unless it is full or already promised to the waitlist
+    private boolean takeSeat(Long numCourse, int numWeek) {
+        return !courseWaitlist.hasWaiting(numCourse, numWeek)
+                && capacityLedger.tryReserve(numCourse, numWeek, MAX_PLACES_PER_COURSE);
+    }
+
+    static boolean ageAllowed(TypeCourse typeCourse, int age) {
+        switch (typeCourse) {
+            case INDIVIDUAL:
+                return true;
+            case COLLECTIVE_CHILDREN:
+                return age < 16;
+            default:
+                return age >= 16;
+        }
+    }
+
+    /**
+     * Takes a seat of the course and inserts the registration in a transaction of their own:
+     * the seat counts as in flight until the insert commits, and any failure of the insert
+     * gives it back with the rollback. A duplicate is detected by the unique (skier, course,
+     * week) constraint; the caller's transaction, if any, is not marked for rollback.
+     */
+    private RegistrationStatus register(Registration registration, Skier skier, CourseDTO course) {
+        Long numCourse = course.getNumCourse();
+        int numWeek = registration.getNumWeek();
+        RegistrationStatus status;
+        try {
+            status = new TransactionTemplate(transactionManager, OWN_TRANSACTION).execute(tx -> {
+                if (course.getTypeCourse() == TypeCourse.INDIVIDUAL) {
+                    capacityLedger.reserve(numCourse, numWeek);
+                } else if (!takeSeat(numCourse, numWeek)) {
+                    return RegistrationStatus.FULL;
+                }
+                assignRegistration(registration, skier, course);
+                return RegistrationStatus.ACCEPTED;
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (!isDuplicate(e)) {
+                throw e;
+            }
+            status = RegistrationStatus.DUPLICATE;
+        }
+        if (status == RegistrationStatus.FULL) {
+            log.info("Full Course ! Please choose another week to register !");
+        } else if (status == RegistrationStatus.DUPLICATE) {
+            log.info("Sorry, you're already register to this course of the week : {}", numWeek);
+        } else {
+            log.debug("Course successfully added !");
+        }
+        registrationMetrics.record(status);
+        return status;
+    }
+
+    private static boolean isDuplicate(DataIntegrityViolationException e) {
+        if (!(e.getCause() instanceof ConstraintViolationException)) {
+            return false;
+        }
+        String constraint = ((ConstraintViolationException) e.getCause()).getConstraintName();
+        return constraint != null && constraint.toLowerCase(Locale.ROOT).contains(DUPLICATE_CONSTRAINT);
+    }
+
+    private Registration assignRegistration (Registration registration, Skier skier, CourseDTO course){
         registration.setSkier(skier);
-        registration.setCourse(course);
-        return registrationRepository.save(registration);
+        registration.setCourse(courseRepository.getById(course.getNumCourse()));
+        Registration saved = registrationRepository.save(registration);
+        instructorTimetable.registrationAdded(course.getNumCourse(), course.getSupport(), saved.getNumWeek());
+        return saved;
     }
 
     @Override
     public List<Integer> numWeeksCourseOfInstructorBySupport(Long numInstructor, Support support) {
-        return registrationRepository.numWeeksCourseOfInstructorBySupport(numInstructor, support);
+        return instructorTimetable.weeks(numInstructor, support);
+    }
+
+    @Override
+    public List<TimetableSlotDTO> retrieveInstructorTimetable(Long numInstructor) {
+        return instructorTimetable.timetable(numInstructor);
     }
 
 }
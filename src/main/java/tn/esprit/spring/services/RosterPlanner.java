@@ -0,0 +1,418 @@
+package tn.esprit.spring.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.DTO.CourseWeekCount;
+import tn.esprit.spring.DTO.InstructorCourse;
+import tn.esprit.spring.DTO.RosterAssignmentDTO;
+import tn.esprit.spring.DTO.RosterPlanDTO;
+import tn.esprit.spring.DTO.RosterRequestDTO;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Instructor;
+import tn.esprit.spring.entities.Support;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IInstructorRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Plans which instructor teaches each course of the season.
+ * <p>
+ * Two courses conflict when they have the same time slot and registrations in a common week;
+ * an instructor only gets courses that don't conflict, in the supports it teaches. Randomized
+ * greedy searches (most constrained course first, least loaded instructor first, then moving
+ * one course aside when no instructor is free) run in parallel on a fork-join pool until the
+ * time budget is spent or a plan places every course at the lowest possible load. The best
+ * plan places the most courses, then has the lowest maximum load.
+ * <p>
+ * The problem is loaded in a short read-only transaction; the search itself runs with no
+ * transaction open, so it holds no database connection for its time budget. A plan that is
+ * only shown is loaded from a replica; one that is about to be applied, from the primary.
+ */
+@Slf4j
+@Component
+public class RosterPlanner {
+
+    private static final long MAX_TIME_BUDGET_MS = 60_000;
+
+    private final ICourseRepository courseRepository;
+
+    private final IInstructorRepository instructorRepository;
+
+    private final IRegistrationRepository registrationRepository;
+
+    private final InstructorTimetable instructorTimetable;
+
+    private final TransactionTemplate replicaTransaction;
+
+    private final TransactionTemplate primaryTransaction;
+
+    private final long defaultTimeBudgetMs;
+
+    private final ForkJoinPool pool;
+
+    public RosterPlanner(ICourseRepository courseRepository,
+                         IInstructorRepository instructorRepository,
+                         IRegistrationRepository registrationRepository,
+                         InstructorTimetable instructorTimetable,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${ski.roster.time-budget-ms:2000}") long defaultTimeBudgetMs,
+                         @Value("${ski.roster.parallelism:0}") int parallelism) {
+        this.courseRepository = courseRepository;
+        this.instructorRepository = instructorRepository;
+        this.registrationRepository = registrationRepository;
+        this.instructorTimetable = instructorTimetable;
+        this.replicaTransaction = new TransactionTemplate(transactionManager);
+        this.replicaTransaction.setReadOnly(true);
+        // Named like the transaction of a service method, so that it reads a replica
+        this.replicaTransaction.setName(RosterPlanner.class.getName() + ".plan");
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+        this.primaryTransaction.setReadOnly(true);
+        this.defaultTimeBudgetMs = defaultTimeBudgetMs;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * @param forUpdate whether the plan is about to be applied, in which case it is loaded from
+     *                  the primary rather than from a possibly lagging replica
+     */
+    public RosterPlanDTO plan(RosterRequestDTO request, boolean forUpdate) {
+        long start = System.nanoTime();
+        Problem problem = (forUpdate ? primaryTransaction : replicaTransaction).execute(status -> problem(request));
+        long budgetMs = Math.min(request.getTimeBudgetMs() != null ? request.getTimeBudgetMs() : defaultTimeBudgetMs,
+                MAX_TIME_BUDGET_MS);
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+
+        AtomicReference<Attempt> best = new AtomicReference<>();
+        AtomicLong seeds = new AtomicLong();
+        List<ForkJoinTask<?>> workers = new ArrayList<>();
+        for (int i = 0; i < pool.getParallelism(); i++) {
+            workers.add(pool.submit(() -> {
+                Attempt found;
+                do {
+                    found = best.accumulateAndGet(problem.search(new SplittableRandom(seeds.getAndIncrement())),
+                            Attempt::better);
+                } while (!problem.isOptimal(found) && System.nanoTime() < deadline);
+            }));
+        }
+        workers.forEach(ForkJoinTask::join);
+
+        RosterPlanDTO plan = problem.toPlan(best.get());
+        plan.setAttempts(seeds.get());
+        plan.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("Roster planned in {} ms over {} attempts: {}/{} courses placed, max load {}", plan.getElapsedMs(),
+                plan.getAttempts(), plan.getAssignments().size(), plan.getPlannedCourses(), plan.getMaxLoad());
+        return plan;
+    }
+
+    /**
+     * Writes the plan to the instructor_courses join table. With {@code replace}, the planned
+     * courses are first taken from their current instructors; otherwise a course assigned
+     * since the plan was made fails the unique constraint and nothing is written.
+     */
+    @Transactional
+    public RosterPlanDTO apply(RosterPlanDTO plan, boolean replace) {
+        List<Long> planned = new ArrayList<>(plan.getUnassigned());
+        plan.getAssignments().forEach(assignment -> planned.add(assignment.getNumCourse()));
+        instructorRepository.replaceCourseAssignments(replace ? planned : List.of(), plan.getAssignments());
+        // A roster moves most courses at once: the timetable is reloaded rather than patched
+        AfterCommit.run(instructorTimetable::rebuild);
+        plan.setApplied(true);
+        return plan;
+    }
+
+    private Problem problem(RosterRequestDTO request) {
+        List<Instructor> instructors = instructorRepository.findAll(Sort.by("numInstructor"));
+        Map<Long, Integer> instructorIndex = new HashMap<>();
+        List<EnumSet<Support>> supports = new ArrayList<>();
+        for (Instructor instructor : instructors) {
+            instructorIndex.put(instructor.getNumInstructor(), supports.size());
+            supports.add(EnumSet.noneOf(Support.class));
+        }
+
+        Map<Long, List<Integer>> weeks = new HashMap<>();
+        for (CourseWeekCount count : registrationRepository.countGroupByCourseAndNumWeek()) {
+            weeks.computeIfAbsent(count.getNumCourse(), k -> new ArrayList<>()).add(count.getNumWeek());
+        }
+        Map<Long, Integer> owners = new HashMap<>();
+        for (InstructorCourse row : instructorRepository.findAllInstructorCourses()) {
+            Integer owner = instructorIndex.get(row.getNumInstructor());
+            owners.put(row.getCourse().getNumCourse(), owner);
+            if (row.getCourse().getSupport() != null) {
+                supports.get(owner).add(row.getCourse().getSupport());
+            }
+        }
+        Map<Long, Set<Support>> requested = request.getSupports() != null ? request.getSupports() : Map.of();
+        for (Instructor instructor : instructors) {
+            EnumSet<Support> taught = supports.get(instructorIndex.get(instructor.getNumInstructor()));
+            Set<Support> given = requested.get(instructor.getNumInstructor());
+            if (given != null) {
+                taught.clear();
+                taught.addAll(given);
+            } else if (taught.isEmpty()) {
+                taught.addAll(EnumSet.allOf(Support.class));
+            }
+        }
+
+        Problem problem = new Problem(instructors);
+        for (Course course : courseRepository.findAll(Sort.by("numCourse"))) {
+            BitSet cells = problem.cells(course.getTimeSlot(), weeks.getOrDefault(course.getNumCourse(), List.of()));
+            Integer owner = owners.get(course.getNumCourse());
+            if (owner != null && !request.isReplace()) {
+                problem.keep(owner, cells);
+                continue;
+            }
+            int[] eligible = new int[instructors.size()];
+            int count = 0;
+            for (int i = 0; i < instructors.size(); i++) {
+                if (course.getSupport() == null || supports.get(i).contains(course.getSupport())) {
+                    eligible[count++] = i;
+                }
+            }
+            problem.plan(course.getNumCourse(), cells, Arrays.copyOf(eligible, count));
+        }
+        return problem;
+    }
+
+    /**
+     * The courses to place, as (week, time slot) cells, and what the kept courses already
+     * take. Read-only once built, so searches share it.
+     */
+    private static final class Problem {
+        final List<Long> numInstructors = new ArrayList<>();
+        final List<Long> numCourses = new ArrayList<>();
+        final List<BitSet> courseCells = new ArrayList<>();
+        final List<int[]> eligible = new ArrayList<>();
+        final BitSet[] keptCells;
+        final int[] keptLoad;
+        final Map<Long, Integer> cellIds = new HashMap<>();
+
+        Problem(List<Instructor> instructors) {
+            keptCells = new BitSet[instructors.size()];
+            keptLoad = new int[instructors.size()];
+            for (int i = 0; i < keptCells.length; i++) {
+                numInstructors.add(instructors.get(i).getNumInstructor());
+                keptCells[i] = new BitSet();
+            }
+        }
+
+        BitSet cells(int timeSlot, List<Integer> weeks) {
+            BitSet cells = new BitSet();
+            for (int week : weeks) {
+                cells.set(cellIds.computeIfAbsent(((long) week << 32) | (timeSlot & 0xFFFFFFFFL), k -> cellIds.size()));
+            }
+            return cells;
+        }
+
+        void keep(int instructor, BitSet cells) {
+            keptCells[instructor].or(cells);
+            keptLoad[instructor]++;
+        }
+
+        void plan(Long numCourse, BitSet cells, int[] eligibleInstructors) {
+            numCourses.add(numCourse);
+            courseCells.add(cells);
+            eligible.add(eligibleInstructors);
+        }
+
+        int size() {
+            return numCourses.size();
+        }
+
+        // Lowest possible maximum load: every course placed and spread evenly
+        int loadBound() {
+            int total = size();
+            int bound = 0;
+            for (int load : keptLoad) {
+                total += load;
+                bound = Math.max(bound, load);
+            }
+            return keptLoad.length == 0 ? 0 : Math.max(bound, (total + keptLoad.length - 1) / keptLoad.length);
+        }
+
+        boolean isOptimal(Attempt attempt) {
+            return keptLoad.length == 0 || attempt.placed == size() && attempt.maxLoad <= loadBound();
+        }
+
+        Attempt search(SplittableRandom random) {
+            int instructors = keptCells.length;
+            BitSet[] taken = new BitSet[instructors];
+            int[] load = keptLoad.clone();
+            List<List<Integer>> taught = new ArrayList<>(instructors);
+            for (int i = 0; i < instructors; i++) {
+                taken[i] = (BitSet) keptCells[i].clone();
+                taught.add(new ArrayList<>());
+            }
+            int[] owner = new int[size()];
+            Arrays.fill(owner, -1);
+
+            // Fewest instructors first, then most cells; ties broken at random
+            Integer[] order = new Integer[size()];
+            for (int c = 0; c < order.length; c++) {
+                order[c] = c;
+            }
+            for (int c = order.length - 1; c > 0; c--) {
+                int other = random.nextInt(c + 1);
+                Integer swap = order[c];
+                order[c] = order[other];
+                order[other] = swap;
+            }
+            Arrays.sort(order, Comparator.<Integer>comparingInt(c -> eligible.get(c).length)
+                    .thenComparing(c -> -courseCells.get(c).cardinality()));
+
+            int placed = 0;
+            for (int course : order) {
+                int chosen = leastLoaded(course, -1, taken, load, random);
+                if (chosen >= 0) {
+                    assign(course, chosen, owner, taken, load, taught);
+                    placed++;
+                } else if (moveAside(course, owner, taken, load, taught, random)) {
+                    placed++;
+                }
+            }
+            int maxLoad = 0;
+            long squares = 0;
+            for (int value : load) {
+                maxLoad = Math.max(maxLoad, value);
+                squares += (long) value * value;
+            }
+            return new Attempt(owner, placed, maxLoad, squares);
+        }
+
+        private int leastLoaded(int course, int excluded, BitSet[] taken, int[] load, SplittableRandom random) {
+            BitSet cells = courseCells.get(course);
+            int chosen = -1;
+            int ties = 0;
+            for (int instructor : eligible.get(course)) {
+                if (instructor == excluded || taken[instructor].intersects(cells)) {
+                    continue;
+                }
+                if (chosen < 0 || load[instructor] < load[chosen]) {
+                    chosen = instructor;
+                    ties = 1;
+                } else if (load[instructor] == load[chosen] && random.nextInt(++ties) == 0) {
+                    chosen = instructor;
+                }
+            }
+            return chosen;
+        }
+
+        // Frees an instructor whose only conflict is one planned course that another instructor can take
+        private boolean moveAside(int course, int[] owner, BitSet[] taken, int[] load, List<List<Integer>> taught,
+                                  SplittableRandom random) {
+            BitSet cells = courseCells.get(course);
+            int[] candidates = eligible.get(course);
+            int offset = candidates.length > 0 ? random.nextInt(candidates.length) : 0;
+            for (int n = 0; n < candidates.length; n++) {
+                int instructor = candidates[(offset + n) % candidates.length];
+                if (keptCells[instructor].intersects(cells)) {
+                    continue;
+                }
+                int blocking = -1;
+                for (int other : taught.get(instructor)) {
+                    if (courseCells.get(other).intersects(cells)) {
+                        if (blocking >= 0) {
+                            blocking = -2;
+                            break;
+                        }
+                        blocking = other;
+                    }
+                }
+                if (blocking < 0) {
+                    continue;
+                }
+                int target = leastLoaded(blocking, instructor, taken, load, random);
+                if (target >= 0) {
+                    unassign(blocking, owner, taken, load, taught);
+                    assign(blocking, target, owner, taken, load, taught);
+                    assign(course, instructor, owner, taken, load, taught);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void assign(int course, int instructor, int[] owner, BitSet[] taken, int[] load, List<List<Integer>> taught) {
+            owner[course] = instructor;
+            taken[instructor].or(courseCells.get(course));
+            load[instructor]++;
+            taught.get(instructor).add(course);
+        }
+
+        // The courses of an instructor don't conflict, so their cells are disjoint
+        private void unassign(int course, int[] owner, BitSet[] taken, int[] load, List<List<Integer>> taught) {
+            int instructor = owner[course];
+            owner[course] = -1;
+            taken[instructor].andNot(courseCells.get(course));
+            load[instructor]--;
+            taught.get(instructor).remove(Integer.valueOf(course));
+        }
+
+        RosterPlanDTO toPlan(Attempt attempt) {
+            List<RosterAssignmentDTO> assignments = new ArrayList<>();
+            List<Long> unassigned = new ArrayList<>();
+            for (int c = 0; c < size(); c++) {
+                if (attempt != null && attempt.owner[c] >= 0) {
+                    assignments.add(new RosterAssignmentDTO(numInstructors.get(attempt.owner[c]), numCourses.get(c)));
+                } else {
+                    unassigned.add(numCourses.get(c));
+                }
+            }
+            int maxLoad = attempt != null ? attempt.maxLoad : Arrays.stream(keptLoad).max().orElse(0);
+            return new RosterPlanDTO(assignments, unassigned, size(), maxLoad, 0, 0, false);
+        }
+    }
+
+    private static final class Attempt {
+        final int[] owner;
+        final int placed;
+        final int maxLoad;
+        final long squares;
+
+        Attempt(int[] owner, int placed, int maxLoad, long squares) {
+            this.owner = owner;
+            this.placed = placed;
+            this.maxLoad = maxLoad;
+            this.squares = squares;
+        }
+
+        static Attempt better(Attempt current, Attempt candidate) {
+            if (current == null) {
+                return candidate;
+            }
+            if (candidate.placed != current.placed) {
+                return candidate.placed > current.placed ? candidate : current;
+            }
+            if (candidate.maxLoad != current.maxLoad) {
+                return candidate.maxLoad < current.maxLoad ? candidate : current;
+            }
+            return candidate.squares < current.squares ? candidate : current;
+        }
+    }
+}
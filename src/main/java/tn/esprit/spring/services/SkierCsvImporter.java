@@ -0,0 +1,205 @@
+package tn.esprit.spring.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.DTO.SkierImportSummaryDTO;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.repositories.ISkierRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.LineNumberReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams a CSV file of skiers into the database.
+ * <p>
+ * Expected columns: {@code firstName,lastName,dateOfBirth,city,typeSub,startDate,price}, dates
+ * as {@code yyyy-MM-dd}, with a header line. Fields are quoted as in RFC 4180: a field in
+ * double quotes may hold commas, line breaks and doubled quotes. The file is read record by
+ * record and written in chunks of {@code ski.import.chunk-size} rows, each chunk in its own
+ * transaction with two JDBC batches. Invalid records, and the records of a chunk that fails,
+ * are reported as rejected, by the number of their first line.
+ */
+@Slf4j
+@Component
+public class SkierCsvImporter {
+
+    private static final int COLUMNS = 7;
+
+    private static final int MAX_REPORTED_LINES = 1000;
+
+    // Longest quoted field, so that a quote left open does not swallow the rest of the file
+    private static final int MAX_FIELD_LENGTH = 1000;
+
+    private final ISkierRepository skierRepository;
+
+    private final SubscriptionRevenueAggregator revenueAggregator;
+
+    private final SkierPassIndex passIndex;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int chunkSize;
+
+    public SkierCsvImporter(ISkierRepository skierRepository,
+                            SubscriptionRevenueAggregator revenueAggregator,
+                            SkierPassIndex passIndex,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${ski.import.chunk-size:1000}") int chunkSize) {
+        this.skierRepository = skierRepository;
+        this.revenueAggregator = revenueAggregator;
+        this.passIndex = passIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    public SkierImportSummaryDTO importSkiers(InputStream csv) throws IOException {
+        SkierImportSummaryDTO summary = new SkierImportSummaryDTO(0, 0, new ArrayList<>());
+        LineNumberReader reader = new LineNumberReader(new InputStreamReader(csv, StandardCharsets.UTF_8));
+        List<Skier> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+        String header = reader.readLine();
+        if (header != null) {
+            fields(header, reader);
+        }
+        String line;
+        while ((line = reader.readLine()) != null) {
+            long lineNumber = reader.getLineNumber();
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> fields = fields(line, reader);
+            Skier skier = fields != null ? parse(fields) : null;
+            if (skier == null) {
+                reject(summary, lineNumber);
+                continue;
+            }
+            chunk.add(skier);
+            chunkLines.add(lineNumber);
+            if (chunk.size() == chunkSize) {
+                flush(chunk, chunkLines, summary);
+            }
+        }
+        flush(chunk, chunkLines, summary);
+        log.info("Skier import: {} imported, {} rejected", summary.getImported(), summary.getRejected());
+        return summary;
+    }
+
+    private void flush(List<Skier> chunk, List<Long> chunkLines, SkierImportSummaryDTO summary) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                skierRepository.batchInsert(chunk);
+                chunk.forEach(skier -> {
+                    revenueAggregator.added(skier.getSubscription());
+                    passIndex.skierSaved(skier);
+                });
+            });
+            summary.setImported(summary.getImported() + chunk.size());
+        } catch (RuntimeException e) {
+            log.warn("Skier import chunk of lines {}-{} failed", chunkLines.get(0), chunkLines.get(chunkLines.size() - 1), e);
+            chunkLines.forEach(lineNumber -> reject(summary, lineNumber));
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    /**
+     * Splits the record starting with this line into its fields. A quoted field left open at
+     * the end of the line goes on with the next lines of the reader.
+     *
+     * @return the fields, or null when the quoting is malformed
+     */
+    private static List<String> fields(String line, LineNumberReader reader) throws IOException {
+        List<String> fields = new ArrayList<>(COLUMNS);
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            if (i < line.length() && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i == line.length()) {
+                        String next = field.length() < MAX_FIELD_LENGTH ? reader.readLine() : null;
+                        if (next == null) {
+                            return null;
+                        }
+                        field.append('\n');
+                        line = next;
+                        i = 0;
+                    } else if (line.charAt(i) != '"') {
+                        field.append(line.charAt(i++));
+                    } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i += 2;
+                    } else {
+                        i++;
+                        break;
+                    }
+                }
+                // Nothing but the separator may follow the closing quote
+                if (i < line.length() && line.charAt(i) != ',') {
+                    return null;
+                }
+            } else {
+                int end = line.indexOf(',', i);
+                if (end < 0) {
+                    end = line.length();
+                }
+                if (line.substring(i, end).indexOf('"') >= 0) {
+                    return null;
+                }
+                field.append(line, i, end);
+                i = end;
+            }
+            fields.add(field.toString());
+            field.setLength(0);
+            if (i == line.length()) {
+                return fields;
+            }
+            i++;
+        }
+    }
+
+    private static Skier parse(List<String> fields) {
+        if (fields.size() != COLUMNS) {
+            return null;
+        }
+        try {
+            TypeSubscription type = TypeSubscription.valueOf(fields.get(4).trim());
+            LocalDate startDate = LocalDate.parse(fields.get(5).trim());
+            float price = Float.parseFloat(fields.get(6).trim());
+            if (price <= 0) {
+                return null;
+            }
+            Skier skier = new Skier();
+            skier.setFirstName(fields.get(0).trim());
+            skier.setLastName(fields.get(1).trim());
+            skier.setDateOfBirth(LocalDate.parse(fields.get(2).trim()));
+            skier.setCity(fields.get(3).trim());
+            skier.setSubscription(new Subscription(null, startDate,
+                    SubscriptionServicesImpl.computeEndDate(type, startDate), price, type));
+            return skier;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void reject(SkierImportSummaryDTO summary, long lineNumber) {
+        summary.setRejected(summary.getRejected() + 1);
+        if (summary.getRejectedLines().size() < MAX_REPORTED_LINES) {
+            summary.getRejectedLines().add(lineNumber);
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package tn.esprit.spring.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.spring.DTO.PassCheckDTO;
+import tn.esprit.spring.DTO.SkierPass;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.repositories.ISkierRepository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+
+/**
+ * Validity dates of the skiers' subscriptions, for the lift gates.
+ * <p>
+ * The index is an open addressing hash table over two primitive arrays: the skier ids and the
+ * start and end dates packed as epoch days in one long, so a million skiers take 16 to 32 MB
+ * and a lookup allocates nothing. Reads are optimistic and only retry under the read lock if a
+ * write happened meanwhile. It is built on startup and, like the other running totals,
+ * updated when the transaction that changed a skier or subscription commits.
+ * <p>
+ * Only a valid pass is answered from memory. A skier missing from the index or whose pass
+ * does not cover the day is looked up in the database and the index corrected, since the pass
+ * may have been sold or renewed through another node. A skier checked in the database is
+ * answered from memory again for {@code ski.passes.refusal-ttl-ms}, so a refused or unknown
+ * skier does not reach the database on every gate. The lookup only corrects the index if the
+ * write lock is free at once, so a gate never waits for a rebuild or a resize.
+ * <p>
+ * The index is also rebuilt on a fixed delay, for the passes shortened or removed elsewhere.
+ * Writes made while the rebuild streams the passes are recorded and replayed onto the new
+ * table before it is swapped in, so none of them is lost.
+ */
+@Slf4j
+@Component
+public class SkierPassIndex {
+
+    // Skier ids are IDENTITY generated from 1, so 0 marks a free slot
+    private static final long FREE = 0L;
+
+    private static final long NO_PASS = Long.MIN_VALUE;
+
+    private static final int MIN_CAPACITY = 1 << 10;
+
+    private final ISkierRepository skierRepository;
+
+    private final StampedLock lock = new StampedLock();
+
+    private Table table = new Table(MIN_CAPACITY);
+
+    // Writes made during a rebuild, last one per skier, replayed onto the rebuilt table; null
+    // when no rebuild runs. Guarded by the write lock.
+    private Map<Long, Long> pending;
+
+    // Skiers checked in the database lately, whatever the answer
+    private final Cache<Long, Boolean> checked;
+
+    public SkierPassIndex(ISkierRepository skierRepository,
+                          @Value("${ski.passes.refusal-ttl-ms:5000}") long refusalTtlMs) {
+        this.skierRepository = skierRepository;
+        this.checked = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(refusalTtlMs))
+                .maximumSize(100_000)
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${ski.passes.rebuild-ms:600000}", initialDelayString = "${ski.passes.rebuild-ms:600000}")
+    // Not read-only: a replica would hand its lag over to the index until the next rebuild
+    @Transactional
+    public synchronized void rebuild() {
+        long stamp = lock.writeLock();
+        try {
+            pending = new LinkedHashMap<>();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        Table rebuilt;
+        try {
+            rebuilt = stream();
+        } catch (RuntimeException e) {
+            stamp = lock.writeLock();
+            pending = null;
+            lock.unlockWrite(stamp);
+            throw e;
+        }
+        stamp = lock.writeLock();
+        try {
+            for (Map.Entry<Long, Long> write : pending.entrySet()) {
+                rebuilt = rebuilt.store(write.getKey(), write.getValue());
+            }
+            table = rebuilt;
+            pending = null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        log.info("Skier pass index built for {} skiers ({} KB)", size(), memoryBytes() / 1024);
+    }
+
+    private Table stream() {
+        Table rebuilt = new Table(MIN_CAPACITY);
+        try (Stream<SkierPass> passes = skierRepository.streamPasses()) {
+            Iterator<SkierPass> rows = passes.iterator();
+            while (rows.hasNext()) {
+                SkierPass pass = rows.next();
+                if (pass.getStartDate() != null && pass.getEndDate() != null) {
+                    rebuilt = rebuilt.with(pass.getNumSkier(), pack(pass.getStartDate(), pass.getEndDate()));
+                }
+            }
+        }
+        return rebuilt;
+    }
+
+    /**
+     * Whether the skier's subscription covers the day, both ends included.
+     */
+    public boolean isValid(long numSkier, LocalDate day) {
+        return covers(pass(numSkier, day.toEpochDay()), day.toEpochDay());
+    }
+
+    public PassCheckDTO check(Long numSkier, LocalDate day) {
+        long pass = pass(numSkier, day.toEpochDay());
+        if (pass == NO_PASS) {
+            return new PassCheckDTO(numSkier, day, false, null, null);
+        }
+        return new PassCheckDTO(numSkier, day, covers(pass, day.toEpochDay()),
+                LocalDate.ofEpochDay(start(pass)), LocalDate.ofEpochDay(end(pass)));
+    }
+
+    /**
+     * The skier was added or now has another subscription.
+     */
+    public void skierSaved(Skier skier) {
+        if (skier != null && skier.getNumSkier() != null) {
+            subscriptionChanged(skier.getNumSkier(), skier.getSubscription());
+        }
+    }
+
+    /**
+     * The skier's subscription changed dates, or the skier lost it when null.
+     */
+    public void subscriptionChanged(Long numSkier, Subscription subscription) {
+        if (numSkier == null) {
+            return;
+        }
+        if (subscription == null || subscription.getStartDate() == null || subscription.getEndDate() == null) {
+            skierRemoved(numSkier);
+            return;
+        }
+        long pass = pack(subscription.getStartDate(), subscription.getEndDate());
+        AfterCommit.run(() -> write(numSkier, pass));
+    }
+
+    public void skierRemoved(Long numSkier) {
+        if (numSkier != null) {
+            AfterCommit.run(() -> write(numSkier, NO_PASS));
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return table.size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Bytes held by the arrays of the table.
+     */
+    public long memoryBytes() {
+        long stamp = lock.readLock();
+        try {
+            return 2L * Long.BYTES * table.keys.length;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // The pass from the index when it covers the day or was checked lately, otherwise from the database
+    private long pass(long numSkier, long epochDay) {
+        long pass = lookup(numSkier);
+        if (covers(pass, epochDay) || checked.getIfPresent(numSkier) != null) {
+            return pass;
+        }
+        long stored = skierRepository.findPassByNumSkier(numSkier)
+                .filter(row -> row.getStartDate() != null && row.getEndDate() != null)
+                .map(row -> pack(row.getStartDate(), row.getEndDate()))
+                .orElse(NO_PASS);
+        // Left unchecked if the index could not be corrected, so the next lookup tries again
+        if (stored == pass || tryWrite(numSkier, stored)) {
+            checked.put(numSkier, Boolean.TRUE);
+        }
+        return stored;
+    }
+
+    private static boolean covers(long pass, long epochDay) {
+        return pass != NO_PASS && start(pass) <= epochDay && epochDay <= end(pass);
+    }
+
+    private long lookup(long numSkier) {
+        long stamp = lock.tryOptimisticRead();
+        long pass = table.get(numSkier);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                pass = table.get(numSkier);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return pass;
+    }
+
+    private void write(long numSkier, long pass) {
+        long stamp = lock.writeLock();
+        try {
+            store(numSkier, pass);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // False when the write lock is held, rather than waiting for it
+    private boolean tryWrite(long numSkier, long pass) {
+        long stamp = lock.tryWriteLock();
+        if (stamp == 0L) {
+            return false;
+        }
+        try {
+            store(numSkier, pass);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Under the write lock
+    private void store(long numSkier, long pass) {
+        table = table.store(numSkier, pass);
+        if (pending != null) {
+            pending.put(numSkier, pass);
+        }
+    }
+
+    private static long pack(LocalDate startDate, LocalDate endDate) {
+        return (startDate.toEpochDay() << 32) | (endDate.toEpochDay() & 0xFFFFFFFFL);
+    }
+
+    private static long start(long pass) {
+        return pass >> 32;
+    }
+
+    private static long end(long pass) {
+        return (int) pass;
+    }
+
+    /**
+     * Linear probing table kept at most three quarters full.
+     */
+    private static final class Table {
+        final long[] keys;
+        final long[] passes;
+        final int mask;
+        int size;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            passes = new long[capacity];
+            mask = capacity - 1;
+        }
+
+        long get(long key) {
+            // Bounded, since an optimistic read may see a table being written
+            for (int i = slot(key), probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+                long k = keys[i];
+                if (k == key) {
+                    return passes[i];
+                }
+                if (k == FREE) {
+                    break;
+                }
+            }
+            return NO_PASS;
+        }
+
+        /**
+         * Stores the pass, or removes the key for {@link #NO_PASS}.
+         */
+        Table store(long key, long pass) {
+            if (pass == NO_PASS) {
+                remove(key);
+                return this;
+            }
+            return with(key, pass);
+        }
+
+        /**
+         * Stores the pass, in a copy twice as large when this table is too full to take a new key.
+         */
+        Table with(long key, long pass) {
+            if (put(key, pass)) {
+                return this;
+            }
+            Table resized = new Table(keys.length * 2);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != FREE) {
+                    resized.put(keys[i], passes[i]);
+                }
+            }
+            resized.put(key, pass);
+            return resized;
+        }
+
+        // False when the key is new and the table is too full to take it
+        private boolean put(long key, long pass) {
+            int i = slot(key);
+            while (keys[i] != FREE && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == FREE) {
+                if ((size + 1) * 4L > keys.length * 3L) {
+                    return false;
+                }
+                size++;
+            }
+            passes[i] = pass;
+            keys[i] = key;
+            return true;
+        }
+
+        void remove(long key) {
+            int i = slot(key);
+            while (keys[i] != key) {
+                if (keys[i] == FREE) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            // Shift the following entries back so that no probe sequence is broken
+            int gap = i;
+            for (int j = (gap + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+                int home = slot(keys[j]);
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j];
+                    passes[gap] = passes[j];
+                    gap = j;
+                }
+            }
+            keys[gap] = FREE;
+            size--;
+        }
+
+        private int slot(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
@@ -4,10 +4,25 @@ import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 import tn.esprit.spring.entities.*;
 import tn.esprit.spring.repositories.*;
-
-import java.util.HashSet;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.spring.DTO.CourseDTO;
+import tn.esprit.spring.DTO.ExcursionDTO;
+import tn.esprit.spring.DTO.KeysetPage;
+import tn.esprit.spring.DTO.PassCheckDTO;
+import tn.esprit.spring.DTO.RegistrationDTO;
+import tn.esprit.spring.DTO.SkierDTO;
+import tn.esprit.spring.DTO.SkierImportSummaryDTO;
+import tn.esprit.spring.DTO.SkierRegistration;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @AllArgsConstructor
 @Service
@@ -15,7 +30,7 @@ public class SkierServicesImpl implements ISkierServices {
 
     private ISkierRepository skierRepository;
 
-    private IPisteRepository pisteRepository;
+    private ICourseServices courseServices;
 
     private ICourseRepository courseRepository;
 
@@ -23,26 +38,39 @@ public class SkierServicesImpl implements ISkierServices {
 
     private ISubscriptionRepository subscriptionRepository;
 
+    private CourseCapacityLedger capacityLedger;
+
+    private NdjsonWriter ndjsonWriter;
+
+    private SubscriptionRevenueAggregator revenueAggregator;
+
+    private InstructorTimetable instructorTimetable;
+
+    private SkierCsvImporter csvImporter;
+
+    private SkierPassIndex passIndex;
 
     @Override
-    public List<Skier> retrieveAllSkiers() {
-        return skierRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<SkierDTO> retrieveAllSkiers() {
+        return toDTOs(skierRepository.findAllWithSubscription().stream(),
+                registrationRepository.findAllSkierRegistrations().stream())
+                .collect(Collectors.toList());
     }
 
     @Override
     public Skier addSkier(Skier skier) {
-        switch (skier.getSubscription().getTypeSub()) {
-            case ANNUAL:
-                skier.getSubscription().setEndDate(skier.getSubscription().getStartDate().plusYears(1));
-                break;
-            case SEMESTRIEL:
-                skier.getSubscription().setEndDate(skier.getSubscription().getStartDate().plusMonths(6));
-                break;
-            case MONTHLY:
-                skier.getSubscription().setEndDate(skier.getSubscription().getStartDate().plusMonths(1));
-                break;
-        }
-        return skierRepository.save(skier);
+        Subscription subscription = skier.getSubscription();
+        subscription.setEndDate(SubscriptionServicesImpl.computeEndDate(subscription.getTypeSub(), subscription.getStartDate()));
+        Skier savedSkier = skierRepository.save(skier);
+        revenueAggregator.added(savedSkier.getSubscription());
+        passIndex.skierSaved(savedSkier);
+        return savedSkier;
+    }
+
+    @Override
+    public SkierImportSummaryDTO importSkiers(InputStream csv) throws IOException {
+        return csvImporter.importSkiers(csv);
     }
 
     @Override
@@ -50,49 +78,122 @@ public class SkierServicesImpl implements ISkierServices {
         Skier skier = skierRepository.findById(numSkier).orElse(null);
         Subscription subscription = subscriptionRepository.findById(numSubscription).orElse(null);
         skier.setSubscription(subscription);
-        return skierRepository.save(skier);
+        Skier savedSkier = skierRepository.save(skier);
+        passIndex.skierSaved(savedSkier);
+        return savedSkier;
     }
 
     @Override
     public Skier addSkierAndAssignToCourse(Skier skier, Long numCourse) {
         Skier savedSkier = skierRepository.save(skier);
-        Course course = courseRepository.getById(numCourse);
+        // The subscription is saved in cascade with the skier
+        if (savedSkier.getSubscription() != null) {
+            revenueAggregator.added(savedSkier.getSubscription());
+        }
+        CourseDTO course = courseServices.retrieveCourse(numCourse);
         Set<Registration> registrations = savedSkier.getRegistrations();
         for (Registration r : registrations) {
             r.setSkier(savedSkier);
-            r.setCourse(course);
+            r.setCourse(course != null ? courseRepository.getById(numCourse) : null);
             registrationRepository.save(r);
+            if (course != null) {
+                capacityLedger.reserve(numCourse, r.getNumWeek());
+                instructorTimetable.registrationAdded(numCourse, course.getSupport(), r.getNumWeek());
+            }
         }
+        passIndex.skierSaved(savedSkier);
         return savedSkier;
     }
 
     @Override
+    @Transactional
     public void removeSkier(Long numSkier) {
-        skierRepository.deleteById(numSkier);
+        Skier skier = skierRepository.findById(numSkier).orElse(null);
+        if (skier == null) {
+            return;
+        }
+        // The subscription is removed in cascade with the skier
+        if (skier.getSubscription() != null) {
+            revenueAggregator.removed(skier.getSubscription());
+        }
+        skierRepository.delete(skier);
+        passIndex.skierRemoved(numSkier);
     }
 
     @Override
-    public Skier retrieveSkier(Long numSkier) {
-        return skierRepository.findById(numSkier).orElse(null);
+    public PassCheckDTO checkPass(Long numSkier, LocalDate day) {
+        // Served from the in-memory index: no skier or subscription is loaded
+        return passIndex.check(numSkier, day);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public SkierDTO retrieveSkier(Long numSkier) {
+        return skierRepository.findById(numSkier)
+                .map(skier -> toDTOs(Stream.of(skier),
+                        registrationRepository.findSkierRegistrations(List.of(numSkier)).stream()).findFirst().get())
+                .orElse(null);
+    }
+
+    @Override
+    @Transactional
     public Skier assignSkierToPiste(Long numSkieur, Long numPiste) {
-        Skier skier = skierRepository.findById(numSkieur).orElse(null);
-        Piste piste = pisteRepository.findById(numPiste).orElse(null);
-        try {
-            skier.getPistes().add(piste);
-        } catch (NullPointerException exception) {
-            Set<Piste> pisteList = new HashSet<>();
-            pisteList.add(piste);
-            skier.setPistes(pisteList);
-        }
+        addExcursions(List.of(new ExcursionDTO(numSkieur, numPiste)));
+        return skierRepository.findById(numSkieur).orElse(null);
+    }
+
+    @Override
+    @Transactional
+    public int addExcursions(List<ExcursionDTO> excursions) {
+        return skierRepository.insertExcursions(checked(excursions));
+    }
 
-        return skierRepository.save(skier);
+    @Override
+    @Transactional
+    public int removeExcursions(List<ExcursionDTO> excursions) {
+        return skierRepository.deleteExcursions(checked(excursions));
+    }
+
+    private static List<ExcursionDTO> checked(List<ExcursionDTO> excursions) {
+        for (ExcursionDTO excursion : excursions) {
+            if (excursion == null || excursion.getNumSkier() == null || excursion.getNumPiste() == null) {
+                throw new IllegalArgumentException("Excursions need a skier and a piste");
+            }
+        }
+        return excursions;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Skier> retrieveSkiersBySubscriptionType(TypeSubscription typeSubscription) {
         return skierRepository.findBySubscription_TypeSub(typeSubscription);
     }
-}
\ No newline at end of file
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAllSkiers(OutputStream out) throws IOException {
+        ndjsonWriter.write(toDTOs(skierRepository.streamAllBy(), registrationRepository.streamSkierRegistrations()), out);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<SkierDTO> retrieveSkiersPage(String cursor, Integer size) {
+        int pageSize = KeysetPage.size(size);
+        List<Skier> rows = skierRepository.findPageAfter(KeysetPage.decodeId(cursor), PageRequest.of(0, pageSize + 1));
+        KeysetPage<Skier> page = KeysetPage.of(rows, pageSize, row -> KeysetPage.encode(row.getNumSkier()));
+        if (page.getItems().isEmpty()) {
+            return new KeysetPage<>(List.of(), page.getNext());
+        }
+        List<Long> numSkiers = page.getItems().stream().map(Skier::getNumSkier).collect(Collectors.toList());
+        List<SkierDTO> items = toDTOs(page.getItems().stream(),
+                registrationRepository.findSkierRegistrations(numSkiers).stream())
+                .collect(Collectors.toList());
+        return new KeysetPage<>(items, page.getNext());
+    }
+
+    // Both streams are sorted by skier id
+    private Stream<SkierDTO> toDTOs(Stream<Skier> skiers, Stream<SkierRegistration> registrations) {
+        return OrderedChildren.attach(skiers, Skier::getNumSkier, registrations, SkierRegistration::getNumSkier,
+                (skier, rows) -> SkierDTO.of(skier, rows.stream().map(RegistrationDTO::of).collect(Collectors.toList())));
+    }
+}
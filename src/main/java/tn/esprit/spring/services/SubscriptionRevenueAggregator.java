@@ -0,0 +1,258 @@
+package tn.esprit.spring.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.spring.DTO.DailyRevenue;
+import tn.esprit.spring.DTO.RevenueBucketDTO;
+import tn.esprit.spring.DTO.RevenueGranularity;
+import tn.esprit.spring.DTO.SubscriptionRevenue;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.repositories.ISubscriptionRepository;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Running count and price sum of the subscriptions of each type, overall and per start day.
+ * <p>
+ * Changes are applied when the transaction that made them commits, so a rolled back write
+ * never shows up in the totals. The totals and daily buckets are built from the database on
+ * startup; setting {@code ski.revenue.reconcile-cron} rebuilds them on a schedule as well, for
+ * changes made through other nodes or by a write path that did not report them. Range queries
+ * merge the daily buckets, so they cost one step per day with subscriptions rather than one
+ * per subscription.
+ * <p>
+ * A rebuild cannot tell whether its queries saw a change committed while they ran, so it only
+ * swaps its result in when no change was applied or in flight meanwhile; otherwise the running
+ * totals are kept and the next rebuild tries again.
+ */
+@Slf4j
+@Component
+public class SubscriptionRevenueAggregator {
+
+    private final ISubscriptionRepository subscriptionRepository;
+
+    // Month the ski season starts in; a season runs for twelve months from its first day
+    private final int seasonStartMonth;
+
+    private final Map<TypeSubscription, AtomicReference<Totals>> totals = new EnumMap<>(TypeSubscription.class);
+
+    // Replaced as a whole on each rebuild, so that range queries never see half of the days
+    private volatile Map<TypeSubscription, ConcurrentNavigableMap<LocalDate, Totals>> days = emptyDays();
+
+    // Serializes the changes with the swap of a rebuild; guards changesApplied
+    private final Object lock = new Object();
+
+    private long changesApplied;
+
+    // Changes of transactions that have not completed yet
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public SubscriptionRevenueAggregator(ISubscriptionRepository subscriptionRepository,
+                                         @Value("${ski.revenue.season-start-month:11}") int seasonStartMonth) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.seasonStartMonth = seasonStartMonth;
+        for (TypeSubscription type : TypeSubscription.values()) {
+            totals.put(type, new AtomicReference<>(Totals.EMPTY));
+        }
+    }
+
+    // Not read-only: a replica would hand its lag over to the totals until the next rebuild
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${ski.revenue.reconcile-cron:-}")
+    @Transactional
+    public void rebuild() {
+        long applied;
+        synchronized (lock) {
+            applied = changesApplied;
+        }
+        boolean quiet = inFlight.get() == 0;
+        // Built aside first, so that readers never see a type reset to zero or half of the days
+        Map<TypeSubscription, Totals> rebuiltTotals = rebuildTotals();
+        Map<TypeSubscription, ConcurrentNavigableMap<LocalDate, Totals>> rebuiltDays = rebuildDays();
+        synchronized (lock) {
+            if (!quiet || inFlight.get() != 0 || changesApplied != applied) {
+                log.info("Revenue rebuild skipped: subscriptions changed while it ran");
+                return;
+            }
+            totals.forEach((type, total) -> total.set(rebuiltTotals.getOrDefault(type, Totals.EMPTY)));
+            days = rebuiltDays;
+        }
+        log.info("Monthly Revenue = " + monthlyRecurringRevenue());
+    }
+
+    private Map<TypeSubscription, Totals> rebuildTotals() {
+        Map<TypeSubscription, Totals> rebuilt = new EnumMap<>(TypeSubscription.class);
+        for (SubscriptionRevenue revenue : subscriptionRepository.sumRevenueGroupByTypeSub()) {
+            if (revenue.getTypeSub() != null) {
+                rebuilt.put(revenue.getTypeSub(), new Totals(revenue.getTotal(),
+                        revenue.getRevenue() != null ? revenue.getRevenue() : 0.0));
+            }
+        }
+        return rebuilt;
+    }
+
+    private Map<TypeSubscription, ConcurrentNavigableMap<LocalDate, Totals>> rebuildDays() {
+        Map<TypeSubscription, ConcurrentNavigableMap<LocalDate, Totals>> rebuilt = emptyDays();
+        for (DailyRevenue revenue : subscriptionRepository.sumRevenueGroupByStartDateAndTypeSub()) {
+            if (revenue.getTypeSub() != null) {
+                rebuilt.get(revenue.getTypeSub()).put(revenue.getStartDate(), new Totals(revenue.getTotal(),
+                        revenue.getRevenue() != null ? revenue.getRevenue() : 0.0));
+            }
+        }
+        return rebuilt;
+    }
+
+    private static Map<TypeSubscription, ConcurrentNavigableMap<LocalDate, Totals>> emptyDays() {
+        Map<TypeSubscription, ConcurrentNavigableMap<LocalDate, Totals>> empty = new EnumMap<>(TypeSubscription.class);
+        for (TypeSubscription type : TypeSubscription.values()) {
+            empty.put(type, new ConcurrentSkipListMap<>());
+        }
+        return empty;
+    }
+
+    public void added(Subscription subscription) {
+        afterCommit(subscription.getTypeSub(), subscription.getStartDate(), 1, price(subscription));
+    }
+
+    public void removed(Subscription subscription) {
+        afterCommit(subscription.getTypeSub(), subscription.getStartDate(), -1, -price(subscription));
+    }
+
+    public void updated(TypeSubscription oldType, Float oldPrice, LocalDate oldStartDate, Subscription subscription) {
+        afterCommit(oldType, oldStartDate, -1, oldPrice != null ? -oldPrice : 0.0);
+        added(subscription);
+    }
+
+    /**
+     * Average monthly price over all subscriptions, semester and annual prices being spread
+     * over 6 and 12 months.
+     */
+    public float monthlyRecurringRevenue() {
+        return (float) (average(TypeSubscription.MONTHLY)
+                + average(TypeSubscription.SEMESTRIEL) / 6
+                + average(TypeSubscription.ANNUAL) / 12);
+    }
+
+    public double average(TypeSubscription type) {
+        Totals total = totals.get(type).get();
+        return total.count > 0 ? total.sum / total.count : 0.0;
+    }
+
+    /**
+     * Subscriptions started between the two days (included), per type and period, in
+     * ascending period order for each type. Periods without subscriptions are left out.
+     *
+     * @param typeSub the only type to report, or null for all of them
+     */
+    public List<RevenueBucketDTO> revenue(LocalDate from, LocalDate to, RevenueGranularity granularity,
+                                          TypeSubscription typeSub) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("The range starts after it ends");
+        }
+        Map<TypeSubscription, ConcurrentNavigableMap<LocalDate, Totals>> snapshot = days;
+        List<RevenueBucketDTO> buckets = new ArrayList<>();
+        for (TypeSubscription type : TypeSubscription.values()) {
+            if (typeSub != null && typeSub != type) {
+                continue;
+            }
+            RevenueBucketDTO current = null;
+            // Days come in ascending order, so each period is complete once the next one starts
+            for (Map.Entry<LocalDate, Totals> day : snapshot.get(type).subMap(from, true, to, true).entrySet()) {
+                LocalDate periodStart = periodStart(day.getKey(), granularity);
+                if (current == null || !current.getPeriodStart().equals(periodStart)) {
+                    current = new RevenueBucketDTO(type, periodStart, periodEnd(periodStart, granularity), 0, 0.0);
+                    buckets.add(current);
+                }
+                current.setSubscriptions(current.getSubscriptions() + day.getValue().count);
+                current.setRevenue(current.getRevenue() + day.getValue().sum);
+            }
+        }
+        return buckets;
+    }
+
+    private LocalDate periodStart(LocalDate day, RevenueGranularity granularity) {
+        switch (granularity) {
+            case WEEK:
+                return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH:
+                return day.withDayOfMonth(1);
+            case SEASON:
+                LocalDate start = LocalDate.of(day.getYear(), seasonStartMonth, 1);
+                return day.isBefore(start) ? start.minusYears(1) : start;
+            default:
+                return day;
+        }
+    }
+
+    private static LocalDate periodEnd(LocalDate periodStart, RevenueGranularity granularity) {
+        switch (granularity) {
+            case WEEK:
+                return periodStart.plusWeeks(1).minusDays(1);
+            case MONTH:
+                return periodStart.plusMonths(1).minusDays(1);
+            case SEASON:
+                return periodStart.plusYears(1).minusDays(1);
+            default:
+                return periodStart;
+        }
+    }
+
+    // In flight until its transaction completes, so that a rebuild racing with the commit
+    // neither counts it twice nor loses it
+    private void afterCommit(TypeSubscription type, LocalDate day, long count, double sum) {
+        if (type != null) {
+            AfterCommit.run(() -> apply(type, day, count, sum), inFlight);
+        }
+    }
+
+    private void apply(TypeSubscription type, LocalDate day, long count, double sum) {
+        Totals change = new Totals(count, sum);
+        synchronized (lock) {
+            changesApplied++;
+            totals.get(type).updateAndGet(total -> total.plus(change));
+            if (day != null) {
+                // An emptied day is dropped so that range queries only walk days with subscriptions
+                days.get(type).merge(day, change, (total, delta) -> {
+                    Totals merged = total.plus(delta);
+                    return merged.count != 0 ? merged : null;
+                });
+            }
+        }
+    }
+
+    private static double price(Subscription subscription) {
+        return subscription.getPrice() != null ? subscription.getPrice() : 0.0;
+    }
+
+    private static final class Totals {
+        static final Totals EMPTY = new Totals(0, 0.0);
+
+        final long count;
+        final double sum;
+
+        Totals(long count, double sum) {
+            this.count = count;
+            this.sum = sum;
+        }
+
+        Totals plus(Totals other) {
+            return new Totals(count + other.count, sum + other.sum);
+        }
+    }
+}
@@ -7,17 +7,24 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import tn.esprit.spring.entities.Skier;
 import tn.esprit.spring.entities.Subscription;
 import tn.esprit.spring.entities.TypeSubscription;
 import tn.esprit.spring.repositories.ISkierRepository;
 import tn.esprit.spring.repositories.ISubscriptionRepository;
-
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.spring.DTO.ExpiringSubscription;
+import tn.esprit.spring.DTO.KeysetPage;
+import tn.esprit.spring.DTO.RevenueBucketDTO;
+import tn.esprit.spring.DTO.RevenueGranularity;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
 import javax.persistence.EntityNotFoundException;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 @Slf4j
 @AllArgsConstructor
@@ -26,8 +33,14 @@ public class SubscriptionServicesImpl implements ISubscriptionServices{
 
     private ISubscriptionRepository subscriptionRepository;
 
+    private NdjsonWriter ndjsonWriter;
+
+    private SubscriptionRevenueAggregator revenueAggregator;
+
     private ISkierRepository skierRepository;
 
+    private SkierPassIndex passIndex;
+
     @Override
     public Subscription addSubscription(Subscription subscription) {
         // Validate that the start date is not null
@@ -41,23 +54,13 @@ public class SubscriptionServicesImpl implements ISubscriptionServices{
         }
 
         // Calculate the end date based on the type of subscription
-        switch (subscription.getTypeSub()) {
-            case ANNUAL:
-                subscription.setEndDate(subscription.getStartDate().plusYears(1));
-                break;
-            case SEMESTRIEL:
-                subscription.setEndDate(subscription.getStartDate().plusMonths(6));
-                break;
-            case MONTHLY:
-                subscription.setEndDate(subscription.getStartDate().plusMonths(1));
-                break;
-            default:
-                throw new IllegalArgumentException("Invalid subscription type: " + subscription.getTypeSub());
-        }
+        subscription.setEndDate(computeEndDate(subscription.getTypeSub(), subscription.getStartDate()));
 
         // Save the subscription and handle potential exceptions
         try {
-            return subscriptionRepository.save(subscription);
+            Subscription saved = subscriptionRepository.save(subscription);
+            revenueAggregator.added(saved);
+            return saved;
         } catch (Exception e) {
             log.error("Error saving subscription: {}", e.getMessage());
             throw new RuntimeException("Failed to save subscription", e);
@@ -65,13 +68,37 @@ public class SubscriptionServicesImpl implements ISubscriptionServices{
     }
 
 
+    /**
+     * End date of a subscription of the given type starting on {@code startDate}.
+     */
+    public static LocalDate computeEndDate(TypeSubscription typeSub, LocalDate startDate) {
+        switch (typeSub) {
+            case ANNUAL:
+                return startDate.plusYears(1);
+            case SEMESTRIEL:
+                return startDate.plusMonths(6);
+            case MONTHLY:
+                return startDate.plusMonths(1);
+            default:
+                throw new IllegalArgumentException("Invalid subscription type: " + typeSub);
+        }
+    }
+
     @Override
+    @Transactional
     public Subscription updateSubscription(Subscription subscription) {
-        // Check if the subscription exists
-        if (subscriptionRepository.existsById(subscription.getNumSub())) {
-            return subscriptionRepository.save(subscription); // Proceed with the update
+        // Load the current row: it tells whether the subscription exists and what to take off the revenue totals
+        Subscription current = subscriptionRepository.findById(subscription.getNumSub()).orElse(null);
+        if (current == null) {
+            return null; // Return null if the subscription does not exist
         }
-        return null; // Return null if the subscription does not exist
+        TypeSubscription oldType = current.getTypeSub();
+        Float oldPrice = current.getPrice();
+        LocalDate oldStartDate = current.getStartDate();
+        Subscription updated = subscriptionRepository.save(subscription); // Proceed with the update
+        revenueAggregator.updated(oldType, oldPrice, oldStartDate, updated);
+        passIndex.subscriptionChanged(skierRepository.findNumSkierBySubscription(updated.getNumSub()), updated);
+        return updated;
     }
 
 
@@ -86,38 +113,88 @@ public class SubscriptionServicesImpl implements ISubscriptionServices{
 
 
     @Override
-    public Set<Subscription> getSubscriptionByType(TypeSubscription type) {
+    @Transactional(readOnly = true)
+    public List<Subscription> getSubscriptionByType(TypeSubscription type) {
         return subscriptionRepository.findByTypeSubOrderByStartDateAsc(type);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Subscription> retrieveSubscriptionsByDates(LocalDate startDate, LocalDate endDate) {
         return subscriptionRepository.getSubscriptionsByStartDateBetween(startDate, endDate);
     }
 
     @Override
-    @Scheduled(cron = "*/30 * * * * *") /* Cron expression to run a job every 30 secondes */
+    @Transactional(readOnly = true)
+    @Scheduled(cron = "${ski.subscriptions.expiring-cron:*/30 * * * * *}") /* Cron expression to run a job every 30 secondes */
     public void retrieveSubscriptions() {
-        for (Subscription sub: subscriptionRepository.findDistinctOrderByEndDateAsc()) {
-            Skier   aSkier = skierRepository.findBySubscription(sub);
-            log.info(sub.getNumSub().toString() + " | "+ sub.getEndDate().toString()
-                    + " | "+ aSkier.getFirstName() + " " + aSkier.getLastName());
+        // One join query per chunk instead of one skier lookup per subscription
+        LocalDate today = LocalDate.now();
+        String cursor = null;
+        do {
+            KeysetPage<ExpiringSubscription> chunk = retrieveExpiringSubscriptions(today, cursor, KeysetPage.MAX_SIZE);
+            for (ExpiringSubscription sub : chunk.getItems()) {
+                log.info(sub.getNumSub() + " | " + sub.getEndDate()
+                        + " | " + (sub.getFirstName() != null ? sub.getFirstName() + " " + sub.getLastName() : "-"));
+            }
+            cursor = chunk.getNext();
+        } while (cursor != null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<ExpiringSubscription> retrieveExpiringSubscriptions(LocalDate until, String cursor, Integer size) {
+        int pageSize = KeysetPage.size(size);
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<ExpiringSubscription> rows;
+        if (cursor == null) {
+            rows = subscriptionRepository.findExpiring(until, limit);
+        } else {
+            String[] keys = KeysetPage.decode(cursor, 2);
+            try {
+                rows = subscriptionRepository.findExpiringAfter(until, LocalDate.parse(keys[0]), Long.valueOf(keys[1]), limit);
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid page cursor", e);
+            }
         }
+        return KeysetPage.of(rows, pageSize, row -> KeysetPage.encode(row.getEndDate(), row.getNumSub()));
     }
 
-    // @Scheduled(cron = "* 0 9 1 * *") /* Cron expression to run a job every month at 9am */
-    @Scheduled(cron = "*/30 * * * * *") // Cron expression to run a job every 30 seconds
-    public void showMonthlyRecurringRevenue() {
-        Float monthlyRevenue = subscriptionRepository.recurringRevenueByTypeSubEquals(TypeSubscription.MONTHLY);
-        Float semestrielRevenue = subscriptionRepository.recurringRevenueByTypeSubEquals(TypeSubscription.SEMESTRIEL);
-        Float annualRevenue = subscriptionRepository.recurringRevenueByTypeSubEquals(TypeSubscription.ANNUAL);
+    @Override
+    public Float retrieveMonthlyRecurringRevenue() {
+        // Served from the running totals instead of scanning the subscription table
+        return revenueAggregator.monthlyRecurringRevenue();
+    }
 
-        // Use 0.0 as a default value if any revenue is null
-        Float revenue = (monthlyRevenue != null ? monthlyRevenue : 0.0f)
-                + (semestrielRevenue != null ? semestrielRevenue / 6 : 0.0f)
-                + (annualRevenue != null ? annualRevenue / 12 : 0.0f);
+    @Override
+    public List<RevenueBucketDTO> retrieveRevenue(LocalDate from, LocalDate to, RevenueGranularity granularity,
+                                                  TypeSubscription typeSub) {
+        // Merged from the daily buckets of the running totals
+        return revenueAggregator.revenue(from, to, granularity, typeSub);
+    }
 
-        log.info("Monthly Revenue = " + revenue);
+    @Override
+    @Transactional(readOnly = true)
+    public void exportSubscriptionsByType(TypeSubscription type, OutputStream out) throws IOException {
+        ndjsonWriter.write(subscriptionRepository.streamByTypeSubOrderByStartDateAsc(type), out);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<Subscription> getSubscriptionPageByType(TypeSubscription type, String cursor, Integer size) {
+        int pageSize = KeysetPage.size(size);
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<Subscription> rows;
+        if (cursor == null) {
+            rows = subscriptionRepository.findByTypeSubOrderByStartDateAscNumSubAsc(type, limit);
+        } else {
+            String[] keys = KeysetPage.decode(cursor, 2);
+            try {
+                rows = subscriptionRepository.findPageAfter(type, LocalDate.parse(keys[0]), Long.valueOf(keys[1]), limit);
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid page cursor", e);
+            }
+        }
+        return KeysetPage.of(rows, pageSize, row -> KeysetPage.encode(row.getStartDate(), row.getNumSub()));
+    }
 }
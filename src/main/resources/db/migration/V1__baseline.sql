@@ -0,0 +1,76 @@
+-- Schema as it was generated by hibernate.ddl-auto=update.
+-- Existing databases are baselined at this version and skip this script.
+
+create table subscription (
+    num_sub bigint not null auto_increment,
+    start_date date not null,
+    end_date date,
+    price float,
+    type_sub integer not null,
+    primary key (num_sub)
+);
+
+create table skier (
+    num_skier bigint not null auto_increment,
+    first_name varchar(255),
+    last_name varchar(255),
+    date_of_birth date,
+    city varchar(255),
+    subscription_num_sub bigint,
+    primary key (num_skier),
+    constraint fk_skier_subscription foreign key (subscription_num_sub) references subscription (num_sub)
+);
+
+create table piste (
+    num_piste bigint not null auto_increment,
+    name_piste varchar(255),
+    color varchar(255),
+    length integer not null,
+    slope integer not null,
+    primary key (num_piste)
+);
+
+create table excursion (
+    num_skier bigint not null,
+    num_piste bigint not null,
+    primary key (num_skier, num_piste),
+    constraint fk_excursion_skier foreign key (num_skier) references skier (num_skier),
+    constraint fk_excursion_piste foreign key (num_piste) references piste (num_piste)
+);
+
+create table course (
+    num_course bigint not null auto_increment,
+    level integer not null,
+    type_course varchar(255),
+    support varchar(255),
+    price float,
+    time_slot integer not null,
+    primary key (num_course)
+);
+
+create table instructor (
+    num_instructor bigint not null auto_increment,
+    first_name varchar(255),
+    last_name varchar(255),
+    date_of_hire date,
+    primary key (num_instructor)
+);
+
+create table instructor_courses (
+    instructor_num_instructor bigint not null,
+    courses_num_course bigint not null,
+    primary key (instructor_num_instructor, courses_num_course),
+    constraint uk_instructor_courses_course unique (courses_num_course),
+    constraint fk_instructor_courses_instructor foreign key (instructor_num_instructor) references instructor (num_instructor),
+    constraint fk_instructor_courses_course foreign key (courses_num_course) references course (num_course)
+);
+
+create table registration (
+    num_registration bigint not null auto_increment,
+    num_week integer not null,
+    skier_num_skier bigint,
+    course_num_course bigint,
+    primary key (num_registration),
+    constraint fk_registration_skier foreign key (skier_num_skier) references skier (num_skier),
+    constraint fk_registration_course foreign key (course_num_course) references course (num_course)
+);
@@ -0,0 +1,24 @@
+-- Capacity checks and course/week counts
+create index idx_registration_course_week on registration (course_num_course, num_week);
+
+-- Subscriptions listed by type and start date
+create index idx_subscription_type_start on subscription (type_sub, start_date);
+
+-- Expiring subscriptions job
+create index idx_subscription_end_date on subscription (end_date);
+
+-- A skier registers at most once to a course for a given week. Keep the oldest of any
+-- duplicates inserted before the constraint existed.
+delete from registration
+where skier_num_skier is not null
+  and course_num_course is not null
+  and num_registration not in (
+    select keep from (
+        select min(num_registration) as keep
+        from registration
+        group by skier_num_skier, course_num_course, num_week
+    ) kept
+);
+
+alter table registration
+    add constraint uk_registration_skier_course_week unique (skier_num_skier, course_num_course, num_week);
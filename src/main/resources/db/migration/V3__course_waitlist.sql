@@ -0,0 +1,15 @@
+-- Skiers waiting for a seat in a full collective course, in arrival order per course week.
+-- Entries go away with their skier or course.
+create table waitlist_entry (
+    num_entry bigint not null auto_increment,
+    num_skier bigint not null,
+    num_course bigint not null,
+    num_week integer not null,
+    requested_at datetime(6) not null,
+    primary key (num_entry),
+    constraint uk_waitlist_skier_course_week unique (num_skier, num_course, num_week),
+    constraint fk_waitlist_skier foreign key (num_skier) references skier (num_skier) on delete cascade,
+    constraint fk_waitlist_course foreign key (num_course) references course (num_course) on delete cascade
+);
+
+create index idx_waitlist_course_week on waitlist_entry (num_course, num_week, num_entry);
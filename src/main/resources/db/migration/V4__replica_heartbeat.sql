@@ -0,0 +1,9 @@
+-- Single row the primary stamps every ski.datasource.replicas.heartbeat-ms (UTC): the lag of a
+-- replica is the age of the stamp it holds. Replicas count as lagging until the first one arrives.
+create table replica_heartbeat (
+    id integer not null,
+    beat datetime(6) not null,
+    primary key (id)
+);
+
+insert into replica_heartbeat (id, beat) values (1, '1970-01-01 00:00:00');
@@ -0,0 +1,142 @@
+package tn.esprit.spring;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import tn.esprit.spring.configs.CacheConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CacheEvictionTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    /** Test that updating a course evicts it, and the instructors teaching it, so the next reads see the change. */
+    @Test
+    public void testCourseUpdateEvicts() throws Exception {
+        long numCourse = send(post("/course/add"),
+                "{\"level\":1,\"typeCourse\":\"COLLECTIVE_ADULT\",\"support\":\"SKI\",\"price\":100,\"timeSlot\":1}")
+                .get("numCourse").asLong();
+        long numInstructor = send(put("/instructor/addAndAssignToCourse/" + numCourse),
+                "{\"firstName\":\"Cached\",\"lastName\":\"Instructor\",\"dateOfHire\":\"2020-01-01\"}")
+                .get("numInstructor").asLong();
+
+        mockMvc.perform(get("/course/get/" + numCourse)).andExpect(jsonPath("$.price").value(100.0));
+        mockMvc.perform(get("/instructor/get/" + numInstructor)).andExpect(jsonPath("$.courses[0].price").value(100.0));
+        assertNotNull(cache(CacheConfig.COURSES).get(numCourse));
+        assertNotNull(cache(CacheConfig.INSTRUCTORS).get(numInstructor));
+
+        send(put("/course/update"), "{\"numCourse\":" + numCourse
+                + ",\"level\":1,\"typeCourse\":\"COLLECTIVE_ADULT\",\"support\":\"SKI\",\"price\":150,\"timeSlot\":1}");
+
+        assertNull(cache(CacheConfig.COURSES).get(numCourse));
+        assertNull(cache(CacheConfig.INSTRUCTORS).get(numInstructor));
+        mockMvc.perform(get("/course/get/" + numCourse)).andExpect(jsonPath("$.price").value(150.0));
+        mockMvc.perform(get("/instructor/get/" + numInstructor)).andExpect(jsonPath("$.courses[0].price").value(150.0));
+    }
+
+    /** Test that deleting a piste evicts it, so it is no longer served from the cache. */
+    @Test
+    public void testPisteDeleteEvicts() throws Exception {
+        long numPiste = send(post("/piste/add"),
+                "{\"namePiste\":\"Cached\",\"color\":\"GREEN\",\"length\":1000,\"slope\":10}")
+                .get("numPiste").asLong();
+        mockMvc.perform(get("/piste/get/" + numPiste)).andExpect(jsonPath("$.namePiste").value("Cached"));
+        assertNotNull(cache(CacheConfig.PISTES).get(numPiste));
+
+        mockMvc.perform(delete("/piste/delete/" + numPiste)).andExpect(status().isOk());
+
+        assertNull(cache(CacheConfig.PISTES).get(numPiste));
+        mockMvc.perform(get("/piste/get/" + numPiste))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+    }
+
+    /** Test that the cached copies are served with the JSON fields of the course and piste, the skiers left out. */
+    @Test
+    public void testCachedJsonShape() throws Exception {
+        long numCourse = send(post("/course/add"),
+                "{\"level\":2,\"typeCourse\":\"INDIVIDUAL\",\"support\":\"SNOWBOARD\",\"price\":80,\"timeSlot\":3}")
+                .get("numCourse").asLong();
+        long numPiste = send(post("/piste/add"),
+                "{\"namePiste\":\"Shaped\",\"color\":\"BLACK\",\"length\":1200,\"slope\":40}")
+                .get("numPiste").asLong();
+
+        for (int i = 0; i < 2; i++) {
+            JsonNode course = objectMapper.readTree(mockMvc.perform(get("/course/get/" + numCourse))
+                    .andReturn().getResponse().getContentAsString());
+            assertEquals(List.of("numCourse", "level", "typeCourse", "support", "price", "timeSlot"), fields(course));
+            JsonNode piste = objectMapper.readTree(mockMvc.perform(get("/piste/get/" + numPiste))
+                    .andReturn().getResponse().getContentAsString());
+            assertEquals(List.of("numPiste", "namePiste", "color", "length", "slope"), fields(piste));
+        }
+    }
+
+    /** Test that the cache endpoints report hits and empty every cache. */
+    @Test
+    public void testStatsAndClear() throws Exception {
+        long numPiste = send(post("/piste/add"),
+                "{\"namePiste\":\"Counted\",\"color\":\"RED\",\"length\":700,\"slope\":30}")
+                .get("numPiste").asLong();
+        mockMvc.perform(get("/piste/get/" + numPiste));
+        long hits = pisteStats().get("hitCount").asLong();
+        mockMvc.perform(get("/piste/get/" + numPiste));
+        assertEquals(hits + 1, pisteStats().get("hitCount").asLong());
+
+        mockMvc.perform(delete("/cache/clear")).andExpect(status().isOk());
+
+        assertNull(cache(CacheConfig.PISTES).get(numPiste));
+        assertEquals(0, pisteStats().get("size").asLong());
+    }
+
+    private JsonNode send(MockHttpServletRequestBuilder request, String body) throws Exception {
+        String response = mockMvc.perform(request.contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+
+    private static List<String> fields(JsonNode node) {
+        List<String> fields = new ArrayList<>();
+        node.fieldNames().forEachRemaining(fields::add);
+        return fields;
+    }
+
+    private JsonNode pisteStats() throws Exception {
+        JsonNode stats = objectMapper.readTree(mockMvc.perform(get("/cache/stats"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        for (JsonNode cache : stats) {
+            if (CacheConfig.PISTES.equals(cache.get("name").asText())) {
+                return cache;
+            }
+        }
+        throw new AssertionError("No stats for " + CacheConfig.PISTES);
+    }
+
+    private Cache cache(String name) {
+        return cacheManager.getCache(name);
+    }
+}
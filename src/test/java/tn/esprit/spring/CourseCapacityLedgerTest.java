@@ -0,0 +1,105 @@
+package tn.esprit.spring;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tn.esprit.spring.DTO.CourseWeekCount;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+import tn.esprit.spring.services.CourseCapacityLedger;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CourseCapacityLedgerTest {
+
+    private IRegistrationRepository registrationRepository;
+
+    private CourseCapacityLedger capacityLedger;
+
+    @BeforeEach
+    public void setup() {
+        registrationRepository = mock(IRegistrationRepository.class);
+        when(registrationRepository.countGroupByCourseAndNumWeek()).thenReturn(Collections.emptyList());
+        capacityLedger = new CourseCapacityLedger(registrationRepository);
+        capacityLedger.load();
+    }
+
+    /** Test that concurrent reservations never go past the capacity. */
+    @Test
+    public void testConcurrentReservationsRespectCapacity() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        for (int i = 0; i < 200; i++) {
+            pool.submit(() -> {
+                start.await();
+                if (capacityLedger.tryReserve(1L, 3, 6)) {
+                    accepted.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(6, accepted.get());
+        assertEquals(6, capacityLedger.taken(1L, 3));
+    }
+
+    /** Test that an unknown course week is seeded from the database once. */
+    @Test
+    public void testUnknownSlotIsLoadedFromDatabase() {
+        when(registrationRepository.countByCourse_NumCourseAndNumWeek(2L, 5)).thenReturn(5L);
+
+        assertTrue(capacityLedger.tryReserve(2L, 5, 6));
+        assertFalse(capacityLedger.tryReserve(2L, 5, 6));
+        capacityLedger.release(2L, 5);
+        assertTrue(capacityLedger.tryReserve(2L, 5, 6));
+
+        verify(registrationRepository, times(1)).countByCourse_NumCourseAndNumWeek(2L, 5);
+    }
+
+    /** Test that a registration committing while the ledger is reconciled keeps its seat. */
+    @Test
+    public void testReconcileKeepsSeatCommittedDuringCount() {
+        when(registrationRepository.countByCourse_NumCourseAndNumWeek(3L, 1)).thenReturn(5L);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertTrue(capacityLedger.tryReserve(3L, 1, 6));
+            List<TransactionSynchronization> commit = TransactionSynchronizationManager.getSynchronizations();
+            // The registration commits after the count is read, so it is in neither
+            when(registrationRepository.countGroupByCourseAndNumWeek()).thenAnswer(invocation -> {
+                commit.forEach(hook -> hook.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+                return List.of(count(3L, 1, 5L));
+            });
+
+            assertTrue(capacityLedger.reconcile().isEmpty());
+            assertEquals(6, capacityLedger.taken(3L, 1));
+            assertFalse(capacityLedger.tryReserve(3L, 1, 6));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        doReturn(List.of(count(3L, 1, 4L))).when(registrationRepository).countGroupByCourseAndNumWeek();
+        assertEquals(1, capacityLedger.reconcile().size());
+        assertEquals(4, capacityLedger.taken(3L, 1));
+    }
+
+    private static CourseWeekCount count(Long numCourse, Integer numWeek, Long total) {
+        return new CourseWeekCount() {
+            public Long getNumCourse() { return numCourse; }
+            public Integer getNumWeek() { return numWeek; }
+            public Long getTotal() { return total; }
+        };
+    }
+}
@@ -0,0 +1,104 @@
+package tn.esprit.spring;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tn.esprit.spring.DTO.AvailableCourseDTO;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Support;
+import tn.esprit.spring.entities.TypeCourse;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+import tn.esprit.spring.services.CourseCapacityLedger;
+import tn.esprit.spring.services.CourseFinder;
+import tn.esprit.spring.services.CourseWaitlist;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class CourseFinderTest {
+
+    private CourseCapacityLedger capacityLedger;
+
+    private CourseWaitlist courseWaitlist;
+
+    private ICourseRepository courseRepository;
+
+    private CourseFinder courseFinder;
+
+    @BeforeEach
+    public void setup() {
+        IRegistrationRepository registrationRepository = mock(IRegistrationRepository.class);
+        when(registrationRepository.countGroupByCourseAndNumWeek()).thenReturn(Collections.emptyList());
+        capacityLedger = new CourseCapacityLedger(registrationRepository);
+        capacityLedger.load();
+        courseWaitlist = mock(CourseWaitlist.class);
+        courseRepository = mock(ICourseRepository.class);
+        when(courseRepository.findAll()).thenReturn(List.of(
+                course(1L, 2, TypeCourse.COLLECTIVE_ADULT, Support.SKI),
+                course(2L, 2, TypeCourse.COLLECTIVE_CHILDREN, Support.SKI),
+                course(3L, 2, TypeCourse.INDIVIDUAL, Support.SKI),
+                course(4L, 2, TypeCourse.COLLECTIVE_ADULT, Support.SNOWBOARD),
+                course(5L, 3, TypeCourse.COLLECTIVE_ADULT, Support.SKI)));
+        courseFinder = new CourseFinder(courseRepository, capacityLedger, courseWaitlist);
+        courseFinder.load();
+    }
+
+    /** Test that only the courses an adult can still join are found, week by week. */
+    @Test
+    public void testFindsBookableCourses() {
+        for (int i = 0; i < 6; i++) {
+            capacityLedger.reserve(1L, 2);
+        }
+        capacityLedger.reserve(1L, 3);
+        when(courseWaitlist.hasWaiting(1L, 4)).thenReturn(true);
+
+        List<AvailableCourseDTO> found = courseFinder.find(30, Support.SKI, 2, 1, 4,
+                Set.of(CourseCapacityLedger.key(3L, 3)));
+
+        assertEquals(List.of("1@1", "3@1", "3@2", "1@3", "3@4"), ids(found));
+        assertEquals(6, found.get(0).getSeatsLeft());
+        assertNull(found.get(1).getSeatsLeft());
+        assertEquals(5, found.get(3).getSeatsLeft());
+        // Any level, children
+        assertEquals(List.of("2@1", "3@1"), ids(courseFinder.find(10, Support.SKI, null, 1, 1, Set.of())));
+    }
+
+    /** Test that a course update moves the course to its new type, support and level. */
+    @Test
+    public void testCourseUpdatesAreIndexed() {
+        courseFinder.courseSaved(course(1L, 3, TypeCourse.COLLECTIVE_ADULT, Support.SKI));
+        courseFinder.courseSaved(course(6L, 3, TypeCourse.COLLECTIVE_ADULT, Support.SKI));
+        courseFinder.courseSaved(course(4L, 2, TypeCourse.COLLECTIVE_ADULT, Support.SKI));
+
+        assertEquals(List.of("3@1", "4@1"), ids(courseFinder.find(30, Support.SKI, 2, 1, 1, Set.of())));
+        assertEquals(List.of("1@1", "5@1", "6@1"), ids(courseFinder.find(30, Support.SKI, 3, 1, 1, Set.of())));
+        assertTrue(courseFinder.find(30, Support.SNOWBOARD, null, 1, 1, Set.of()).isEmpty());
+        assertEquals(6, courseFinder.size());
+    }
+
+    /** Test that a reload picks up the courses changed or removed through another node. */
+    @Test
+    public void testReload() {
+        doReturn(List.of(course(1L, 2, TypeCourse.COLLECTIVE_ADULT, Support.SNOWBOARD),
+                course(3L, 2, TypeCourse.INDIVIDUAL, Support.SKI))).when(courseRepository).findAll();
+
+        courseFinder.load();
+
+        assertEquals(2, courseFinder.size());
+        assertEquals(List.of("3@1"), ids(courseFinder.find(30, Support.SKI, null, 1, 1, Set.of())));
+        assertEquals(List.of("1@1"), ids(courseFinder.find(30, Support.SNOWBOARD, null, 1, 1, Set.of())));
+    }
+
+    private static Course course(Long numCourse, int level, TypeCourse typeCourse, Support support) {
+        return new Course(numCourse, level, typeCourse, support, 100f, 1, null);
+    }
+
+    private static List<String> ids(List<AvailableCourseDTO> found) {
+        return found.stream().map(course -> course.getNumCourse() + "@" + course.getNumWeek()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,207 @@
+package tn.esprit.spring;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import tn.esprit.spring.entities.*;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.repositories.IWaitlistRepository;
+import tn.esprit.spring.services.CourseCapacityLedger;
+import tn.esprit.spring.services.CourseWaitlist;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.StreamSupport;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CourseWaitlistTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private ICourseRepository courseRepository;
+
+    @Autowired
+    private IRegistrationRepository registrationRepository;
+
+    @Autowired
+    private IWaitlistRepository waitlistRepository;
+
+    @Autowired
+    private CourseCapacityLedger capacityLedger;
+
+    @Autowired
+    private CourseWaitlist courseWaitlist;
+
+    /** Test that skiers wait in order for a full course and are promoted when seats are given back. */
+    @Test
+    public void testPromotionFromWaitlist() throws Exception {
+        Long numCourse = courseRepository.save(new Course(null, 1, TypeCourse.COLLECTIVE_ADULT, Support.SKI, 100f, 1, null))
+                .getNumCourse();
+        List<Long> skiers = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            Skier skier = new Skier();
+            skier.setFirstName("Skier" + i);
+            skier.setLastName("Waiting");
+            skier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+            skiers.add(skierRepository.save(skier).getNumSkier());
+        }
+        for (int i = 0; i < 6; i++) {
+            join(skiers.get(i), numCourse).andExpect(jsonPath("$.state").value("REGISTERED"));
+        }
+        join(skiers.get(6), numCourse)
+                .andExpect(jsonPath("$.state").value("WAITING"))
+                .andExpect(jsonPath("$.position").value(1));
+        join(skiers.get(7), numCourse).andExpect(jsonPath("$.position").value(2));
+        join(skiers.get(8), numCourse).andExpect(jsonPath("$.position").value(3));
+        // Joining again keeps the position
+        join(skiers.get(7), numCourse).andExpect(jsonPath("$.position").value(2));
+        assertEquals(3, waitlistRepository.count());
+
+        // The second waiting skier waits for its position to change
+        MvcResult waiting = mockMvc.perform(get("/registration/waitlist/" + skiers.get(7) + "/" + numCourse + "/3?wait=10"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(delete("/registration/delete/" + registrationOf(skiers.get(0), numCourse)))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(asyncDispatch(waiting))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("WAITING"))
+                .andExpect(jsonPath("$.position").value(1));
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/registration/waitlist/" + skiers.get(6) + "/" + numCourse + "/3"))
+                        .andReturn()))
+                .andExpect(jsonPath("$.state").value("REGISTERED"));
+        assertEquals(6, capacityLedger.taken(numCourse, 3));
+        assertEquals(6, registrationRepository.countByCourse_NumCourseAndNumWeek(numCourse, 3));
+
+        // Leaving the waitlist moves the next skier up
+        mockMvc.perform(delete("/registration/waitlist/" + skiers.get(7) + "/" + numCourse + "/3"))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/registration/waitlist/" + skiers.get(7) + "/" + numCourse + "/3"))
+                .andExpect(status().isNotFound());
+        assertEquals(1, courseWaitlist.status(skiers.get(8), numCourse, 3).getPosition());
+
+        // A seat given back while the application is down goes to the waitlist at startup
+        registrationRepository.deleteById(registrationOf(skiers.get(1), numCourse));
+        capacityLedger.load();
+        courseWaitlist.load();
+        assertEquals("REGISTERED", courseWaitlist.status(skiers.get(8), numCourse, 3).getState().name());
+        assertEquals(0, waitlistRepository.count());
+        assertEquals(0, courseWaitlist.size());
+        assertEquals(6, capacityLedger.taken(numCourse, 3));
+    }
+
+    /** Test that a seat given back on another node goes to the waitlist once the ledger is reconciled. */
+    @Test
+    public void testSweepPromotesAfterReconcile() throws Exception {
+        Long numCourse = courseRepository.save(new Course(null, 2, TypeCourse.COLLECTIVE_ADULT, Support.SKI, 100f, 2, null))
+                .getNumCourse();
+        List<Long> skiers = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Skier skier = new Skier();
+            skier.setFirstName("Skier" + i);
+            skier.setLastName("Swept");
+            skier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+            skiers.add(skierRepository.save(skier).getNumSkier());
+            join(skiers.get(i), numCourse);
+        }
+        assertEquals("WAITING", courseWaitlist.status(skiers.get(6), numCourse, 3).getState().name());
+
+        // Deleted on another node: this one's ledger and waitlist are not told
+        registrationRepository.deleteById(registrationOf(skiers.get(0), numCourse));
+        assertTrue(capacityLedger.reconcile().contains(CourseCapacityLedger.key(numCourse, 3)));
+        courseWaitlist.sweep();
+
+        assertEquals("REGISTERED", courseWaitlist.status(skiers.get(6), numCourse, 3).getState().name());
+        assertEquals(6, capacityLedger.taken(numCourse, 3));
+    }
+
+    /** Test that a waiting skier no longer allowed in the course is dropped at promotion, not registered. */
+    @Test
+    public void testIneligibleSkierIsDropped() throws Exception {
+        Long numCourse = courseRepository.save(new Course(null, 3, TypeCourse.COLLECTIVE_ADULT, Support.SKI, 100f, 3, null))
+                .getNumCourse();
+        List<Long> skiers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            skiers.add(newSkier("Aged", LocalDate.of(1990, 1, 1)));
+            join(skiers.get(i), numCourse);
+        }
+        // Its date of birth was corrected while it waited
+        Skier corrected = skierRepository.findById(skiers.get(6)).get();
+        corrected.setDateOfBirth(LocalDate.now().minusYears(10));
+        skierRepository.save(corrected);
+
+        mockMvc.perform(delete("/registration/delete/" + registrationOf(skiers.get(0), numCourse)))
+                .andExpect(status().isNoContent());
+
+        assertEquals("NOT_WAITING", courseWaitlist.status(skiers.get(6), numCourse, 3).getState().name());
+        assertEquals("REGISTERED", courseWaitlist.status(skiers.get(7), numCourse, 3).getState().name());
+        assertEquals(6, capacityLedger.taken(numCourse, 3));
+        assertEquals(6, registrationRepository.countByCourse_NumCourseAndNumWeek(numCourse, 3));
+        assertFalse(courseWaitlist.hasWaiting(numCourse, 3));
+    }
+
+    /** Test that the sweep picks up skiers who joined or left the waitlist through another node. */
+    @Test
+    public void testSweepReloadsWaitlists() throws Exception {
+        Long numCourse = courseRepository.save(new Course(null, 4, TypeCourse.COLLECTIVE_ADULT, Support.SKI, 100f, 4, null))
+                .getNumCourse();
+        for (int i = 0; i < 6; i++) {
+            join(newSkier("Full", LocalDate.of(1990, 1, 1)), numCourse);
+        }
+        Long numSkier = newSkier("Remote", LocalDate.of(1990, 1, 1));
+
+        // Joined on another node
+        Long numEntry = waitlistRepository.save(new WaitlistEntry(null, numSkier, numCourse, 3, LocalDateTime.now()))
+                .getNumEntry();
+        assertFalse(courseWaitlist.hasWaiting(numCourse, 3));
+        courseWaitlist.sweep();
+        assertEquals(1, courseWaitlist.status(numSkier, numCourse, 3).getPosition());
+
+        // Left on another node
+        waitlistRepository.deleteById(numEntry);
+        courseWaitlist.sweep();
+        assertEquals("NOT_WAITING", courseWaitlist.status(numSkier, numCourse, 3).getState().name());
+        assertFalse(courseWaitlist.hasWaiting(numCourse, 3));
+    }
+
+    private Long newSkier(String lastName, LocalDate dateOfBirth) {
+        Skier skier = new Skier();
+        skier.setFirstName("Skier");
+        skier.setLastName(lastName);
+        skier.setDateOfBirth(dateOfBirth);
+        return skierRepository.save(skier).getNumSkier();
+    }
+
+    private ResultActions join(Long numSkier, Long numCourse) throws Exception {
+        return mockMvc.perform(put("/registration/waitlist/" + numSkier + "/" + numCourse)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"numWeek\":3}"))
+                .andExpect(status().isOk());
+    }
+
+    private Long registrationOf(Long numSkier, Long numCourse) {
+        return StreamSupport.stream(registrationRepository.findAll().spliterator(), false)
+                .filter(r -> r.getSkier().getNumSkier().equals(numSkier) && r.getCourse().getNumCourse().equals(numCourse))
+                .findFirst().get().getNumRegistration();
+    }
+}
@@ -0,0 +1,336 @@
+package tn.esprit.spring;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import tn.esprit.spring.SqlStatementCounter.Type;
+import tn.esprit.spring.DTO.ExcursionDTO;
+import tn.esprit.spring.entities.*;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IInstructorRepository;
+import tn.esprit.spring.repositories.IPisteRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Calls every endpoint of the controllers and fails when one runs more SQL statements than
+ * its budget in sql-budgets.properties. The fixtures hold several rows per table, so a
+ * lookup per row shows up as an overrun; caches are cleared before each test.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(SqlStatementCounter.class)
+public class EndpointSqlBudgetTest {
+
+    private static final String CONTROLLERS = "tn.esprit.spring.controllers";
+
+    private static final SqlBudgets BUDGETS = SqlBudgets.load("sql-budgets.properties");
+
+    private static final Set<String> MEASURED = ConcurrentHashMap.newKeySet();
+
+    private static final int ROWS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SqlStatementCounter counter;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private RequestMappingHandlerMapping handlerMapping;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private ICourseRepository courseRepository;
+
+    @Autowired
+    private IPisteRepository pisteRepository;
+
+    @Autowired
+    private IRegistrationRepository registrationRepository;
+
+    @Autowired
+    private IInstructorRepository instructorRepository;
+
+    private List<Long> skiers;
+
+    private List<Long> courses;
+
+    private List<Long> pistes;
+
+    private Long numInstructor;
+
+    @BeforeEach
+    public void setup() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        courses = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            courses.add(courseRepository.save(new Course(null, 1 + i % 3, TypeCourse.COLLECTIVE_ADULT, Support.SKI,
+                    100f, 1 + i % 4, null)).getNumCourse());
+        }
+        pistes = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            pistes.add(pisteRepository.save(new Piste(null, "Piste" + i, Color.values()[i % Color.values().length],
+                    1000, 20, null)).getNumPiste());
+        }
+        skiers = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            Skier skier = new Skier();
+            skier.setFirstName("First" + i);
+            skier.setLastName("Budget");
+            skier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+            skier.setSubscription(new Subscription(null, LocalDate.now(), LocalDate.now().plusYears(1), 500f,
+                    TypeSubscription.ANNUAL));
+            Long id = skierRepository.save(skier).getNumSkier();
+            skiers.add(id);
+            registrationRepository.batchInsert(List.of(id), courses.get(i), 1);
+            registrationRepository.batchInsert(List.of(id), courses.get((i + 1) % ROWS), 2);
+        }
+        numInstructor = instructorRepository.save(new Instructor(null, "Instructor", "Budget", LocalDate.of(2015, 1, 1),
+                Set.of(courseRepository.findById(courses.get(0)).get()))).getNumInstructor();
+    }
+
+    /** Test that the skier endpoints stay within their statement budgets. */
+    @Test
+    public void testSkierEndpoints() throws Exception {
+        String skier = "{\"firstName\":\"New\",\"lastName\":\"Skier\",\"dateOfBirth\":\"1990-01-01\",\"city\":\"Tunis\","
+                + "\"subscription\":{\"startDate\":\"2024-12-01\",\"price\":500,\"typeSub\":\"ANNUAL\"}";
+        String added = call(post("/skier/add").contentType(MediaType.APPLICATION_JSON).content(skier + "}"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        call(post("/skier/addAndAssign/" + courses.get(0)).contentType(MediaType.APPLICATION_JSON)
+                .content(skier + ",\"registrations\":[{\"numWeek\":3},{\"numWeek\":4}]}"))
+                .andExpect(status().isOk());
+        StringBuilder csv = new StringBuilder("firstName,lastName,dateOfBirth,city,typeSub,startDate,price\n");
+        for (int i = 0; i < ROWS; i++) {
+            csv.append("Imported").append(i).append(",Skier,1990-01-01,Tunis,MONTHLY,2024-12-01,50\n");
+        }
+        call(post("/skier/import").contentType("text/csv").content(csv.toString()))
+                .andExpect(jsonPath("$.imported").value(ROWS));
+        Long numSub = skierRepository.findById(skiers.get(1)).get().getSubscription().getNumSub();
+        call(put("/skier/assignToSub/" + skiers.get(0) + "/" + numSub)).andExpect(status().isOk());
+        call(put("/skier/assignToPiste/" + skiers.get(0) + "/" + pistes.get(0))).andExpect(status().isOk());
+        call(delete("/skier/unassignFromPiste/" + skiers.get(0) + "/" + pistes.get(0))).andExpect(status().isNoContent());
+        call(post("/skier/excursions").contentType(MediaType.APPLICATION_JSON).content(excursionsJson()))
+                .andExpect(content().string(String.valueOf(ROWS)));
+        call(delete("/skier/excursions").contentType(MediaType.APPLICATION_JSON).content(excursionsJson()))
+                .andExpect(content().string(String.valueOf(ROWS)));
+        call(get("/skier/getSkiersBySubscription").param("typeSubscription", "ANNUAL")).andExpect(status().isOk());
+        call(get("/skier/get/" + skiers.get(0))).andExpect(jsonPath("$.registrations.length()").value(2));
+        call(get("/skier/pass/" + skiers.get(0))).andExpect(status().isOk());
+        call(get("/skier/all")).andExpect(status().isOk());
+        call(get("/skier/all").param("size", "3")).andExpect(jsonPath("$.items.length()").value(3));
+        call(get("/skier/all").accept(MediaType.APPLICATION_NDJSON)).andExpect(status().isOk());
+        // A skier without registrations: the registrations are not removed with the skier
+        call(delete("/skier/delete/" + id(added, "numSkier"))).andExpect(status().isOk());
+    }
+
+    /** Test that the course endpoints stay within their statement budgets. */
+    @Test
+    public void testCourseEndpoints() throws Exception {
+        String course = "\"level\":1,\"typeCourse\":\"COLLECTIVE_ADULT\",\"support\":\"SKI\",\"price\":100,\"timeSlot\":1}";
+        call(post("/course/add").contentType(MediaType.APPLICATION_JSON).content("{" + course)).andExpect(status().isOk());
+        call(put("/course/update").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"numCourse\":" + courses.get(0) + "," + course)).andExpect(status().isOk());
+        call(get("/course/all")).andExpect(status().isOk());
+        call(get("/course/all").param("size", "3")).andExpect(jsonPath("$.items.length()").value(3));
+        call(get("/course/all").accept(MediaType.APPLICATION_NDJSON)).andExpect(status().isOk());
+        call(get("/course/get/" + courses.get(1))).andExpect(status().isOk());
+        call(get("/course/available/" + skiers.get(0)).param("support", "SKI").param("fromWeek", "1").param("toWeek", "4"))
+                .andExpect(status().isOk());
+    }
+
+    /** Test that the instructor endpoints stay within their statement budgets. */
+    @Test
+    public void testInstructorEndpoints() throws Exception {
+        String instructor = "\"firstName\":\"New\",\"lastName\":\"Instructor\",\"dateOfHire\":\"2020-01-01\"}";
+        call(post("/instructor/add").contentType(MediaType.APPLICATION_JSON).content("{" + instructor))
+                .andExpect(status().isOk());
+        call(put("/instructor/addAndAssignToCourse/" + courses.get(1)).contentType(MediaType.APPLICATION_JSON)
+                .content("{" + instructor)).andExpect(status().isOk());
+        call(put("/instructor/update").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"numInstructor\":" + numInstructor + "," + instructor)).andExpect(status().isOk());
+        call(get("/instructor/all")).andExpect(status().isOk());
+        call(get("/instructor/all").param("size", "2")).andExpect(status().isOk());
+        call(get("/instructor/all").accept(MediaType.APPLICATION_NDJSON)).andExpect(status().isOk());
+        call(get("/instructor/get/" + numInstructor)).andExpect(status().isOk());
+        call(post("/instructor/roster").param("apply", "true").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"replace\":true,\"timeBudgetMs\":100}")).andExpect(jsonPath("$.applied").value(true));
+    }
+
+    /** Test that the piste endpoints stay within their statement budgets. */
+    @Test
+    public void testPisteEndpoints() throws Exception {
+        String added = call(post("/piste/add").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"namePiste\":\"New\",\"color\":\"RED\",\"length\":1200,\"slope\":25}"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        call(get("/piste/all")).andExpect(status().isOk());
+        call(get("/piste/all").param("size", "3")).andExpect(jsonPath("$.items.length()").value(3));
+        call(get("/piste/all").accept(MediaType.APPLICATION_NDJSON)).andExpect(status().isOk());
+        call(get("/piste/get/" + pistes.get(0))).andExpect(status().isOk());
+        skierRepository.insertExcursions(excursions());
+        call(get("/piste/skiers/count")).andExpect(status().isOk());
+        call(get("/piste/skiers/count/" + pistes.get(0))).andExpect(content().string("1"));
+        call(delete("/piste/delete/" + id(added, "numPiste"))).andExpect(status().isOk());
+    }
+
+    /** Test that the registration endpoints stay within their statement budgets. */
+    @Test
+    public void testRegistrationEndpoints() throws Exception {
+        Long numCourse = courses.get(2);
+        String added = call(put("/registration/addAndAssignToSkier/" + skiers.get(0))
+                .contentType(MediaType.APPLICATION_JSON).content("{\"numWeek\":5}"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        String numRegistration = id(added, "numRegistration");
+        call(put("/registration/assignToCourse/" + numRegistration + "/" + numCourse)
+                .contentType(MediaType.APPLICATION_JSON).content("{}")).andExpect(status().isOk());
+        call(put("/registration/registration/addAndAssignToSkierAndCourse/" + skiers.get(1) + "/" + numCourse)
+                .contentType(MediaType.APPLICATION_JSON).content("{\"numWeek\":6}")).andExpect(status().isOk());
+        call(put("/registration/queue/" + skiers.get(1) + "/" + numCourse)
+                .contentType(MediaType.APPLICATION_JSON).content("{\"numWeek\":7}")).andExpect(status().isServiceUnavailable());
+        call(get("/registration/ticket/unknown")).andExpect(status().isNotFound());
+        call(post("/registration/group").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"numSkiers\":" + skiers + ",\"numCourse\":" + numCourse + ",\"numWeek\":8}"))
+                .andExpect(jsonPath("$.length()").value(ROWS));
+        call(put("/registration/waitlist/" + skiers.get(2) + "/" + numCourse)
+                .contentType(MediaType.APPLICATION_JSON).content("{\"numWeek\":9}"))
+                .andExpect(jsonPath("$.state").value("REGISTERED"));
+        call(get("/registration/waitlist/" + skiers.get(2) + "/" + numCourse + "/9"))
+                .andExpect(jsonPath("$.state").value("REGISTERED"));
+        call(delete("/registration/waitlist/" + skiers.get(2) + "/" + numCourse + "/9")).andExpect(status().isNotFound());
+        call(delete("/registration/delete/" + numRegistration)).andExpect(status().isNoContent());
+        call(get("/registration/numWeeks/" + numInstructor + "/SKI")).andExpect(status().isOk());
+        call(get("/registration/timetable/" + numInstructor)).andExpect(status().isOk());
+    }
+
+    /** Test that the subscription endpoints stay within their statement budgets. */
+    @Test
+    public void testSubscriptionEndpoints() throws Exception {
+        String added = call(post("/subscription/add").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"startDate\":\"2024-12-01\",\"price\":50,\"typeSub\":\"MONTHLY\"}"))
+                .andExpect(status().isCreated()).andReturn().getResponse().getContentAsString();
+        String numSub = id(added, "numSub");
+        call(put("/subscription/update").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"numSub\":" + numSub + ",\"startDate\":\"2024-12-01\",\"endDate\":\"2025-01-01\",\"price\":60,"
+                        + "\"typeSub\":\"MONTHLY\"}")).andExpect(status().isOk());
+        call(get("/subscription/get/" + numSub)).andExpect(status().isOk());
+        call(get("/subscription/all/ANNUAL")).andExpect(status().isOk());
+        call(get("/subscription/all/ANNUAL").param("size", "3")).andExpect(jsonPath("$.items.length()").value(3));
+        call(get("/subscription/all/ANNUAL").accept(MediaType.APPLICATION_NDJSON)).andExpect(status().isOk());
+        call(get("/subscription/expiring").param("until", LocalDate.now().plusYears(2).toString()).param("size", "3"))
+                .andExpect(jsonPath("$.items.length()").value(3));
+        call(get("/subscription/revenue/monthly")).andExpect(status().isOk());
+        call(get("/subscription/revenue").param("from", "2024-01-01").param("to", LocalDate.now().toString())
+                .param("granularity", "MONTH")).andExpect(status().isOk());
+        call(get("/subscription/all/2024-01-01/" + LocalDate.now())).andExpect(status().isOk());
+    }
+
+    /** Test that the cache endpoints run no statement. */
+    @Test
+    public void testCacheEndpoints() throws Exception {
+        call(get("/cache/stats")).andExpect(status().isOk());
+        call(delete("/cache/clear")).andExpect(status().isOk());
+    }
+
+    /** Test that every endpoint has a budget and that no budget is left over. */
+    @Test
+    public void testEveryEndpointHasABudget() {
+        Set<String> endpoints = endpoints(handlerMapping);
+        assertFalse(endpoints.isEmpty());
+        Set<String> unbudgeted = new TreeSet<>(endpoints);
+        unbudgeted.removeAll(BUDGETS.endpoints());
+        assertTrue(unbudgeted.isEmpty(), "Endpoints without a SQL budget: " + unbudgeted);
+        Set<String> stale = new TreeSet<>(BUDGETS.endpoints());
+        stale.removeAll(endpoints);
+        assertTrue(stale.isEmpty(), "SQL budgets of unknown endpoints: " + stale);
+    }
+
+    /** Checks, once every test has run whatever their order, that each endpoint was called. */
+    @AfterAll
+    public static void checkEveryEndpointMeasured(@Autowired RequestMappingHandlerMapping handlerMapping) {
+        Set<String> unmeasured = endpoints(handlerMapping);
+        unmeasured.removeAll(MEASURED);
+        assertTrue(unmeasured.isEmpty(), "Endpoints not called: " + unmeasured);
+    }
+
+    /**
+     * Performs the request, through its async dispatch when there is one, and checks the
+     * statements it ran against the budget of the handler method.
+     */
+    private ResultActions call(RequestBuilder request) throws Exception {
+        counter.reset();
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            actions = mockMvc.perform(asyncDispatch(result));
+        }
+        String endpoint = endpoint((HandlerMethod) result.getHandler());
+        Map<Type, Integer> counts = counter.counts();
+        MEASURED.add(endpoint);
+        assertNotNull(BUDGETS.budget(endpoint), "No SQL budget for " + endpoint + ", which ran " + counts);
+        List<String> overruns = BUDGETS.overruns(endpoint, counts);
+        assertTrue(overruns.isEmpty(), endpoint + " is over its SQL budget (" + String.join(", ", overruns) + "):\n"
+                + String.join("\n", counter.statements()));
+        return actions;
+    }
+
+    private static Set<String> endpoints(RequestMappingHandlerMapping handlerMapping) {
+        return handlerMapping.getHandlerMethods().values().stream()
+                .filter(handler -> handler.getBeanType().getPackageName().equals(CONTROLLERS))
+                .map(EndpointSqlBudgetTest::endpoint)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private static String endpoint(HandlerMethod handler) {
+        return ClassUtils.getUserClass(handler.getBeanType()).getSimpleName() + "." + handler.getMethod().getName();
+    }
+
+    private static String id(String json, String field) {
+        return JsonPath.read(json, "$." + field).toString();
+    }
+
+    private List<ExcursionDTO> excursions() {
+        List<ExcursionDTO> excursions = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            excursions.add(new ExcursionDTO(skiers.get(i), pistes.get(i)));
+        }
+        return excursions;
+    }
+
+    private String excursionsJson() {
+        return excursions().stream()
+                .map(excursion -> "{\"numSkier\":" + excursion.getNumSkier() + ",\"numPiste\":" + excursion.getNumPiste() + "}")
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+}
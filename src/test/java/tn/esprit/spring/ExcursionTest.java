@@ -0,0 +1,80 @@
+package tn.esprit.spring;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import tn.esprit.spring.entities.Color;
+import tn.esprit.spring.entities.Piste;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.repositories.IPisteRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+
+import java.time.LocalDate;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+// A database of its own: the test reads the first piste of the list, which other classes sharing the context would fill
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:excursions;MODE=MySQL;DB_CLOSE_DELAY=-1")
+public class ExcursionTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private IPisteRepository pisteRepository;
+
+    /** Test that excursions are written in batches and counted per piste. */
+    @Test
+    public void testExcursions() throws Exception {
+        Long first = skier("First");
+        Long second = skier("Second");
+        Long green = pisteRepository.save(new Piste(null, "Green", Color.GREEN, 1200, 10, null)).getNumPiste();
+        Long black = pisteRepository.save(new Piste(null, "Black", Color.BLACK, 900, 40, null)).getNumPiste();
+
+        mockMvc.perform(put("/skier/assignToPiste/" + first + "/" + green))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numSkier").value(first));
+        // The duplicate and the unknown piste are skipped
+        String batch = String.format("[{\"numSkier\":%d,\"numPiste\":%d},{\"numSkier\":%d,\"numPiste\":%d},"
+                        + "{\"numSkier\":%d,\"numPiste\":%d},{\"numSkier\":%d,\"numPiste\":%d}]",
+                first, green, second, green, first, black, second, 999_999L);
+        mockMvc.perform(post("/skier/excursions").contentType(MediaType.APPLICATION_JSON).content(batch))
+                .andExpect(status().isOk())
+                .andExpect(content().string("2"));
+        mockMvc.perform(post("/skier/excursions").contentType(MediaType.APPLICATION_JSON).content("[{\"numSkier\":1}]"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/piste/skiers/count"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].numPiste").value(green))
+                .andExpect(jsonPath("$[0].total").value(2))
+                .andExpect(jsonPath("$[1].numPiste").value(black))
+                .andExpect(jsonPath("$[1].total").value(1));
+
+        mockMvc.perform(delete("/skier/unassignFromPiste/" + second + "/" + green)).andExpect(status().isNoContent());
+        mockMvc.perform(delete("/skier/unassignFromPiste/" + second + "/" + green)).andExpect(status().isNotFound());
+        mockMvc.perform(get("/piste/skiers/count/" + green))
+                .andExpect(status().isOk())
+                .andExpect(content().string("1"));
+        assertEquals(1, pisteRepository.countSkiers(black));
+    }
+
+    private Long skier(String firstName) {
+        Skier skier = new Skier();
+        skier.setFirstName(firstName);
+        skier.setLastName("Last");
+        skier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        return skierRepository.save(skier).getNumSkier();
+    }
+}
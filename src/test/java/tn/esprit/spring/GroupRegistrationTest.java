@@ -0,0 +1,102 @@
+package tn.esprit.spring;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import tn.esprit.spring.entities.*;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.services.CourseCapacityLedger;
+import tn.esprit.spring.services.IRegistrationServices;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class GroupRegistrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IRegistrationServices registrationServices;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private ICourseRepository courseRepository;
+
+    @Autowired
+    private CourseCapacityLedger capacityLedger;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** Test that each skier of a group gets its own outcome, in the order of the request. */
+    @Test
+    public void testGroupOutcomes() throws Exception {
+        Long numCourse = courseRepository.save(new Course(null, 1, TypeCourse.COLLECTIVE_ADULT, Support.SKI, 100f, 1, null))
+                .getNumCourse();
+        Long registered = newSkier(LocalDate.of(1990, 1, 1));
+        assertNotNull(registrationServices.addRegistrationAndAssignToSkierAndCourse(
+                new Registration(null, 3, null, null), registered, numCourse));
+        Long child = newSkier(LocalDate.now().minusYears(10));
+        List<Long> adults = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            adults.add(newSkier(LocalDate.of(1985, 1, 1)));
+        }
+        // One seat is taken already: five of the adults get in, the sixth finds the course full
+        List<Long> group = new ArrayList<>(List.of(registered, adults.get(0), adults.get(0), child, 999_999L));
+        group.addAll(adults.subList(1, 6));
+
+        mockMvc.perform(post("/registration/group").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"numSkiers\":" + group + ",\"numCourse\":" + numCourse + ",\"numWeek\":3}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(group.size()))
+                .andExpect(jsonPath("$[0].status").value("DUPLICATE"))
+                .andExpect(jsonPath("$[1].status").value("ACCEPTED"))
+                .andExpect(jsonPath("$[2].status").value("DUPLICATE"))
+                .andExpect(jsonPath("$[3].status").value("WRONG_AGE"))
+                .andExpect(jsonPath("$[4].status").value("UNKNOWN_SKIER"))
+                .andExpect(jsonPath("$[5].status").value("ACCEPTED"))
+                .andExpect(jsonPath("$[8].status").value("ACCEPTED"))
+                .andExpect(jsonPath("$[9].status").value("FULL"))
+                .andExpect(jsonPath("$[9].numSkier").value(adults.get(5)));
+
+        assertEquals(6, capacityLedger.taken(numCourse, 3));
+        List<Long> inserted = jdbcTemplate.queryForList(
+                "select skier_num_skier from registration where course_num_course = ? and num_week = 3", Long.class, numCourse);
+        List<Long> expected = new ArrayList<>(List.of(registered));
+        expected.addAll(adults.subList(0, 5));
+        assertEquals(expected.stream().sorted().collect(Collectors.toList()),
+                inserted.stream().sorted().collect(Collectors.toList()));
+    }
+
+    /** Test that a group registration to an unknown course is answered with a 404. */
+    @Test
+    public void testUnknownCourse() throws Exception {
+        mockMvc.perform(post("/registration/group").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"numSkiers\":[" + newSkier(LocalDate.of(1990, 1, 1)) + "],\"numCourse\":999999,\"numWeek\":3}"))
+                .andExpect(status().isNotFound());
+    }
+
+    private Long newSkier(LocalDate dateOfBirth) {
+        Skier skier = new Skier();
+        skier.setFirstName("Group");
+        skier.setLastName("Skier");
+        skier.setDateOfBirth(dateOfBirth);
+        return skierRepository.save(skier).getNumSkier();
+    }
+}
@@ -0,0 +1,119 @@
+package tn.esprit.spring;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import tn.esprit.spring.DTO.TimetableSlotDTO;
+import tn.esprit.spring.DTO.CourseWeekCount;
+import tn.esprit.spring.DTO.InstructorCourse;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Support;
+import tn.esprit.spring.entities.TypeCourse;
+import tn.esprit.spring.repositories.IInstructorRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+import tn.esprit.spring.services.InstructorTimetable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+public class InstructorTimetableTest {
+
+    private final Course skiCourse = new Course(1L, 1, TypeCourse.COLLECTIVE_ADULT, Support.SKI, 100f, 1, null);
+
+    private final Course snowboardCourse = new Course(2L, 1, TypeCourse.COLLECTIVE_ADULT, Support.SNOWBOARD, 100f, 1, null);
+
+    private IRegistrationRepository registrationRepository;
+
+    private InstructorTimetable timetable;
+
+    @BeforeEach
+    public void setup() {
+        registrationRepository = mock(IRegistrationRepository.class);
+        IInstructorRepository instructorRepository = mock(IInstructorRepository.class);
+        List<InstructorCourse> taught = List.of(taught(10L, skiCourse), taught(10L, snowboardCourse));
+        List<CourseWeekCount> counts = List.of(count(1L, 3, 4L), count(1L, 5, 2L), count(2L, 3, 1L));
+        when(instructorRepository.findAllInstructorCourses()).thenReturn(taught);
+        when(registrationRepository.countGroupByCourseAndNumWeek()).thenReturn(counts);
+        timetable = new InstructorTimetable(registrationRepository, instructorRepository);
+        timetable.rebuild();
+    }
+
+    /** Test that the timetable is built from the registrations of the instructor's courses. */
+    @Test
+    public void testRebuild() {
+        assertEquals(List.of(3, 5), timetable.weeks(10L, Support.SKI));
+        assertEquals(List.of(3), timetable.weeks(10L, Support.SNOWBOARD));
+        assertEquals(3, timetable.timetable(10L).size());
+        assertTrue(timetable.weeks(11L, Support.SKI).isEmpty());
+    }
+
+    /** Test that registrations and course changes update the timetable incrementally. */
+    @Test
+    public void testIncrementalUpdates() {
+        timetable.registrationAdded(skiCourse.getNumCourse(), skiCourse.getSupport(), 7);
+        assertEquals(List.of(3, 5, 7), timetable.weeks(10L, Support.SKI));
+
+        timetable.registrationRemoved(snowboardCourse.getNumCourse(), snowboardCourse.getSupport(), 3);
+        assertTrue(timetable.weeks(10L, Support.SNOWBOARD).isEmpty());
+
+        timetable.instructorCoursesChanged(11L, Set.of(skiCourse));
+        assertTrue(timetable.weeks(10L, Support.SKI).isEmpty());
+        assertEquals(List.of(3, 5, 7), timetable.weeks(11L, Support.SKI));
+
+        timetable.instructorCoursesChanged(11L, Collections.emptySet());
+        assertTrue(timetable.timetable(11L).isEmpty());
+    }
+
+    /** Test that a rebuild replaces the timetable, unless a change was in flight while it counted. */
+    @Test
+    public void testScheduledRebuild() {
+        List<CourseWeekCount> counts = List.of(count(1L, 3, 4L), count(1L, 5, 2L), count(1L, 7, 1L), count(2L, 3, 1L));
+        doReturn(counts).when(registrationRepository).countGroupByCourseAndNumWeek();
+
+        // Committed before the rebuild counted it, but applied after
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            timetable.registrationAdded(skiCourse.getNumCourse(), skiCourse.getSupport(), 7);
+            timetable.rebuild();
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                    TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(1, registrations(10L, 7));
+
+        // Made through another node
+        doReturn(List.of(count(1L, 9, 2L))).when(registrationRepository).countGroupByCourseAndNumWeek();
+        timetable.rebuild();
+        assertEquals(List.of(9), timetable.weeks(10L, Support.SKI));
+        assertTrue(timetable.weeks(10L, Support.SNOWBOARD).isEmpty());
+    }
+
+    private int registrations(Long numInstructor, int numWeek) {
+        return timetable.timetable(numInstructor).stream()
+                .filter(slot -> slot.getSupport() == Support.SKI && slot.getNumWeek() == numWeek)
+                .mapToInt(TimetableSlotDTO::getRegistrations)
+                .sum();
+    }
+
+    private static InstructorCourse taught(Long numInstructor, Course course) {
+        InstructorCourse row = mock(InstructorCourse.class);
+        when(row.getNumInstructor()).thenReturn(numInstructor);
+        when(row.getCourse()).thenReturn(course);
+        return row;
+    }
+
+    private static CourseWeekCount count(Long numCourse, int numWeek, Long total) {
+        CourseWeekCount row = mock(CourseWeekCount.class);
+        when(row.getNumCourse()).thenReturn(numCourse);
+        when(row.getNumWeek()).thenReturn(numWeek);
+        when(row.getTotal()).thenReturn(total);
+        return row;
+    }
+}
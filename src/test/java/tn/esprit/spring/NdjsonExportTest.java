@@ -0,0 +1,151 @@
+package tn.esprit.spring;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import tn.esprit.spring.entities.*;
+import tn.esprit.spring.repositories.IPisteRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.services.NdjsonWriter;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class NdjsonExportTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private IPisteRepository pisteRepository;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    /** Test that the /all listings are streamed one JSON object per line when NDJSON is asked for. */
+    @Test
+    public void testStreamsNdjson() throws Exception {
+        pisteRepository.save(new Piste(null, "Streamed", Color.BLUE, 800, 12, null));
+        Skier skier = new Skier();
+        skier.setFirstName("Streamed");
+        skier.setLastName("Skier");
+        skier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        skier.setSubscription(new Subscription(null, LocalDate.of(2024, 12, 1), LocalDate.of(2024, 12, 31), 50f,
+                TypeSubscription.MONTHLY));
+        Long numSkier = skierRepository.save(skier).getNumSkier();
+
+        assertTrue(names(ndjson("/piste/all"), "namePiste").contains("Streamed"));
+        List<JsonNode> skiers = ndjson("/skier/all");
+        assertTrue(names(skiers, "numSkier").contains(numSkier.toString()));
+        for (JsonNode line : skiers) {
+            assertTrue(line.has("registrations"));
+        }
+        List<JsonNode> subscriptions = ndjson("/subscription/all/MONTHLY");
+        assertFalse(subscriptions.isEmpty());
+        subscriptions.forEach(line -> assertEquals("MONTHLY", line.get("typeSub").asText()));
+        ndjson("/course/all");
+        ndjson("/instructor/all");
+    }
+
+    /** Test that clients not asking for NDJSON keep getting a JSON array. */
+    @Test
+    public void testJsonArrayByDefault() throws Exception {
+        pisteRepository.save(new Piste(null, "Listed", Color.RED, 900, 20, null));
+        for (String path : List.of("/piste/all", "/skier/all", "/course/all", "/instructor/all", "/subscription/all/MONTHLY")) {
+            mockMvc.perform(get(path))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$").isArray());
+            mockMvc.perform(get(path).accept(MediaType.ALL))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$").isArray());
+            mockMvc.perform(get(path).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$").isArray());
+        }
+    }
+
+    /** Test that a page cursor sent without a size is rejected rather than ignored. */
+    @Test
+    public void testCursorWithoutSizeIsRejected() throws Exception {
+        pisteRepository.save(new Piste(null, "First", Color.GREEN, 500, 5, null));
+        pisteRepository.save(new Piste(null, "Second", Color.GREEN, 600, 6, null));
+        String next = objectMapper.readTree(mockMvc.perform(get("/piste/all").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andReturn().getResponse().getContentAsString()).get("next").asText();
+        mockMvc.perform(get("/piste/all").param("cursor", next).param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1));
+
+        for (String path : List.of("/piste/all", "/skier/all", "/course/all", "/instructor/all", "/subscription/all/MONTHLY")) {
+            mockMvc.perform(get(path).param("cursor", next)).andExpect(status().isBadRequest());
+            mockMvc.perform(get(path).param("cursor", next).accept(MediaType.APPLICATION_NDJSON))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    /** Test that the writer ends every row with a newline and clears the persistence context after each chunk. */
+    @Test
+    public void testWriterClearsEveryChunk() throws Exception {
+        EntityManager entityManager = mock(EntityManager.class);
+        NdjsonWriter writer = new NdjsonWriter(entityManager, new ObjectMapper());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = writer.write(IntStream.range(0, 1001).mapToObj(i -> Map.of("row", i)), out);
+
+        assertEquals(1001, count);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertEquals(1002, lines.length);
+        assertEquals("{\"row\":1000}", lines[1000]);
+        assertEquals("", lines[1001]);
+        verify(entityManager, times(2)).clear();
+    }
+
+    private List<JsonNode> ndjson(String path) throws Exception {
+        MvcResult started = mockMvc.perform(get(path).header(HttpHeaders.ACCEPT, MediaType.APPLICATION_NDJSON_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            if (!line.isEmpty()) {
+                lines.add(objectMapper.readTree(line));
+            }
+        }
+        return lines;
+    }
+
+    private static List<String> names(List<JsonNode> lines, String field) {
+        List<String> names = new ArrayList<>();
+        lines.forEach(line -> names.add(line.get(field).asText()));
+        return names;
+    }
+}
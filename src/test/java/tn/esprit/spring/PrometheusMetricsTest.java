@@ -0,0 +1,62 @@
+package tn.esprit.spring;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import tn.esprit.spring.entities.*;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+
+import java.time.LocalDate;
+import java.util.regex.Pattern;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+// Metrics are only exported in tests that ask for them
+@AutoConfigureMetrics
+public class PrometheusMetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private ICourseRepository courseRepository;
+
+    /** Test that one registration shows up in the scrape as an outcome count and a timing of the service method. */
+    @Test
+    public void testRegistrationIsScraped() throws Exception {
+        Skier skier = new Skier();
+        skier.setFirstName("Scraped");
+        skier.setLastName("Skier");
+        skier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        Long numSkier = skierRepository.save(skier).getNumSkier();
+        Long numCourse = courseRepository.save(new Course(null, 1, TypeCourse.COLLECTIVE_ADULT, Support.SKI, 100f, 1, null))
+                .getNumCourse();
+
+        mockMvc.perform(put("/registration/registration/addAndAssignToSkierAndCourse/" + numSkier + "/" + numCourse)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"numWeek\":1}"))
+                .andExpect(status().isOk());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(Pattern.compile("(?m)^registration_outcome_total\\{outcome=\"accepted\",?} 1\\.0$").matcher(scrape).find(),
+                "no accepted registration in:\n" + scrape);
+        assertTrue(Pattern.compile("(?m)^service_method_seconds_count\\{class=\"RegistrationServicesImpl\",exception=\"none\","
+                        + "method=\"addRegistrationAndAssignToSkierAndCourse\",?} 1\\.0$").matcher(scrape).find(),
+                "no timing of the registration in:\n" + scrape);
+        assertTrue(scrape.contains("service_method_seconds_bucket{class=\"RegistrationServicesImpl\""));
+        assertTrue(scrape.contains("service_method_seconds{class=\"RegistrationServicesImpl\""));
+    }
+}
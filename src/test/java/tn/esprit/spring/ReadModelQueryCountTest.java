@@ -0,0 +1,142 @@
+package tn.esprit.spring;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import tn.esprit.spring.entities.*;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IInstructorRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ReadModelQueryCountTest {
+
+    private static final int SKIERS = 30;
+
+    private static final int INSTRUCTORS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private ICourseRepository courseRepository;
+
+    @Autowired
+    private IRegistrationRepository registrationRepository;
+
+    @Autowired
+    private IInstructorRepository instructorRepository;
+
+    private Long numSkier;
+
+    private Long numInstructor;
+
+    @BeforeEach
+    public void setup() {
+        if (skierRepository.count() == 0) {
+            seed();
+        }
+        numSkier = skierRepository.findAll().get(0).getNumSkier();
+        numInstructor = instructorRepository.findAll().get(0).getNumInstructor();
+    }
+
+    /** Test that the skier listings and detail read a fixed number of statements. */
+    @Test
+    public void testSkierReadModels() throws Exception {
+        assertEquals(2, statements(get("/skier/all")));
+        assertEquals(2, statements(get("/skier/all").param("size", "10")));
+        assertEquals(2, statements(get("/skier/get/" + numSkier)));
+        assertEquals(2, streamedStatements(get("/skier/all").accept(MediaType.APPLICATION_NDJSON)));
+    }
+
+    /** Test that the instructor listings and detail read a fixed number of statements. */
+    @Test
+    public void testInstructorReadModels() throws Exception {
+        assertEquals(2, statements(get("/instructor/all")));
+        assertEquals(2, statements(get("/instructor/all").param("size", "2")));
+        assertEquals(2, streamedStatements(get("/instructor/all").accept(MediaType.APPLICATION_NDJSON)));
+        statements(get("/instructor/get/" + numInstructor));
+        assertEquals(0, statements(get("/instructor/get/" + numInstructor)));
+    }
+
+    /** Test that the read models carry the nested collections. */
+    @Test
+    public void testSkierReadModelContent() throws Exception {
+        mockMvc.perform(get("/skier/get/" + numSkier))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.subscription.typeSub").exists())
+                .andExpect(jsonPath("$.registrations.length()").value(2))
+                .andExpect(jsonPath("$.registrations[0].numCourse").exists());
+        mockMvc.perform(get("/instructor/all"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(INSTRUCTORS))
+                .andExpect(jsonPath("$[0].courses.length()").value(2));
+    }
+
+    private long statements(RequestBuilder request) throws Exception {
+        Statistics statistics = statistics();
+        mockMvc.perform(request).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long streamedStatements(RequestBuilder request) throws Exception {
+        Statistics statistics = statistics();
+        MvcResult result = mockMvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    private void seed() {
+        List<Course> courses = new ArrayList<>();
+        for (int i = 0; i < INSTRUCTORS * 2; i++) {
+            courses.add(courseRepository.save(new Course(null, 1, TypeCourse.COLLECTIVE_ADULT, Support.SKI, 100f, 1, null)));
+        }
+        for (int i = 0; i < SKIERS; i++) {
+            Skier skier = new Skier();
+            skier.setFirstName("First" + i);
+            skier.setLastName("Last" + i);
+            skier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+            skier.setSubscription(new Subscription(null, LocalDate.now(), LocalDate.now().plusYears(1), 500f,
+                    TypeSubscription.ANNUAL));
+            Long id = skierRepository.save(skier).getNumSkier();
+            registrationRepository.batchInsert(List.of(id), courses.get(i % courses.size()).getNumCourse(), 1);
+            registrationRepository.batchInsert(List.of(id), courses.get((i + 1) % courses.size()).getNumCourse(), 2);
+        }
+        for (int i = 0; i < INSTRUCTORS; i++) {
+            instructorRepository.save(new Instructor(null, "Instructor" + i, "Last" + i, LocalDate.of(2015, 1, 1),
+                    Set.of(courses.get(2 * i), courses.get(2 * i + 1))));
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package tn.esprit.spring;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import tn.esprit.spring.configs.ReplicaLagMonitor;
+import tn.esprit.spring.entities.*;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IInstructorRepository;
+import tn.esprit.spring.repositories.IPisteRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.services.IPisteServices;
+import tn.esprit.spring.services.SkierPassIndex;
+import tn.esprit.spring.services.SubscriptionRevenueAggregator;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        // The replica is created with the same user as the primary
+        "spring.datasource.username=sa",
+        "ski.datasource.replicas.urls=" + ReadReplicaRoutingTest.REPLICA_URL,
+        // The test moves the replica's heartbeat itself and checks the lag when it wants to
+        "ski.datasource.replicas.heartbeat-ms=3600000"
+})
+public class ReadReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private static final JdbcTemplate REPLICA;
+
+    static {
+        // The replica gets the schema the way replication would give it
+        DataSource replica = new DriverManagerDataSource(REPLICA_URL, "sa", "");
+        Flyway.configure().dataSource(replica).load().migrate();
+        REPLICA = new JdbcTemplate(replica);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ReplicaLagMonitor lagMonitor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private IPisteServices pisteServices;
+
+    @Autowired
+    private IPisteRepository pisteRepository;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private ICourseRepository courseRepository;
+
+    @Autowired
+    private IRegistrationRepository registrationRepository;
+
+    @Autowired
+    private IInstructorRepository instructorRepository;
+
+    @Autowired
+    private SkierPassIndex passIndex;
+
+    @Autowired
+    private SubscriptionRevenueAggregator revenueAggregator;
+
+    @BeforeEach
+    public void setup() {
+        lagBy(0);
+    }
+
+    /** Test that read-only service methods read the replica while lookups and writes go to the primary. */
+    @Test
+    public void testReadOnlyServiceMethodsReadTheReplica() throws Exception {
+        REPLICA.update("insert into piste (num_piste, name_piste, color, length, slope) values (1000, 'Replicated', 'BLUE', 900, 15)");
+        pisteRepository.save(new Piste(null, "Primary", Color.RED, 1200, 25, null));
+        double reads = routed("replica-1", "read");
+
+        assertTrue(pageNames().contains("Replicated"));
+        assertFalse(pageNames().contains("Primary"));
+        // Repository reads outside a read-only service method stay on the primary
+        List<String> primary = pisteServices.retrieveAllPistes().stream().map(Piste::getNamePiste).collect(Collectors.toList());
+        assertTrue(primary.contains("Primary"));
+        assertFalse(primary.contains("Replicated"));
+        mockMvc.perform(post("/piste/add").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"namePiste\":\"Added\",\"color\":\"GREEN\",\"length\":500,\"slope\":5}"))
+                .andExpect(status().isOk());
+        assertEquals(0, REPLICA.queryForObject("select count(*) from piste where name_piste = 'Added'", Integer.class));
+        assertEquals(1, new JdbcTemplate(dataSource).queryForObject(
+                "select count(*) from piste where name_piste = 'Added'", Integer.class));
+
+        assertEquals(reads + 2, routed("replica-1", "read"));
+        assertTrue(routed("primary", "write") > 0);
+        assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "replica-1").gauge());
+        assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "primary").gauge());
+    }
+
+    /** Test that reads go back to the primary while the replica lags, and to the replica once it caught up. */
+    @Test
+    public void testLaggingReplicaFallsBackToPrimary() {
+        pisteRepository.save(new Piste(null, "Lagging", Color.BLACK, 700, 40, null));
+        double fallbacks = routed("primary", "lag");
+
+        lagBy(60_000);
+
+        assertTrue(meterRegistry.get("datasource.replica.lag").tag("pool", "replica-1").gauge().value() >= 60_000);
+        assertTrue(pageNames().contains("Lagging"));
+        assertEquals(fallbacks + 1, routed("primary", "lag"));
+
+        lagBy(0);
+
+        assertFalse(pageNames().contains("Lagging"));
+        assertEquals(fallbacks + 1, routed("primary", "lag"));
+    }
+
+    /** Test that a roster is planned on the replica, but read from and written to the primary when applied. */
+    @Test
+    public void testReadThenWriteInOneRequest() throws Exception {
+        Skier skier = new Skier();
+        skier.setFirstName("Roster");
+        skier.setLastName("Replica");
+        skier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        Long numSkier = skierRepository.save(skier).getNumSkier();
+        Long numCourse = courseRepository.save(new Course(null, 1, TypeCourse.COLLECTIVE_ADULT, Support.SKI, 100f, 1, null))
+                .getNumCourse();
+        registrationRepository.batchInsert(List.of(numSkier), numCourse, 1);
+        instructorRepository.save(new Instructor(null, "Replica", "Instructor", LocalDate.of(2015, 1, 1), null));
+        replicate("skier", "course", "registration", "instructor");
+        double reads = routed("replica-1", "read");
+
+        mockMvc.perform(post("/instructor/roster").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"replace\":true,\"timeBudgetMs\":100}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(false));
+        assertTrue(routed("replica-1", "read") > reads);
+
+        reads = routed("replica-1", "read");
+        mockMvc.perform(post("/instructor/roster").param("apply", "true").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"replace\":true,\"timeBudgetMs\":100}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(true))
+                .andExpect(jsonPath("$.assignments.length()").value(1));
+
+        assertEquals(reads, routed("replica-1", "read"));
+        assertEquals(1, new JdbcTemplate(dataSource).queryForObject("select count(*) from instructor_courses", Integer.class));
+        assertEquals(0, REPLICA.queryForObject("select count(*) from instructor_courses", Integer.class));
+    }
+
+    /** Test that the in-memory indexes are rebuilt from the primary rather than from a replica. */
+    @Test
+    public void testRebuildsReadThePrimary() {
+        double reads = routed("replica-1", "read");
+
+        passIndex.rebuild();
+        revenueAggregator.rebuild();
+
+        assertEquals(reads, routed("replica-1", "read"));
+    }
+
+    private List<String> pageNames() {
+        return pisteServices.retrievePistesPage(null, 50).getItems().stream()
+                .map(Piste::getNamePiste)
+                .collect(Collectors.toList());
+    }
+
+    // What replication would do: the replica holds a stamp that old, and the lag is measured
+    private void lagBy(long millis) {
+        REPLICA.update("update replica_heartbeat set beat = ? where id = 1",
+                LocalDateTime.now(ZoneOffset.UTC).minusNanos(millis * 1_000_000));
+        lagMonitor.check();
+    }
+
+    private void replicate(String... tables) {
+        JdbcTemplate primary = new JdbcTemplate(dataSource);
+        for (String table : tables) {
+            SimpleJdbcInsert insert = new SimpleJdbcInsert(REPLICA).withTableName(table);
+            primary.queryForList("select * from " + table).forEach(insert::execute);
+        }
+    }
+
+    private double routed(String route, String reason) {
+        Counter counter = meterRegistry.find("datasource.routed.connections").tag("route", route).tag("reason", reason).counter();
+        return counter != null ? counter.count() : 0;
+    }
+}
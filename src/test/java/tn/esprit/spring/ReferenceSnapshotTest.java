@@ -0,0 +1,108 @@
+package tn.esprit.spring;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import tn.esprit.spring.services.JsonSnapshots;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+// A database of its own: the test checks the whole /piste/all list, which other classes sharing the context would fill
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:snapshots;MODE=MySQL;DB_CLOSE_DELAY=-1")
+public class ReferenceSnapshotTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /** Test that polls with a matching ETag get a 304 without a query until the pistes change. */
+    @Test
+    public void testConditionalGet() throws Exception {
+        addPiste("Green");
+        String etag = mockMvc.perform(get("/piste/all"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].namePiste").value("Green"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(get("/piste/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/piste/all"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        addPiste("Red");
+        mockMvc.perform(get("/piste/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    /** Test that clients accepting gzip get the pre-compressed body with its own ETag. */
+    @Test
+    public void testGzip() throws Exception {
+        mockMvc.perform(post("/course/add").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"level\":1,\"typeCourse\":\"COLLECTIVE_ADULT\",\"support\":\"SKI\",\"price\":100,\"timeSlot\":1}"))
+                .andExpect(status().isOk());
+        MvcResult plain = mockMvc.perform(get("/course/all")).andExpect(status().isOk()).andReturn();
+        MvcResult gzipped = mockMvc.perform(get("/course/all").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+
+        byte[] json = plain.getResponse().getContentAsByteArray();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getResponse().getContentAsByteArray()))) {
+            assertArrayEquals(json, in.readAllBytes());
+        }
+        assertNotEquals(plain.getResponse().getHeader(HttpHeaders.ETAG), gzipped.getResponse().getHeader(HttpHeaders.ETAG));
+        mockMvc.perform(get("/course/all").header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, gzipped.getResponse().getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isNotModified());
+    }
+
+    /** Test that a snapshot is rebuilt once expired, for changes made through another node. */
+    @Test
+    public void testSnapshotExpires() throws Exception {
+        JsonSnapshots snapshots = new JsonSnapshots(new ObjectMapper(), 50);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<List<Integer>> loader = () -> List.of(loads.incrementAndGet());
+
+        String etag = snapshots.get("pistes", loader).response(null).getHeaders().getETag();
+        assertEquals(etag, snapshots.get("pistes", loader).response(null).getHeaders().getETag());
+        assertEquals(1, loads.get());
+
+        Thread.sleep(100);
+        assertNotEquals(etag, snapshots.get("pistes", loader).response(null).getHeaders().getETag());
+        assertEquals(2, loads.get());
+    }
+
+    private void addPiste(String name) throws Exception {
+        mockMvc.perform(post("/piste/add").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"namePiste\":\"" + name + "\",\"color\":\"GREEN\",\"length\":1000,\"slope\":10}"))
+                .andExpect(status().isOk());
+    }
+}
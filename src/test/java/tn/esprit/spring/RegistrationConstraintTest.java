@@ -0,0 +1,139 @@
+package tn.esprit.spring;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.entities.*;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.services.CourseCapacityLedger;
+import tn.esprit.spring.services.ICourseServices;
+import tn.esprit.spring.services.IRegistrationServices;
+
+import java.time.LocalDate;
+
+@SpringBootTest
+public class RegistrationConstraintTest {
+
+    @Autowired
+    private IRegistrationServices registrationServices;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private ICourseRepository courseRepository;
+
+    @Autowired
+    private CourseCapacityLedger capacityLedger;
+
+    @Autowired
+    private ICourseServices courseServices;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private IRegistrationRepository registrationRepository;
+
+    /** Test that a second registration to the same course and week is rejected by the unique constraint. */
+    @Test
+    public void testDuplicateRegistrationIsRejected() {
+        Long numSkier = newSkier("Ada");
+        Long numCourse = newCourse();
+
+        Registration first = registrationServices.addRegistrationAndAssignToSkierAndCourse(
+                new Registration(null, 4, null, null), numSkier, numCourse);
+        Registration second = registrationServices.addRegistrationAndAssignToSkierAndCourse(
+                new Registration(null, 4, null, null), numSkier, numCourse);
+
+        assertNotNull(first);
+        assertNull(second);
+        assertEquals(1, capacityLedger.taken(numCourse, 4));
+    }
+
+    /** Test that a registration failing on anything but a duplicate gives its seat back. */
+    @Test
+    public void testFailedRegistrationGivesSeatBack() {
+        Long numSkier = newSkier("Grace");
+        Long numCourse = newCourse();
+        // The course is still cached after it is gone, so the insert fails on its foreign key
+        courseServices.retrieveCourse(numCourse);
+        jdbcTemplate.update("delete from course where num_course = ?", numCourse);
+
+        assertThrows(DataIntegrityViolationException.class, () -> registrationServices
+                .addRegistrationAndAssignToSkierAndCourse(new Registration(null, 4, null, null), numSkier, numCourse));
+
+        assertEquals(0, capacityLedger.taken(numCourse, 4));
+    }
+
+    /** Test that a removal rolled back keeps its seat, and a committed one gives it back. */
+    @Test
+    public void testRolledBackRemovalKeepsSeat() {
+        Long numCourse = newCourse();
+        Registration registration = registrationServices.addRegistrationAndAssignToSkierAndCourse(
+                new Registration(null, 4, null, null), newSkier("Hedy"), numCourse);
+        assertEquals(1, capacityLedger.taken(numCourse, 4));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertTrue(registrationServices.removeRegistration(registration.getNumRegistration()));
+            status.setRollbackOnly();
+        });
+        assertEquals(1, capacityLedger.taken(numCourse, 4));
+
+        assertTrue(registrationServices.removeRegistration(registration.getNumRegistration()));
+        assertEquals(0, capacityLedger.taken(numCourse, 4));
+    }
+
+    /** Test that a registration moved into a full course, or a course of the wrong age, keeps its course and seat. */
+    @Test
+    public void testMoveIntoFullCourseIsRejected() {
+        Long full = newCourse();
+        for (int i = 0; i < 6; i++) {
+            assertNotNull(registrationServices.addRegistrationAndAssignToSkierAndCourse(
+                    new Registration(null, 4, null, null), newSkier("Full" + i), full));
+        }
+        Long other = newCourse();
+        Registration registration = registrationServices.addRegistrationAndAssignToSkierAndCourse(
+                new Registration(null, 4, null, null), newSkier("Mover"), other);
+        Long children = courseRepository.save(
+                new Course(null, 1, TypeCourse.COLLECTIVE_CHILDREN, Support.SKI, 100f, 1, null)).getNumCourse();
+
+        assertNull(registrationServices.assignRegistrationToCourse(registration.getNumRegistration(), full));
+        assertNull(registrationServices.assignRegistrationToCourse(registration.getNumRegistration(), children));
+
+        assertEquals(6, capacityLedger.taken(full, 4));
+        assertEquals(1, capacityLedger.taken(other, 4));
+        assertEquals(0, capacityLedger.taken(children, 4));
+        assertEquals(other, registrationRepository.findById(registration.getNumRegistration())
+                .orElseThrow().getCourse().getNumCourse());
+
+        Long free = newCourse();
+        assertNotNull(registrationServices.assignRegistrationToCourse(registration.getNumRegistration(), free));
+        assertEquals(0, capacityLedger.taken(other, 4));
+        assertEquals(1, capacityLedger.taken(free, 4));
+    }
+
+    private Long newSkier(String firstName) {
+        Skier skier = new Skier();
+        skier.setFirstName(firstName);
+        skier.setLastName("Skier");
+        skier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        return skierRepository.save(skier).getNumSkier();
+    }
+
+    private Long newCourse() {
+        return courseRepository.save(new Course(null, 1, TypeCourse.COLLECTIVE_ADULT, Support.SKI, 100f, 1, null))
+                .getNumCourse();
+    }
+}
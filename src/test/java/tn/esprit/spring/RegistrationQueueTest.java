@@ -0,0 +1,120 @@
+package tn.esprit.spring;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import tn.esprit.spring.DTO.CourseDTO;
+import tn.esprit.spring.DTO.RegistrationResultDTO;
+import tn.esprit.spring.DTO.RegistrationStatus;
+import tn.esprit.spring.DTO.RegistrationTicketDTO;
+import tn.esprit.spring.DTO.TicketState;
+import tn.esprit.spring.entities.Support;
+import tn.esprit.spring.entities.TypeCourse;
+import tn.esprit.spring.services.ICourseServices;
+import tn.esprit.spring.services.IRegistrationServices;
+import tn.esprit.spring.services.RegistrationQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RegistrationQueueTest {
+
+    private IRegistrationServices registrationServices;
+
+    private ICourseServices courseServices;
+
+    private PlatformTransactionManager transactionManager;
+
+    private RegistrationQueue queue;
+
+    @BeforeEach
+    public void setup() {
+        registrationServices = mock(IRegistrationServices.class);
+        courseServices = mock(ICourseServices.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(courseServices.retrieveCourse(1L)).thenReturn(new CourseDTO(1L, 1, TypeCourse.COLLECTIVE_ADULT, Support.SKI, 100f, 1));
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(registrationServices.addGroupRegistration(anyList(), eq(1L), eq(2))).thenAnswer(invocation -> {
+            List<RegistrationResultDTO> results = new ArrayList<>();
+            for (Object numSkier : invocation.<List<?>>getArgument(0)) {
+                results.add(new RegistrationResultDTO((Long) numSkier, RegistrationStatus.ACCEPTED));
+            }
+            return results;
+        });
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        queue.stop();
+    }
+
+    /** Test that submissions are refused once the queue is full. */
+    @Test
+    public void testBackpressureWhenFull() {
+        queue = new RegistrationQueue(registrationServices, courseServices, transactionManager,
+                new SimpleMeterRegistry(), true, 2, 10);
+
+        assertNotNull(queue.submit(10L, 1L, 2));
+        assertNotNull(queue.submit(11L, 1L, 2));
+        assertNull(queue.submit(12L, 1L, 2));
+        assertThrows(IllegalArgumentException.class, () -> queue.submit(13L, 99L, 2));
+    }
+
+    /** Test that queued requests are registered in batches and their tickets completed. */
+    @Test
+    public void testTicketsAreProcessed() throws InterruptedException {
+        queue = new RegistrationQueue(registrationServices, courseServices, transactionManager,
+                new SimpleMeterRegistry(), true, 100, 10);
+        List<RegistrationTicketDTO> tickets = new ArrayList<>();
+        for (long numSkier = 1; numSkier <= 25; numSkier++) {
+            tickets.add(queue.submit(numSkier, 1L, 2));
+        }
+        queue.start();
+
+        for (RegistrationTicketDTO ticket : tickets) {
+            RegistrationTicketDTO state = queue.retrieveTicket(ticket.getTicket());
+            for (int i = 0; i < 100 && state.getState() == TicketState.QUEUED; i++) {
+                Thread.sleep(20);
+                state = queue.retrieveTicket(ticket.getTicket());
+            }
+            assertEquals(TicketState.PROCESSED, state.getState());
+            assertEquals(RegistrationStatus.ACCEPTED, state.getStatus());
+        }
+        verify(registrationServices, atLeast(3)).addGroupRegistration(anyList(), eq(1L), eq(2));
+        verify(transactionManager, atLeast(3)).commit(any());
+    }
+
+    /** Test that a failing group only fails its own tickets, the other groups being retried alone. */
+    @Test
+    public void testFailingGroupIsIsolated() throws InterruptedException {
+        when(courseServices.retrieveCourse(2L)).thenReturn(new CourseDTO(2L, 1, TypeCourse.COLLECTIVE_ADULT, Support.SKI, 100f, 1));
+        when(registrationServices.addGroupRegistration(anyList(), eq(2L), eq(2)))
+                .thenThrow(new IllegalStateException("Deadlock"));
+        queue = new RegistrationQueue(registrationServices, courseServices, transactionManager,
+                new SimpleMeterRegistry(), true, 100, 10);
+        RegistrationTicketDTO accepted = queue.submit(1L, 1L, 2);
+        RegistrationTicketDTO failed = queue.submit(2L, 2L, 2);
+        queue.start();
+
+        assertEquals(TicketState.PROCESSED, await(accepted).getState());
+        assertEquals(RegistrationStatus.ACCEPTED, await(accepted).getStatus());
+        assertEquals(TicketState.FAILED, await(failed).getState());
+        verify(transactionManager, times(2)).rollback(any());
+    }
+
+    private RegistrationTicketDTO await(RegistrationTicketDTO ticket) throws InterruptedException {
+        RegistrationTicketDTO state = queue.retrieveTicket(ticket.getTicket());
+        for (int i = 0; i < 100 && state.getState() == TicketState.QUEUED; i++) {
+            Thread.sleep(20);
+            state = queue.retrieveTicket(ticket.getTicket());
+        }
+        return state;
+    }
+}
@@ -0,0 +1,162 @@
+package tn.esprit.spring;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import tn.esprit.spring.DTO.DailyRevenue;
+import tn.esprit.spring.DTO.RevenueBucketDTO;
+import tn.esprit.spring.DTO.RevenueGranularity;
+import tn.esprit.spring.DTO.SubscriptionRevenue;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.repositories.ISubscriptionRepository;
+import tn.esprit.spring.services.SubscriptionRevenueAggregator;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class RevenueRollupTest {
+
+    private ISubscriptionRepository subscriptionRepository;
+
+    private SubscriptionRevenueAggregator aggregator;
+
+    @BeforeEach
+    public void setup() {
+        subscriptionRepository = mock(ISubscriptionRepository.class);
+        List<DailyRevenue> days = List.of(
+                day(LocalDate.of(2024, 10, 30), TypeSubscription.MONTHLY, 2L, 100.0),
+                day(LocalDate.of(2024, 11, 4), TypeSubscription.MONTHLY, 1L, 50.0),
+                day(LocalDate.of(2024, 11, 6), TypeSubscription.MONTHLY, 3L, 150.0),
+                day(LocalDate.of(2024, 11, 6), TypeSubscription.ANNUAL, 1L, 500.0));
+        when(subscriptionRepository.sumRevenueGroupByStartDateAndTypeSub()).thenReturn(days);
+        aggregator = new SubscriptionRevenueAggregator(subscriptionRepository, 11);
+        aggregator.rebuild();
+    }
+
+    /** Test that the daily buckets are merged into weeks, months and seasons. */
+    @Test
+    public void testGranularities() {
+        LocalDate from = LocalDate.of(2024, 10, 1);
+        LocalDate to = LocalDate.of(2024, 11, 30);
+
+        List<RevenueBucketDTO> weeks = aggregator.revenue(from, to, RevenueGranularity.WEEK, TypeSubscription.MONTHLY);
+        assertEquals(2, weeks.size());
+        assertEquals(LocalDate.of(2024, 10, 28), weeks.get(0).getPeriodStart());
+        assertEquals(LocalDate.of(2024, 11, 3), weeks.get(0).getPeriodEnd());
+        assertEquals(4, weeks.get(1).getSubscriptions());
+        assertEquals(200.0, weeks.get(1).getRevenue());
+
+        List<RevenueBucketDTO> months = aggregator.revenue(from, to, RevenueGranularity.MONTH, null);
+        assertEquals(3, months.size());
+        assertEquals(TypeSubscription.ANNUAL, months.get(0).getTypeSub());
+
+        List<RevenueBucketDTO> seasons = aggregator.revenue(from, to, RevenueGranularity.SEASON, TypeSubscription.MONTHLY);
+        assertEquals(LocalDate.of(2023, 11, 1), seasons.get(0).getPeriodStart());
+        assertEquals(LocalDate.of(2024, 11, 1), seasons.get(1).getPeriodStart());
+        assertEquals(LocalDate.of(2025, 10, 31), seasons.get(1).getPeriodEnd());
+
+        assertEquals(1, aggregator.revenue(LocalDate.of(2024, 11, 6), LocalDate.of(2024, 11, 6),
+                RevenueGranularity.DAY, TypeSubscription.MONTHLY).size());
+        assertThrows(IllegalArgumentException.class, () -> aggregator.revenue(to, from, RevenueGranularity.DAY, null));
+    }
+
+    /** Test that inserts, updates and deletes move the daily buckets. */
+    @Test
+    public void testIncrementalUpdates() {
+        LocalDate day = LocalDate.of(2024, 11, 4);
+        Subscription subscription = new Subscription(1L, day, null, 50f, TypeSubscription.MONTHLY);
+        aggregator.added(subscription);
+        assertEquals(100.0, monthly(day).get(0).getRevenue());
+
+        // Moved to another day and type: the old bucket gets back to one subscription
+        Subscription moved = new Subscription(1L, day.plusDays(1), null, 80f, TypeSubscription.SEMESTRIEL);
+        aggregator.updated(TypeSubscription.MONTHLY, 50f, day, moved);
+        assertEquals(1, monthly(day).get(0).getSubscriptions());
+        assertEquals(80.0, aggregator.revenue(day, day.plusDays(1), RevenueGranularity.DAY,
+                TypeSubscription.SEMESTRIEL).get(0).getRevenue());
+
+        aggregator.removed(new Subscription(2L, day, null, 50f, TypeSubscription.MONTHLY));
+        assertTrue(monthly(day).isEmpty());
+    }
+
+    /** Test that the scheduled rebuild drops a change the aggregator was told about but the database lacks. */
+    @Test
+    public void testRebuild() {
+        SubscriptionRevenue monthly = total(TypeSubscription.MONTHLY, 2L, 100.0);
+        when(subscriptionRepository.sumRevenueGroupByTypeSub()).thenReturn(List.of(monthly));
+        aggregator.rebuild();
+        assertEquals(50.0, aggregator.average(TypeSubscription.MONTHLY));
+
+        aggregator.added(new Subscription(3L, LocalDate.of(2024, 11, 4), null, 80f, TypeSubscription.MONTHLY));
+        assertEquals(60.0, aggregator.average(TypeSubscription.MONTHLY));
+        aggregator.added(new Subscription(4L, LocalDate.of(2024, 11, 4), null, 300f, TypeSubscription.ANNUAL));
+
+        assertEquals(2, monthly(LocalDate.of(2024, 11, 4)).get(0).getSubscriptions());
+
+        aggregator.rebuild();
+        assertEquals(50.0, aggregator.average(TypeSubscription.MONTHLY));
+        assertEquals(0.0, aggregator.average(TypeSubscription.ANNUAL));
+        assertEquals(1, monthly(LocalDate.of(2024, 11, 4)).get(0).getSubscriptions());
+        assertTrue(aggregator.revenue(LocalDate.of(2024, 11, 4), LocalDate.of(2024, 11, 4),
+                RevenueGranularity.DAY, TypeSubscription.ANNUAL).isEmpty());
+    }
+
+    /** Test that a rebuild racing with a commit neither counts the change twice nor loses it. */
+    @Test
+    public void testRebuildRacingWithCommit() {
+        SubscriptionRevenue before = total(TypeSubscription.MONTHLY, 2L, 100.0);
+        SubscriptionRevenue after = total(TypeSubscription.MONTHLY, 3L, 180.0);
+        when(subscriptionRepository.sumRevenueGroupByTypeSub()).thenReturn(List.of(before));
+        aggregator.rebuild();
+
+        // Committed before the rebuild counted it, but applied after
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            aggregator.added(new Subscription(3L, LocalDate.of(2024, 11, 4), null, 80f, TypeSubscription.MONTHLY));
+            doReturn(List.of(after)).when(subscriptionRepository).sumRevenueGroupByTypeSub();
+            aggregator.rebuild();
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                    TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(60.0, aggregator.average(TypeSubscription.MONTHLY));
+        assertEquals(2, monthly(LocalDate.of(2024, 11, 4)).get(0).getSubscriptions());
+
+        // Applied while the rebuild was counting, but missed by it
+        doAnswer(invocation -> {
+            aggregator.added(new Subscription(4L, LocalDate.of(2024, 11, 4), null, 120f, TypeSubscription.MONTHLY));
+            return List.of(after);
+        }).when(subscriptionRepository).sumRevenueGroupByTypeSub();
+        aggregator.rebuild();
+        assertEquals(75.0, aggregator.average(TypeSubscription.MONTHLY));
+        assertEquals(3, monthly(LocalDate.of(2024, 11, 4)).get(0).getSubscriptions());
+    }
+
+    private List<RevenueBucketDTO> monthly(LocalDate day) {
+        return aggregator.revenue(day, day, RevenueGranularity.DAY, TypeSubscription.MONTHLY);
+    }
+
+    private static SubscriptionRevenue total(TypeSubscription typeSub, Long total, Double revenue) {
+        SubscriptionRevenue row = mock(SubscriptionRevenue.class);
+        when(row.getTypeSub()).thenReturn(typeSub);
+        when(row.getTotal()).thenReturn(total);
+        when(row.getRevenue()).thenReturn(revenue);
+        return row;
+    }
+
+    private static DailyRevenue day(LocalDate startDate, TypeSubscription typeSub, Long total, Double revenue) {
+        DailyRevenue row = mock(DailyRevenue.class);
+        when(row.getStartDate()).thenReturn(startDate);
+        when(row.getTypeSub()).thenReturn(typeSub);
+        when(row.getTotal()).thenReturn(total);
+        when(row.getRevenue()).thenReturn(revenue);
+        return row;
+    }
+}
@@ -0,0 +1,112 @@
+package tn.esprit.spring;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import tn.esprit.spring.DTO.InstructorCourse;
+import tn.esprit.spring.DTO.RosterAssignmentDTO;
+import tn.esprit.spring.DTO.RosterPlanDTO;
+import tn.esprit.spring.DTO.RosterRequestDTO;
+import tn.esprit.spring.entities.*;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IInstructorRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.services.IInstructorServices;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+        "ski.roster.parallelism=4"
+})
+public class RosterPlannerTest {
+
+    @Autowired
+    private IInstructorServices instructorServices;
+
+    @Autowired
+    private IInstructorRepository instructorRepository;
+
+    @Autowired
+    private ICourseRepository courseRepository;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private IRegistrationRepository registrationRepository;
+
+    /** Test that a season roster of 150 instructors and 600 courses is planned without conflicts and applied. */
+    @Test
+    public void testSeasonRoster() {
+        Random random = new Random(7);
+        Skier skier = new Skier();
+        skier.setFirstName("Roster");
+        skier.setLastName("Skier");
+        skier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        Long numSkier = skierRepository.save(skier).getNumSkier();
+        Map<Long, Course> courses = new HashMap<>();
+        Map<Long, Set<Integer>> weeks = new HashMap<>();
+        for (int i = 0; i < 600; i++) {
+            Course course = courseRepository.save(new Course(null, 1 + random.nextInt(5), TypeCourse.COLLECTIVE_ADULT,
+                    random.nextBoolean() ? Support.SKI : Support.SNOWBOARD, 100f, 1 + random.nextInt(4), null));
+            courses.put(course.getNumCourse(), course);
+            for (int n = 0; n < 3; n++) {
+                int week = 1 + random.nextInt(20);
+                if (weeks.computeIfAbsent(course.getNumCourse(), k -> new HashSet<>()).add(week)) {
+                    registrationRepository.batchInsert(List.of(numSkier), course.getNumCourse(), week);
+                }
+            }
+        }
+        List<Long> instructors = new ArrayList<>();
+        Map<Long, Set<Support>> supports = new HashMap<>();
+        for (int i = 0; i < 150; i++) {
+            Long numInstructor = instructorRepository.save(new Instructor(null, "First" + i, "Last" + i,
+                    LocalDate.of(2015, 1, 1), null)).getNumInstructor();
+            instructors.add(numInstructor);
+            if (i < 50) {
+                supports.put(numInstructor, EnumSet.of(Support.SKI));
+            }
+        }
+
+        RosterPlanDTO plan = instructorServices.planRoster(new RosterRequestDTO(true, 2000L, supports), true);
+
+        assertTrue(plan.isApplied());
+        assertTrue(plan.getUnassigned().isEmpty());
+        assertEquals(600, plan.getAssignments().size());
+        assertEquals(4, plan.getMaxLoad());
+        Map<Long, Set<Long>> cells = new HashMap<>();
+        for (RosterAssignmentDTO assignment : plan.getAssignments()) {
+            Course course = courses.get(assignment.getNumCourse());
+            if (supports.containsKey(assignment.getNumInstructor())) {
+                assertEquals(Support.SKI, course.getSupport());
+            }
+            for (int week : weeks.get(course.getNumCourse())) {
+                assertTrue(cells.computeIfAbsent(assignment.getNumInstructor(), k -> new HashSet<>())
+                        .add(week * 100L + course.getTimeSlot()), "Instructor teaches two courses at once");
+            }
+        }
+        List<InstructorCourse> written = instructorRepository.findAllInstructorCourses();
+        assertEquals(600, written.size());
+
+        // Keeping the roster, only a new course is planned
+        Course added = courseRepository.save(new Course(null, 2, TypeCourse.INDIVIDUAL, Support.SKI, 80f, 2, null));
+        RosterPlanDTO next = instructorServices.planRoster(new RosterRequestDTO(false, 500L, null), false);
+        assertEquals(1, next.getPlannedCourses());
+        assertEquals(added.getNumCourse(), next.getAssignments().get(0).getNumCourse());
+        assertFalse(next.isApplied());
+        assertEquals(600, instructorRepository.findAllInstructorCourses().size());
+    }
+}
@@ -0,0 +1,124 @@
+package tn.esprit.spring;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.repositories.ISkierRepositoryCustomImpl;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "ski.import.chunk-size=1000"
+})
+public class SkierImportTest {
+
+    private static final int ROWS = 2500;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    /** Test that a CSV upload is imported in chunks and invalid lines are reported. */
+    @Test
+    public void testImportSkiers() throws Exception {
+        StringBuilder csv = new StringBuilder("firstName,lastName,dateOfBirth,city,typeSub,startDate,price\n");
+        for (int i = 0; i < ROWS; i++) {
+            csv.append("First").append(i).append(",Last").append(i).append(",1990-01-01,Tunis,ANNUAL,2024-12-01,500\n");
+            if (i == 0) {
+                csv.append("Bad,Row,1990-01-01,Tunis,WEEKLY,2024-12-01,500\n");
+            }
+        }
+        csv.append("Bad,Date,1990-13-01,Tunis,MONTHLY,2024-12-01,50\n");
+        csv.append("Too,Few,Columns\n");
+
+        mockMvc.perform(post("/skier/import").contentType("text/csv").content(csv.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(ROWS))
+                .andExpect(jsonPath("$.rejected").value(3))
+                .andExpect(jsonPath("$.rejectedLines[0]").value(3))
+                .andExpect(jsonPath("$.rejectedLines[1]").value(ROWS + 3))
+                .andExpect(jsonPath("$.rejectedLines[2]").value(ROWS + 4));
+
+        assertEquals(ROWS, skierRepository.count());
+        Skier skier = skierRepository.findPageAfter(0L, PageRequest.of(0, 1)).get(0);
+        assertEquals("First0", skier.getFirstName());
+        assertEquals(LocalDate.of(2025, 12, 1), skier.getSubscription().getEndDate());
+    }
+
+    /** Test that quoted fields may hold commas, doubled quotes and line breaks, and that bad quoting is rejected. */
+    @Test
+    public void testQuotedFields() throws Exception {
+        String csv = "firstName,lastName,\"dateOfBirth\",city,typeSub,startDate,price\n"
+                + "\"Anne, Marie\",Quoted,1990-01-01,Tunis,MONTHLY,2024-12-01,50\n"
+                + "\"The \"\"Ace\"\"\",Quoted,1990-01-01,\"Les\nMenuires\",MONTHLY,2024-12-01,50\n"
+                + "Half\"Quoted,Quoted,1990-01-01,Tunis,MONTHLY,2024-12-01,50\n"
+                + "\"Closed\"Early,Quoted,1990-01-01,Tunis,MONTHLY,2024-12-01,50\n"
+                + "Last,Quoted,1990-01-01,,MONTHLY,2024-12-01,50\n"
+                + "\"Never closed,Quoted,1990-01-01,Tunis,MONTHLY,2024-12-01,50\n";
+
+        mockMvc.perform(post("/skier/import").contentType("text/csv").content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(3))
+                .andExpect(jsonPath("$.rejected").value(3))
+                .andExpect(jsonPath("$.rejectedLines[0]").value(5))
+                .andExpect(jsonPath("$.rejectedLines[1]").value(6))
+                .andExpect(jsonPath("$.rejectedLines[2]").value(8));
+
+        List<Skier> quoted = skierRepository.findAll().stream()
+                .filter(skier -> "Quoted".equals(skier.getLastName()))
+                .sorted(Comparator.comparing(Skier::getNumSkier))
+                .collect(Collectors.toList());
+        assertEquals(List.of("Anne, Marie", "The \"Ace\"", "Last"),
+                quoted.stream().map(Skier::getFirstName).collect(Collectors.toList()));
+        assertEquals("Les\nMenuires", quoted.get(1).getCity());
+        skierRepository.deleteAll(quoted);
+    }
+
+    /** Test that rows reported as SUCCESS_NO_INFO are imported, and that a missing generated key fails the batch. */
+    @Test
+    public void testGeneratedKeys() throws Exception {
+        PreparedStatement ps = mock(PreparedStatement.class);
+        ResultSet keys = mock(ResultSet.class);
+        Connection connection = mock(Connection.class);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS))).thenReturn(ps);
+        when(ps.executeBatch()).thenReturn(new int[]{Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO});
+        when(ps.getGeneratedKeys()).thenReturn(keys);
+        when(keys.next()).thenReturn(true, true);
+        when(keys.getLong(1)).thenReturn(7L, 8L);
+        ISkierRepositoryCustomImpl repository = new ISkierRepositoryCustomImpl(new JdbcTemplate(dataSource));
+
+        List<Skier> skiers = List.of(new Skier(), new Skier());
+        repository.batchInsert(skiers);
+        assertEquals(List.of(7L, 8L), skiers.stream().map(Skier::getNumSkier).collect(Collectors.toList()));
+
+        doReturn(true, false).when(keys).next();
+        assertThrows(DataRetrievalFailureException.class, () -> repository.batchInsert(List.of(new Skier(), new Skier())));
+    }
+}
@@ -0,0 +1,152 @@
+package tn.esprit.spring;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tn.esprit.spring.DTO.PassCheckDTO;
+import tn.esprit.spring.DTO.SkierPass;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.services.SkierPassIndex;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public class SkierPassIndexTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 12, 1);
+
+    private ISkierRepository skierRepository;
+
+    private SkierPassIndex index;
+
+    @BeforeEach
+    public void setup() {
+        skierRepository = mock(ISkierRepository.class);
+        List<SkierPass> passes = List.of(pass(1L, START, START.plusMonths(1)),
+                pass(2L, START, START.plusYears(1)), pass(3L, START, null));
+        when(skierRepository.streamPasses()).thenReturn(passes.stream());
+        passes.forEach(row -> when(skierRepository.findPassByNumSkier(row.getNumSkier())).thenReturn(Optional.of(row)));
+        index = new SkierPassIndex(skierRepository, 60_000);
+        index.rebuild();
+    }
+
+    /** Test that the index answers from the subscription dates, both ends included. */
+    @Test
+    public void testCheck() {
+        assertEquals(2, index.size());
+        assertTrue(index.isValid(1L, START));
+        assertTrue(index.isValid(1L, START.plusMonths(1)));
+        assertFalse(index.isValid(1L, START.plusMonths(1).plusDays(1)));
+        assertFalse(index.isValid(1L, START.minusDays(1)));
+        assertFalse(index.isValid(3L, START));
+
+        PassCheckDTO check = index.check(2L, START.plusMonths(3));
+        assertTrue(check.isValid());
+        assertEquals(START.plusYears(1), check.getEndDate());
+        assertNull(index.check(4L, START).getStartDate());
+    }
+
+    /** Test that the index grows, updates and removes entries without losing the others. */
+    @Test
+    public void testUpdates() {
+        int skiers = 10_000;
+        for (long numSkier = 10; numSkier < 10 + skiers; numSkier++) {
+            index.skierSaved(skier(numSkier, START.plusDays(numSkier % 30)));
+        }
+        assertEquals(skiers + 2, index.size());
+        for (long numSkier = 10; numSkier < 10 + skiers; numSkier += 2) {
+            index.skierRemoved(numSkier);
+        }
+        index.subscriptionChanged(2L, new Subscription(2L, START.minusYears(1), START.minusDays(1), 500f,
+                TypeSubscription.ANNUAL));
+        index.skierSaved(skier(1L, null));
+        // What the refusals below are checked against
+        SkierPass moved = pass(2L, START.minusYears(1), START.minusDays(1));
+        when(skierRepository.findPassByNumSkier(2L)).thenReturn(Optional.of(moved));
+        when(skierRepository.findPassByNumSkier(1L)).thenReturn(Optional.empty());
+
+        assertEquals(skiers / 2 + 1, index.size());
+        for (long numSkier = 10; numSkier < 10 + skiers; numSkier++) {
+            assertEquals(numSkier % 2 == 1, index.isValid(numSkier, START.plusDays(30)), "skier " + numSkier);
+        }
+        assertFalse(index.isValid(2L, START));
+        assertFalse(index.isValid(1L, START));
+    }
+
+    /** Test that a pass sold or renewed through another node is read from the database, then from memory. */
+    @Test
+    public void testRefusalIsCheckedInDatabase() {
+        SkierPass sold = pass(5L, START, START.plusMonths(6));
+        SkierPass renewed = pass(1L, START, START.plusYears(1));
+        when(skierRepository.findPassByNumSkier(5L)).thenReturn(Optional.of(sold));
+        when(skierRepository.findPassByNumSkier(1L)).thenReturn(Optional.of(renewed));
+
+        assertTrue(index.isValid(5L, START.plusDays(3)));
+        assertTrue(index.isValid(5L, START.plusDays(4)));
+        assertTrue(index.check(1L, START.plusMonths(2)).isValid());
+        assertTrue(index.isValid(1L, START.plusMonths(3)));
+        assertFalse(index.isValid(4L, START));
+
+        assertEquals(3, index.size());
+        verify(skierRepository, times(1)).findPassByNumSkier(5L);
+        verify(skierRepository, times(1)).findPassByNumSkier(1L);
+        verify(skierRepository, never()).findPassByNumSkier(2L);
+    }
+
+    /** Test that a refused or unknown skier is only looked up in the database once in a while. */
+    @Test
+    public void testRefusalIsCached() {
+        for (int i = 0; i < 3; i++) {
+            assertFalse(index.isValid(4L, START));
+            assertFalse(index.isValid(1L, START.plusYears(1)));
+        }
+        verify(skierRepository, times(1)).findPassByNumSkier(4L);
+        verify(skierRepository, times(1)).findPassByNumSkier(1L);
+
+        // A pass sold on this node is answered at once, whatever was cached
+        index.skierSaved(skier(4L, START));
+        assertTrue(index.isValid(4L, START));
+    }
+
+    /** Test that writes made while the rebuild streams the passes are kept by the rebuilt index. */
+    @Test
+    public void testWritesDuringRebuildAreReplayed() {
+        List<SkierPass> passes = List.of(pass(1L, START, START.plusMonths(1)), pass(2L, START, START.plusYears(1)));
+        when(skierRepository.streamPasses()).thenAnswer(invocation -> {
+            index.skierSaved(skier(7L, START));
+            index.skierRemoved(2L);
+            return passes.stream();
+        });
+
+        index.rebuild();
+
+        assertEquals(2, index.size());
+        assertTrue(index.isValid(7L, START));
+        verify(skierRepository, never()).findPassByNumSkier(7L);
+        assertTrue(index.isValid(1L, START));
+    }
+
+    private static Skier skier(long numSkier, LocalDate startDate) {
+        Skier skier = new Skier();
+        skier.setNumSkier(numSkier);
+        if (startDate != null) {
+            skier.setSubscription(new Subscription(numSkier, startDate, startDate.plusMonths(1), 50f,
+                    TypeSubscription.MONTHLY));
+        }
+        return skier;
+    }
+
+    private static SkierPass pass(Long numSkier, LocalDate startDate, LocalDate endDate) {
+        SkierPass row = mock(SkierPass.class);
+        when(row.getNumSkier()).thenReturn(numSkier);
+        when(row.getStartDate()).thenReturn(startDate);
+        when(row.getEndDate()).thenReturn(endDate);
+        return row;
+    }
+}
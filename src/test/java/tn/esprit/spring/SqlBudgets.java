@@ -0,0 +1,82 @@
+package tn.esprit.spring;
+
+import tn.esprit.spring.SqlStatementCounter.Type;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Statement budgets of the endpoints, declared in a properties file as
+ * {@code SkierRestController.getAllSkiers=select:2}: the most statements of each type one call
+ * of the handler method may run. Types left out of a budget may not be run at all, and
+ * {@code none} allows no statement.
+ */
+final class SqlBudgets {
+
+    private final Map<String, Map<Type, Integer>> budgets = new HashMap<>();
+
+    private SqlBudgets() {
+    }
+
+    static SqlBudgets load(String resource) {
+        Properties properties = new Properties();
+        try (InputStream in = SqlBudgets.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("No " + resource + " on the test classpath");
+            }
+            properties.load(in);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        SqlBudgets loaded = new SqlBudgets();
+        properties.stringPropertyNames().forEach(endpoint ->
+                loaded.budgets.put(endpoint, parse(endpoint, properties.getProperty(endpoint))));
+        return loaded;
+    }
+
+    private static Map<Type, Integer> parse(String endpoint, String value) {
+        Map<Type, Integer> budget = new EnumMap<>(Type.class);
+        if (value.trim().equals("none")) {
+            return budget;
+        }
+        for (String limit : value.split(",")) {
+            String[] parts = limit.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Bad SQL budget of " + endpoint + ": " + value);
+            }
+            budget.put(Type.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(parts[1].trim()));
+        }
+        return budget;
+    }
+
+    Set<String> endpoints() {
+        return budgets.keySet();
+    }
+
+    /** Null when the endpoint has no budget. */
+    Map<Type, Integer> budget(String endpoint) {
+        return budgets.get(endpoint);
+    }
+
+    /** The types the endpoint ran more statements of than its budget allows, as "select 3 > 2". */
+    List<String> overruns(String endpoint, Map<Type, Integer> counts) {
+        Map<Type, Integer> budget = budgets.get(endpoint);
+        List<String> overruns = new ArrayList<>();
+        counts.forEach((type, count) -> {
+            int allowed = budget.getOrDefault(type, 0);
+            if (count > allowed) {
+                overruns.add(type.name().toLowerCase(Locale.ROOT) + " " + count + " > " + allowed);
+            }
+        });
+        return overruns;
+    }
+}
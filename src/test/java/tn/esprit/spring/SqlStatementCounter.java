@@ -0,0 +1,150 @@
+package tn.esprit.spring;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Counts the SQL statements the application sends to the database, by type.
+ * <p>
+ * Imported in a Spring Boot test, it wraps the DataSource, so Hibernate's statements and
+ * JdbcTemplate's are counted alike. A JDBC batch counts as one statement: it is one round trip.
+ * The counts are global; {@link #reset()} before the call to measure, and read them once it
+ * has returned.
+ */
+public class SqlStatementCounter implements BeanPostProcessor {
+
+    public enum Type {
+        SELECT, INSERT, UPDATE, DELETE, OTHER;
+
+        static Type of(String sql) {
+            String statement = sql == null ? "" : sql.stripLeading();
+            while (statement.startsWith("(")) {
+                statement = statement.substring(1).stripLeading();
+            }
+            int end = 0;
+            while (end < statement.length() && Character.isLetter(statement.charAt(end))) {
+                end++;
+            }
+            switch (statement.substring(0, end).toLowerCase(Locale.ROOT)) {
+                case "select":
+                case "with":
+                    return SELECT;
+                case "insert":
+                    return INSERT;
+                case "update":
+                    return UPDATE;
+                case "delete":
+                    return DELETE;
+                default:
+                    return OTHER;
+            }
+        }
+    }
+
+    private final Queue<String> statements = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && !(bean instanceof CountingDataSource)) {
+            return new CountingDataSource((DataSource) bean);
+        }
+        return bean;
+    }
+
+    public void reset() {
+        statements.clear();
+    }
+
+    /** Statements run since the last reset, in order. */
+    public List<String> statements() {
+        return new ArrayList<>(statements);
+    }
+
+    /** Statements run since the last reset, by type; types that were not run are left out. */
+    public Map<Type, Integer> counts() {
+        Map<Type, Integer> counts = new EnumMap<>(Type.class);
+        for (String sql : statements) {
+            counts.merge(Type.of(sql), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private final class CountingDataSource extends DelegatingDataSource {
+
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counting(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return counting(super.getConnection(username, password));
+        }
+
+        private Connection counting(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        Object result = invoke(connection, method, args);
+                        if (result instanceof Statement && method.getReturnType().isInterface()) {
+                            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{method.getReturnType()},
+                                    new CountingStatement((Statement) result, sql));
+                        }
+                        return result;
+                    });
+        }
+    }
+
+    private final class CountingStatement implements InvocationHandler {
+
+        private final Statement statement;
+
+        // Prepared statement, or the last one added to a plain statement's batch
+        private String sql;
+
+        CountingStatement(Statement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("addBatch") && args != null && args.length > 0) {
+                sql = (String) args[0];
+            } else if (name.startsWith("execute")) {
+                statements.add(Objects.toString(args != null && args.length > 0 && args[0] instanceof String ? args[0] : sql, ""));
+            }
+            return SqlStatementCounter.invoke(statement, method, args);
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
+}
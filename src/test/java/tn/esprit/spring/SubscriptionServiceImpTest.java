@@ -8,6 +8,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.ResponseEntity;
+import tn.esprit.spring.DTO.KeysetPage;
 import tn.esprit.spring.controllers.SubscriptionRestController;
 import tn.esprit.spring.entities.Subscription;
 import tn.esprit.spring.entities.TypeSubscription;
@@ -20,8 +21,8 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
 
 @WebMvcTest(SubscriptionRestController.class)
 public class SubscriptionServiceImpTest {
@@ -83,7 +84,7 @@ public class SubscriptionServiceImpTest {
     /** Test to verify retrieving subscriptions by type. */
     @Test
     public void testGetSubscriptionsByType() throws Exception {
-        Set<Subscription> subscriptions = new HashSet<>();
+        List<Subscription> subscriptions = new ArrayList<>();
         Subscription subscription = new Subscription(1L, LocalDate.now(), null, 99.99F, TypeSubscription.MONTHLY);
         subscriptions.add(subscription);
 
@@ -95,6 +96,21 @@ public class SubscriptionServiceImpTest {
                 .andExpect(jsonPath("$[0].typeSub").value("MONTHLY"));
     }
 
+    /** Test to verify that passing a page size returns one keyset page with its continuation token. */
+    @Test
+    public void testGetSubscriptionsPageByType() throws Exception {
+        List<Subscription> subscriptions = new ArrayList<>();
+        subscriptions.add(new Subscription(1L, LocalDate.now(), null, 99.99F, TypeSubscription.MONTHLY));
+        KeysetPage<Subscription> page = new KeysetPage<>(subscriptions, "next-token");
+
+        when(subscriptionServices.getSubscriptionPageByType(TypeSubscription.MONTHLY, null, 1)).thenReturn(page);
+
+        mockMvc.perform(get("/subscription/all/{typeSub}", TypeSubscription.MONTHLY).param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].numSub").value(1L))
+                .andExpect(jsonPath("$.next").value("next-token"));
+    }
+
     /** Test to verify that an exception is thrown when adding a subscription fails. */
     @Test
     public void testAddSubscriptionThrowsException() throws Exception {
@@ -129,7 +145,7 @@ public class SubscriptionServiceImpTest {
     /** Test to verify that retrieving subscriptions by type returns an empty list when no subscriptions exist. */
     @Test
     public void testGetSubscriptionsByTypeEmptyList() throws Exception {
-        when(subscriptionServices.getSubscriptionByType(TypeSubscription.MONTHLY)).thenReturn(new HashSet<>());
+        when(subscriptionServices.getSubscriptionByType(TypeSubscription.MONTHLY)).thenReturn(new ArrayList<>());
 
         mockMvc.perform(get("/subscription/all/{typeSub}", TypeSubscription.MONTHLY))
                 .andExpect(status().isOk())